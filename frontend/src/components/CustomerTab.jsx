@@ -3,6 +3,8 @@ import { MapContainer, TileLayer, Marker, useMapEvents, useMap } from 'react-lea
 import L from 'leaflet';
 import axios from 'axios';
 import { customersAPI, ordersAPI, productsAPI } from '../services/api';
+import { usePagedList, useLookup } from '../services/usePaging';
+import LoadMoreButton from './LoadMoreButton';
 
 // Fix Leaflet marker issue
 delete L.Icon.Default.prototype._getIconUrl;
@@ -13,9 +15,9 @@ L.Icon.Default.mergeOptions({
 });
 
 const CustomerTab = () => {
-  const [customers, setCustomers] = useState([]);
-  const [orders, setOrders] = useState([]); // 🆕 store all orders
-  const [products, setProducts] = useState([]); // 🆕 store products for names
+  const { items: customers, hasMore, loadingMore, loadMore, reload } = usePagedList(customersAPI.getPage);
+  const [ordersByCustomer, setOrdersByCustomer] = useState({}); // 🧾 loaded when a card is expanded
+  const products = useLookup(productsAPI.getById); // names for the expanded orders only
   const [showCustomerForm, setShowCustomerForm] = useState(false);
   const [isEditing, setIsEditing] = useState(false);
   const [newCustomer, setNewCustomer] = useState({
@@ -36,19 +38,28 @@ const CustomerTab = () => {
 
   const fetchCustomersAndOrders = async () => {
     try {
-      const [custRes, orderRes, prodRes] = await Promise.all([
-        customersAPI.getAll(),
-        ordersAPI.getAll(),
-        productsAPI.getAll(),
-      ]);
-      setCustomers(custRes.data || []);
-      setOrders(orderRes.data || []);
-      setProducts(prodRes.data || []);
+      await reload();
+      setOrdersByCustomer({});
     } catch (err) {
       console.error('❌ Fetch failed:', err);
     }
   };
 
+  const toggleOrders = async (customerId) => {
+    if (ordersByCustomer[customerId]) {
+      setOrdersByCustomer(({ [customerId]: _, ...rest }) => rest);
+      return;
+    }
+    try {
+      const res = await ordersAPI.getCustomerOrders(customerId);
+      const customerOrders = res.data || [];
+      setOrdersByCustomer((prev) => ({ ...prev, [customerId]: customerOrders }));
+      products.ensure(customerOrders.map((o) => o.productId));
+    } catch (err) {
+      console.error('❌ Failed to load customer orders:', err);
+    }
+  };
+
   const handleCreateOrUpdateCustomer = async (e) => {
     e.preventDefault();
     setLoading(true);
@@ -282,7 +293,7 @@ const CustomerTab = () => {
 
       <div className="mt-8">
         <h3 className="text-xl font-semibold text-gray-700 mb-3">
-          All Customers ({customers.length})
+          Customers ({customers.length}{hasMore ? '+' : ''})
         </h3>
 
         {customers.length === 0 ? (
@@ -290,7 +301,7 @@ const CustomerTab = () => {
         ) : (
           <div className="grid grid-cols-1 md:grid-cols-2 lg:grid-cols-3 gap-4">
             {customers.map((customer) => {
-              const customerOrders = orders.filter(o => o.customerId === customer.id);
+              const customerOrders = ordersByCustomer[customer.id];
               return (
                 <div
                   key={customer.id}
@@ -321,13 +332,19 @@ const CustomerTab = () => {
 
                   {/* 🧾 Orders Section */}
                   <div className="mt-2 border-t pt-2">
-                    <p className="font-semibold text-gray-700">🧾 Orders ({customerOrders.length})</p>
-                    {customerOrders.length === 0 ? (
+                    <button
+                      type="button"
+                      onClick={() => toggleOrders(customer.id)}
+                      className="font-semibold text-gray-700 hover:text-blue-600"
+                    >
+                      🧾 {customerOrders ? `Orders (${customerOrders.length})` : 'Show orders'}
+                    </button>
+                    {!customerOrders ? null : customerOrders.length === 0 ? (
                       <p className="text-gray-500 text-sm italic">No orders placed.</p>
                     ) : (
                       <ul className="list-disc ml-5 text-sm text-gray-700 mt-1">
                         {customerOrders.map((o) => {
-                          const product = products.find((p) => p.id === o.productId);
+                          const product = products.get(o.productId);
                           return (
                             <li key={o.id}>
                               {product ? product.name : 'Unknown Product'} —{' '}
@@ -343,6 +360,7 @@ const CustomerTab = () => {
             })}
           </div>
         )}
+        <LoadMoreButton hasMore={hasMore} loading={loadingMore} onClick={loadMore} label="Load more customers" />
       </div>
     </div>
   );
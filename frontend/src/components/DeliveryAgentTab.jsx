@@ -15,6 +15,7 @@ import {
   customersAPI,
   warehousesAPI,
 } from "../services/api";
+import { useLookup } from "../services/usePaging";
 
 window.global = window;
 
@@ -161,7 +162,7 @@ const AnimatedRoute = ({
 const DeliveryAgentTab = () => {
   const [agents, setAgents] = useState([]);
   const [orders, setOrders] = useState([]);
-  const [customers, setCustomers] = useState([]);
+  const customers = useLookup(customersAPI.getById); // 👥 only customers of in-flight orders
   const [warehouses, setWarehouses] = useState([]);
   const [routes, setRoutes] = useState({});
   const [drivers, setDrivers] = useState([]);
@@ -186,15 +187,15 @@ const DeliveryAgentTab = () => {
 
   const fetchAllData = async () => {
     try {
-      const [agentsRes, ordersRes, customersRes, warehousesRes] = await Promise.all([
+      const [agentsRes, ordersRes, warehousesRes] = await Promise.all([
         agentsAPI.getAll(),
-        ordersAPI.getAll(),
-        customersAPI.getAll(),
-        warehousesAPI.getAll(),
+        ordersAPI.getInFlight(),
+        warehousesAPI.getHubs(),
       ]);
+      const inFlight = ordersRes.data || [];
+      await customers.ensure(inFlight.map((o) => o.customerId));
       setAgents(agentsRes.data || []);
-      setOrders(ordersRes.data || []);
-      setCustomers(customersRes.data || []);
+      setOrders(inFlight);
       setWarehouses(warehousesRes.data || []);
     } catch (err) {
       console.error("Fetch failed:", err);
@@ -222,7 +223,7 @@ const DeliveryAgentTab = () => {
 
   const getWarehouseById = (id) => warehouses.find((w) => w.id === id);
   const getAgentById = (id) => agents.find((a) => a.id === id);
-  const getCustomerById = (id) => customers.find((c) => c.id === id);
+  const getCustomerById = (id) => customers.get(id);
   const getDriverLive = (agentId) => drivers.find((d) => d.id === agentId) || null;
 
   const getOptimizedMultiStopRoute = async (agent, activeOrders) => {
@@ -382,13 +383,12 @@ const DeliveryAgentTab = () => {
     if (
       agents.length &&
       orders.length &&
-      warehouses.length &&
-      customers.length
+      warehouses.length
     ) {
       buildRoutes();
     }
     // ⚙️ Removed drivers to prevent path resets each update
-  }, [agents, orders, warehouses, customers, setVehiclePositions]);
+  }, [agents, orders, warehouses, customers.get, setVehiclePositions]);
 
 
   const handleEditAgent = (agent) => {
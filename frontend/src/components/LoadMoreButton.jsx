@@ -0,0 +1,18 @@
+import React from 'react';
+
+// 📜 next keyset page of a list; hidden once the last page is loaded
+const LoadMoreButton = ({ hasMore, loading, onClick, label = 'Load more' }) =>
+  hasMore ? (
+    <div className="flex justify-center mt-4">
+      <button
+        type="button"
+        onClick={onClick}
+        disabled={loading}
+        className="bg-gray-200 text-gray-800 px-4 py-2 rounded hover:bg-gray-300 disabled:opacity-50"
+      >
+        {loading ? 'Loading...' : `⬇️ ${label}`}
+      </button>
+    </div>
+  ) : null;
+
+export default LoadMoreButton;
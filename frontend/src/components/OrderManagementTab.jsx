@@ -12,13 +12,16 @@ import {
   warehousesAPI,
   agentsAPI,
 } from "../services/api";
+import { usePagedList, useLookup } from "../services/usePaging";
+import LoadMoreButton from "./LoadMoreButton";
 
 window.global = window;
 
 const OrderManagementTab = () => {
-  const [orders, setOrders] = useState([]);
-  const [customers, setCustomers] = useState([]);
-  const [products, setProducts] = useState([]);
+  const orders = usePagedList(ordersAPI.getPage);
+  const customers = usePagedList(customersAPI.getPage);
+  const products = usePagedList(productsAPI.getPage);
+  const productById = useLookup(productsAPI.getById); // 📦 products of the orders on screen
   const [warehouses, setWarehouses] = useState([]);
   const [agents, setAgents] = useState([]);
   const [drivers, setDrivers] = useState([]);
@@ -44,17 +47,15 @@ const OrderManagementTab = () => {
 
   const fetchAllData = async () => {
     try {
-      const [ordersRes, customersRes, productsRes, warehousesRes, agentsRes] =
+      const [, , productsPage, warehousesRes, agentsRes] =
         await Promise.all([
-          ordersAPI.getAll(),
-          customersAPI.getAll(),
-          productsAPI.getAll(),
-          warehousesAPI.getAll(),
+          orders.reload(),
+          customers.reload(),
+          products.reload(),
+          warehousesAPI.getHubs(),
           agentsAPI.getAll(),
         ]);
-      setOrders(ordersRes.data || []);
-      setCustomers(customersRes.data || []);
-      setProducts(productsRes.data || []);
+      productById.remember(productsPage);
       setWarehouses(warehousesRes.data || []);
       setAgents(agentsRes.data || []);
     } catch (err) {
@@ -62,6 +63,11 @@ const OrderManagementTab = () => {
     }
   };
 
+  // 📦 product names for the orders on screen, including pages loaded later
+  useEffect(() => {
+    productById.ensure(orders.items.map((o) => o.productId));
+  }, [orders.items]);
+
   const connectWebSocket = () => {
     try {
       const socket = new SockJS(`${window.location.protocol}//${window.location.hostname}:8080/ws`);
@@ -114,10 +120,10 @@ const OrderManagementTab = () => {
     e.preventDefault();
     setLoading(true);
     try {
-      const customer = customers.find((c) => c.id === parseInt(newOrder.customerId));
+      const customer = customers.items.find((c) => c.id === parseInt(newOrder.customerId));
       if (!customer) return toast.error("❌ Invalid customer");
 
-      const product = products.find((p) => p.id === parseInt(newOrder.productId));
+      const product = products.items.find((p) => p.id === parseInt(newOrder.productId));
       const totalAmount = product ? product.price * newOrder.quantity : 0;
 
       const nearestWarehouse = findNearestWarehouse(customer, warehouses);
@@ -150,7 +156,7 @@ const OrderManagementTab = () => {
 
   const handleCustomerSelect = (e) => {
     const selectedId = e.target.value;
-    const selectedCustomer = customers.find((c) => c.id === parseInt(selectedId));
+    const selectedCustomer = customers.items.find((c) => c.id === parseInt(selectedId));
     setNewOrder({
       ...newOrder,
       customerId: selectedId,
@@ -174,12 +180,13 @@ const OrderManagementTab = () => {
             className="p-2 border rounded"
           >
             <option value="">Select Customer</option>
-            {customers.map((c) => (
+            {customers.items.map((c) => (
               <option key={c.id} value={c.id}>
                 {c.name}
               </option>
             ))}
           </select>
+          <LoadMoreButton hasMore={customers.hasMore} loading={customers.loadingMore} onClick={customers.loadMore} label="More customers" />
 
           <select
             required
@@ -188,12 +195,13 @@ const OrderManagementTab = () => {
             className="p-2 border rounded"
           >
             <option value="">Select Product</option>
-            {products.map((p) => (
+            {products.items.map((p) => (
               <option key={p.id} value={p.id}>
                 {p.name} - ₹{p.price} ({p.weight ?? '—'} kg)
               </option>
             ))}
           </select>
+          <LoadMoreButton hasMore={products.hasMore} loading={products.loadingMore} onClick={products.loadMore} label="More products" />
         </div>
 
         <textarea
@@ -216,9 +224,9 @@ const OrderManagementTab = () => {
 
       {/* 📋 Orders List (No Map) */}
       <div className="grid grid-cols-1 md:grid-cols-2 gap-4">
-        {orders.map((o) => {
+        {orders.items.map((o) => {
           const agent = getAgentById(o.deliveryAgentId) || drivers.find((d) => d.id === o.deliveryAgentId);
-          const product = products.find((p) => p.id === o.productId);
+          const product = productById.get(o.productId);
           const warehouse = warehouses.find((w) => w.id === o.warehouseId);
 
           return (
@@ -281,6 +289,7 @@ const OrderManagementTab = () => {
         })}
 
       </div>
+      <LoadMoreButton hasMore={orders.hasMore} loading={orders.loadingMore} onClick={orders.loadMore} label="Load more orders" />
     </div>
   );
 };
@@ -3,6 +3,8 @@ import { MapContainer, TileLayer, Marker, useMap } from 'react-leaflet';
 import L from 'leaflet';
 import axios from 'axios';
 import { warehousesAPI } from '../services/api';
+import { usePagedList } from '../services/usePaging';
+import LoadMoreButton from './LoadMoreButton';
 
 // Fix Leaflet icon issue
 delete L.Icon.Default.prototype._getIconUrl;
@@ -13,7 +15,7 @@ L.Icon.Default.mergeOptions({
 });
 
 const WarehouseTab = () => {
-  const [warehouses, setWarehouses] = useState([]);
+  const { items: warehouses, hasMore, loadingMore, loadMore, reload } = usePagedList(warehousesAPI.getPage);
   const [selectedWarehouse, setSelectedWarehouse] = useState(null);
   const [showForm, setShowForm] = useState(false);
   const [isEditing, setIsEditing] = useState(false);
@@ -37,9 +39,8 @@ const WarehouseTab = () => {
 
   const fetchWarehouses = async () => {
     try {
-      const res = await warehousesAPI.getAll();
-      setWarehouses(res.data);
-      if (res.data.length > 0 && !selectedWarehouse) setSelectedWarehouse(res.data[0]);
+      const firstPage = await reload();
+      if (firstPage.length > 0 && !selectedWarehouse) setSelectedWarehouse(firstPage[0]);
     } catch (err) {
       console.error(err);
       setError('Failed to fetch warehouses.');
@@ -362,7 +363,7 @@ const WarehouseTab = () => {
 
       <div className="mt-6">
         <h3 className="text-xl font-semibold text-gray-700 mb-3">
-          All Warehouses ({warehouses.length})
+          Warehouses ({warehouses.length}{hasMore ? '+' : ''})
         </h3>
         {warehouses.length === 0 ? (
           <p className="text-gray-500">No warehouses found.</p>
@@ -390,6 +391,7 @@ const WarehouseTab = () => {
             ))}
           </div>
         )}
+        <LoadMoreButton hasMore={hasMore} loading={loadingMore} onClick={loadMore} label="Load more warehouses" />
       </div>
     </div>
   );
@@ -89,6 +89,31 @@ const api = axios.create({
   },
 });
 
+//
+// 📜 Keyset-paged list endpoints return one page per call; the cursor for the next page
+// (null on the last one) comes back as nextCursor next to the axios response fields
+//
+export const PAGE_SIZE = 50;
+
+const getPage = async (url, { cursor, limit = PAGE_SIZE, ...params } = {}) => {
+  const res = await api.get(url, { params: { ...params, limit, ...(cursor ? { cursor } : {}) } });
+  return { ...res, nextCursor: res.headers['x-next-cursor'] || null };
+};
+
+// only for lists that are small by construction (e.g. orders in an in-flight status);
+// stops at maxRows instead of walking a whole table
+const getBounded = async (url, maxRows = 2000) => {
+  const data = [];
+  let cursor = null;
+  do {
+    const res = await getPage(url, { cursor, limit: 500 });
+    data.push(...res.data);
+    cursor = res.nextCursor;
+  } while (cursor && data.length < maxRows);
+  if (cursor) console.warn(`⚠️ ${url} has more than ${maxRows} rows, showing the first ${data.length}`);
+  return data;
+};
+
 //
 // 🧩 Merchants API
 //
@@ -104,7 +129,7 @@ export const merchantsAPI = {
 // 🛍️ Products API
 //
 export const productsAPI = {
-  getAll: () => api.get('/products'),
+  getPage: (cursor) => getPage('/products', { cursor }),
   getById: (id) => api.get(`/products/${id}`),
   getByMerchant: (merchantId) => api.get(`/products/merchant/${merchantId}`),
   search: (name) => api.get(`/products/search?name=${name}`),
@@ -117,9 +142,16 @@ export const productsAPI = {
 // 📦 Orders API
 //
 export const ordersAPI = {
-  getAll: () => api.get('/orders'),
+  getPage: (cursor) => getPage('/orders', { cursor }),
   getById: (id) => api.get(`/orders/${id}`),
-  getByStatus: (status) => api.get(`/orders/status/${status}`),
+  getByStatus: (status, cursor) => getPage(`/orders/status/${status}`, { cursor }),
+  // 🚚 orders a driver still has to deal with; bounded by fleet size, not by order history
+  getInFlight: async () => {
+    const lists = await Promise.all(
+      ['ASSIGNED', 'PICKED_UP', 'OUT_FOR_DELIVERY'].map((s) => getBounded(`/orders/status/${s}`))
+    );
+    return { data: lists.flat() };
+  },
   getByProduct: (productId) => api.get(`/orders/product/${productId}`),
   markDelivered: (id) => api.put(`/orders/${id}/delivered`),
   create: (order) => api.post('/orders', order),
@@ -149,7 +181,7 @@ export const ordersAPI = {
 // 👥 Customers API
 //
 export const customersAPI = {
-  getAll: () => api.get('/customers'),
+  getPage: (cursor) => getPage('/customers', { cursor }),
   getById: (id) => api.get(`/customers/${id}`),
   search: (name) => api.get(`/customers/search?name=${name}`),
   getByEmail: (email) => api.get(`/customers/email/${email}`),
@@ -176,7 +208,9 @@ export const agentsAPI = {
 // 🏬 Warehouses API  ✅ (NEW)
 //
 export const warehousesAPI = {
-  getAll: () => api.get('/warehouses'),
+  getPage: (cursor) => getPage('/warehouses', { cursor }),
+  // 🏭 every hub, for nearest-warehouse lookups; a handful of rows, not a growing table
+  getHubs: async () => ({ data: await getBounded('/warehouses', 1000) }),
   getById: (id) => api.get(`/warehouses/${id}`),
   create: (warehouse) => api.post('/warehouses', warehouse),
   update: (id, warehouse) => api.put(`/warehouses/${id}`, warehouse),
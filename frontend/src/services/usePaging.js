@@ -0,0 +1,68 @@
+import { useCallback, useRef, useState } from 'react';
+
+//
+// 📜 One keyset-paged list: the first page on reload(), further pages on loadMore()
+//
+export const usePagedList = (fetchPage) => {
+  const [items, setItems] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
+
+  const reload = useCallback(async () => {
+    const res = await fetchPage(null);
+    setItems(res.data || []);
+    setNextCursor(res.nextCursor);
+    return res.data || [];
+  }, [fetchPage]);
+
+  const loadMore = useCallback(async () => {
+    if (!nextCursor || loadingMore) return;
+    setLoadingMore(true);
+    try {
+      const res = await fetchPage(nextCursor);
+      setItems((prev) => [...prev, ...(res.data || [])]);
+      setNextCursor(res.nextCursor);
+    } finally {
+      setLoadingMore(false);
+    }
+  }, [fetchPage, nextCursor, loadingMore]);
+
+  return { items, hasMore: !!nextCursor, loadingMore, loadMore, reload };
+};
+
+//
+// 🔎 id -> entity cache for names shown next to paged rows; only ids on screen are fetched
+//
+export const useLookup = (fetchById) => {
+  const [byId, setById] = useState({});
+  const requested = useRef(new Set());
+
+  const ensure = useCallback(async (ids) => {
+    const missing = [...new Set(ids)].filter((id) => id != null && !requested.current.has(id));
+    if (!missing.length) return;
+    missing.forEach((id) => requested.current.add(id));
+    const results = await Promise.allSettled(missing.map((id) => fetchById(id)));
+    setById((prev) => {
+      const next = { ...prev };
+      results.forEach((r) => {
+        if (r.status === 'fulfilled' && r.value?.data) next[r.value.data.id] = r.value.data;
+      });
+      return next;
+    });
+  }, [fetchById]);
+
+  const remember = useCallback((rows) => {
+    setById((prev) => {
+      const next = { ...prev };
+      rows.forEach((row) => {
+        next[row.id] = row;
+        requested.current.add(row.id);
+      });
+      return next;
+    });
+  }, []);
+
+  const get = useCallback((id) => byId[id], [byId]);
+
+  return { get, ensure, remember };
+};
@@ -0,0 +1,58 @@
+// k6 load test for the routing endpoints, used to compare the default (platform thread) mode
+// with the opt-in virtual-thread mode.
+//
+//   ./gradlew bootRun                      # Java 17, Tomcat pool of 200 threads
+//   k6 run loadtest/routing.js
+//   ./gradlew bootRun -PvirtualThreads     # Java 21, virtual threads; JDBC waits bounded by Hikari's 5 s timeout
+//   k6 run loadtest/routing.js
+//
+// Compare http_reqs (throughput) and http_req_duration p(95) between the two runs. No results are
+// recorded here yet: whether virtual threads win for this workload is still to be measured.
+// BASE_URL, PEAK_VUS and HOT_RATIO (share of requests for already cached routes) can be overridden with -e.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8888';
+const PEAK_VUS = parseInt(__ENV.PEAK_VUS || '800', 10);
+const HOT_RATIO = parseFloat(__ENV.HOT_RATIO || '0.7');
+
+export const options = {
+  scenarios: {
+    routing_burst: {
+      executor: 'ramping-vus',
+      startVUs: 0,
+      stages: [
+        { duration: '30s', target: PEAK_VUS / 4 },
+        { duration: '1m', target: PEAK_VUS },
+        { duration: '30s', target: 0 },
+      ],
+    },
+  },
+  thresholds: {
+    http_req_failed: ['rate<0.05'],
+  },
+};
+
+// a small fixed set of hot routes around Bengaluru, plus random cold ones that go to ORS / fallback
+const HOT = Array.from({ length: 50 }, (_, i) => [12.90 + i * 0.002, 77.55, 12.97, 77.60 + i * 0.002]);
+
+function coldRoute() {
+  const r = () => (Math.random() - 0.5) * 0.2;
+  return [12.97 + r(), 77.59 + r(), 12.97 + r(), 77.59 + r()];
+}
+
+export default function () {
+  if (Math.random() < 0.1) {
+    const stops = [coldRoute(), coldRoute()].map(([a, b]) => `${b},${a}`).join(';');
+    const res = http.get(`${BASE_URL}/api/routes/optimized?coords=${stops}`, { tags: { endpoint: 'optimized' } });
+    check(res, { 'optimized answered': (r) => r.status < 500 });
+    return;
+  }
+  const [sLat, sLng, eLat, eLng] = Math.random() < HOT_RATIO
+    ? HOT[Math.floor(Math.random() * HOT.length)]
+    : coldRoute();
+  const res = http.get(
+    `${BASE_URL}/api/routes/driving?startLat=${sLat}&startLng=${sLng}&endLat=${eLat}&endLng=${eLng}&format=polyline`,
+    { tags: { endpoint: 'driving' } });
+  check(res, { 'driving answered': (r) => r.status < 500 });
+}
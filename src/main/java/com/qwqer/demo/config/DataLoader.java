@@ -1,5 +1,6 @@
 package com.qwqer.demo.config;
 
+import com.enums.VehicleCapacity;
 import com.qwqer.demo.entity.Customer;
 import com.qwqer.demo.entity.DeliveryAgent;
 import com.qwqer.demo.entity.Merchant;
@@ -10,11 +11,13 @@ import com.qwqer.demo.repository.MerchantRepository;
 import com.qwqer.demo.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 
 @Component
+@Profile("!synthetic") // the synthetic profile seeds its own, much larger data set (SyntheticDataGenerator)
 public class DataLoader implements CommandLineRunner {
     
     @Autowired
@@ -61,6 +64,17 @@ public class DataLoader implements CommandLineRunner {
             Product product8 = new Product("Cappuccino", "Espresso with steamed milk and foam", new BigDecimal("4.99"), 3L);
             Product product9 = new Product("Latte", "Espresso with steamed milk", new BigDecimal("5.49"), 3L);
             
+            // weights in grams, as DriverLocationController and AutoAssignService read them
+            product1.setWeight(650.0);
+            product2.setWeight(700.0);
+            product3.setWeight(850.0);
+            product4.setWeight(300.0);
+            product5.setWeight(320.0);
+            product6.setWeight(300.0);
+            product7.setWeight(60.0);
+            product8.setWeight(250.0);
+            product9.setWeight(350.0);
+            
             productRepository.save(product1);
             productRepository.save(product2);
             productRepository.save(product3);
@@ -81,6 +95,11 @@ public class DataLoader implements CommandLineRunner {
             DeliveryAgent agent3 = new DeliveryAgent("Tom Williams", "+1-555-2003");
             DeliveryAgent agent4 = new DeliveryAgent("Lisa Chen", "+1-555-2004");
             
+            agent1.setVehicleCapacity(VehicleCapacity.TWO_WHEELER);
+            agent2.setVehicleCapacity(VehicleCapacity.TWO_WHEELER);
+            agent3.setVehicleCapacity(VehicleCapacity.FOUR_WHEELER);
+            agent4.setVehicleCapacity(VehicleCapacity.FOUR_WHEELER);
+            
             agent3.setStatus(DeliveryAgent.AgentStatus.ON_DELIVERY);
             
             agentRepository.save(agent1);
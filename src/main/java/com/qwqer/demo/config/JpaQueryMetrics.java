@@ -0,0 +1,62 @@
+package com.qwqer.demo.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Counts the SQL statements Hibernate prepares while serving each HTTP request and records
+ * the total in the {@code jpa.queries.per.request} summary, which makes N+1 regressions visible.
+ *
+ * The count lives in a per-thread int[1], so counting a statement is one increment.
+ */
+@Configuration
+public class JpaQueryMetrics implements WebMvcConfigurer {
+
+    private static final ThreadLocal<int[]> STATEMENTS = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final DistributionSummary perRequest;
+
+    public JpaQueryMetrics(MeterRegistry meterRegistry) {
+        this.perRequest = DistributionSummary.builder("jpa.queries.per.request")
+                .description("SQL statements issued while serving one HTTP request")
+                .baseUnit("statements")
+                .serviceLevelObjectives(1, 2, 5, 10, 20, 50, 100)
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCounter() {
+        StatementInspector counter = sql -> {
+            STATEMENTS.get()[0]++;
+            return sql;
+        };
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, counter);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                STATEMENTS.get()[0] = 0;
+                return true;
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                    Exception ex) {
+                perRequest.record(STATEMENTS.get()[0]);
+            }
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package com.qwqer.demo.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * customer_orders and customers ids used to come from IDENTITY columns. Before the first insert, move
+ * customer_orders_seq and customers_seq past the highest existing id so sequence-generated ids never
+ * collide with rows written under the old scheme (or by the synthetic loader). Only ever moves forward.
+ */
+@Component
+public class OrderIdSequenceInitializer {
+
+    private static final int ALLOCATION_SIZE = 50; // matches @SequenceGenerator on CustomerOrder and Customer
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OrderIdSequenceInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // depends on the EntityManagerFactory so the schema (and the sequences) exist before this runs
+    public OrderIdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignSequence() {
+        align("customer_orders_seq", "customer_orders");
+        align("customers_seq", "customers");
+    }
+
+    private void align(String sequence, String table) {
+        try {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            Long current = jdbcTemplate.queryForObject(
+                    "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE UPPER(SEQUENCE_NAME) = ?",
+                    Long.class, sequence.toUpperCase());
+            // pooled optimizer hands out (value - allocationSize, value], so the next value must clear maxId by a full block
+            long required = maxId + ALLOCATION_SIZE + 1;
+            if (current != null && current < required) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + required);
+                log.info("🔢 {} moved from {} to {} (max {} id {})", sequence, current, required, table, maxId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Could not align {} with existing {} ids: {}", sequence, table, e.getMessage());
+        }
+    }
+}
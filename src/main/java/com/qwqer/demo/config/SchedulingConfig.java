@@ -0,0 +1,114 @@
+package com.qwqer.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Separate, named thread pools per class of periodic job, so one slow job cannot delay another:
+ *  - broadcastScheduler: the 2 s driver position tick, alone on its thread,
+ *  - dispatchScheduler: only fires the assignment ticks; the cycles themselves run on dispatchWorkers,
+ *  - dispatchSolverPool: fork-join pool the auto-assign cycle plans its warehouse partitions on,
+ *  - taskScheduler: default for every other @Scheduled method (archival, prewarm, calibration, SSE heartbeat),
+ *  - afterCommitWriter: one thread for the database work that follows a commit (see below).
+ * Defining "taskScheduler" also keeps @Scheduled off the STOMP broker's messageBrokerTaskScheduler.
+ *
+ * These beans replace Boot's auto-configured scheduler, which is the one spring.threads.virtual.enabled
+ * would switch to virtual threads. So under the virtual-threads profile the schedulers and dispatch
+ * workers are built on virtual threads here, keeping their pool sizes as the per-class concurrency
+ * limit. The solver pool stays on platform threads: its planning is CPU-bound.
+ */
+@Configuration
+public class SchedulingConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${scheduling.maintenance.pool-size:2}") int poolSize) {
+        return scheduler("maintenance-", poolSize);
+    }
+
+    @Bean
+    public ThreadPoolTaskScheduler broadcastScheduler() {
+        return scheduler("broadcast-", 1);
+    }
+
+    @Bean
+    public ThreadPoolTaskScheduler dispatchScheduler() {
+        return scheduler("dispatch-tick-", 1);
+    }
+
+    // one thread per assignment engine; PeriodicJobs never queues a second cycle of the same engine
+    @Bean
+    public ThreadPoolTaskExecutor dispatchWorkers(@Value("${scheduling.dispatch.workers:2}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("dispatch-");
+        if (virtualThreads) {
+            executor.setThreadFactory(virtualThreadFactory("dispatch-"));
+        }
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(workers);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    // Read-model updates, shared ETag bumps and stream owner lookups need a connection after a commit,
+    // while the committing thread still holds its own until the transaction is cleaned up. They are
+    // handed to this single writer instead, so no thread ever holds two connections, and they apply
+    // in commit order. A full queue rejects the task; callers fall back to their retry paths.
+    // OrderDetailsReadModel drains it on shutdown, while JPA is still open.
+    @Bean
+    public ThreadPoolTaskExecutor afterCommitWriter(
+            @Value("${scheduling.after-commit.queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("after-commit-");
+        if (virtualThreads) {
+            executor.setThreadFactory(virtualThreadFactory("after-commit-"));
+        }
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    // parallelism 0 = one worker per core
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool dispatchSolverPool(@Value("${dispatch.parallel.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("dispatch-solver-" + thread.getPoolIndex());
+            return thread;
+        };
+        return new ForkJoinPool(threads, factory, null, false);
+    }
+
+    // Spring's VirtualThreadTaskExecutor builds the factory on Java 21 while this class still compiles for 17
+    private static ThreadFactory virtualThreadFactory(String threadNamePrefix) {
+        return new VirtualThreadTaskExecutor(threadNamePrefix).getVirtualThreadFactory();
+    }
+
+    private ThreadPoolTaskScheduler scheduler(String threadNamePrefix, int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix(threadNamePrefix);
+        if (virtualThreads) {
+            scheduler.setThreadFactory(virtualThreadFactory(threadNamePrefix));
+        }
+        scheduler.setPoolSize(poolSize);
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        return scheduler;
+    }
+}
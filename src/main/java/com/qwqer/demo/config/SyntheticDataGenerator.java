@@ -0,0 +1,515 @@
+package com.qwqer.demo.config;
+
+import com.enums.VehicleCapacity;
+import com.qwqer.demo.entity.DeliveryAgent;
+import com.qwqer.demo.entity.Merchant;
+import com.qwqer.demo.entity.Product;
+import com.qwqer.demo.entity.Warehouse;
+import com.qwqer.demo.enums.OrderStatus;
+import com.qwqer.demo.repository.DeliveryAgentRepository;
+import com.qwqer.demo.repository.MerchantRepository;
+import com.qwqer.demo.repository.ProductRepository;
+import com.qwqer.demo.repository.WarehouseRepository;
+import com.qwqer.demo.service.CollectionVersions;
+import com.qwqer.demo.service.OrderDetailsReadModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Production-scale fixtures for performance testing, replacing DataLoader under the
+ * {@code synthetic} profile ({@code --spring.profiles.active=synthetic}).
+ *
+ * Merchants, warehouses, products and agents are few and go through JPA. Customers and the
+ * historical order stream are written with JDBC batches, one transaction per
+ * {@code datagen.chunk-size} rows; the load logs how long it took.
+ * Those inserts bypass the entity listeners; the order details view is rebuilt and every
+ * collection version bumped once at the end instead.
+ *
+ * Every location is drawn around one of the {@code datagen.cities} centres (denser near the
+ * centre), so the nearby-order grouping and nearest-driver search see realistic clusters.
+ * A fixed {@code datagen.seed} makes runs reproducible.
+ */
+@Component
+@Profile("synthetic")
+public class SyntheticDataGenerator implements CommandLineRunner {
+
+    private static final String[] FIRST_NAMES = { "Aarav", "Vivaan", "Aditya", "Arjun", "Sai", "Reyansh", "Ishaan",
+            "Ananya", "Diya", "Saanvi", "Aadhya", "Kavya", "Meera", "Riya", "Rahul", "Priya", "Karthik", "Neha",
+            "Rohan", "Sneha" };
+    private static final String[] LAST_NAMES = { "Sharma", "Verma", "Iyer", "Reddy", "Nair", "Gupta", "Patel",
+            "Rao", "Menon", "Das", "Singh", "Kumar", "Joshi", "Mehta", "Pillai", "Bose" };
+    private static final String[] PRODUCT_KINDS = { "Document", "Parcel", "Groceries", "Medicine", "Meal box",
+            "Electronics", "Apparel", "Flowers", "Books", "Hardware" };
+    private static final String[] STREETS = { "MG Road", "Main Road", "Cross Street", "Ring Road", "Station Road",
+            "Market Road", "Temple Street", "Lake View Road" };
+
+    // hour-of-day weights for order creation: lunch and dinner peaks, quiet nights
+    private static final int[] HOUR_WEIGHTS = { 1, 1, 1, 1, 1, 2, 3, 5, 6, 7, 8, 10, 12, 11, 8, 7, 7, 9, 11, 12, 10,
+            7, 4, 2 };
+
+    private static final String INSERT_CUSTOMER = "INSERT INTO customers (id, name, email, phone, address, pin_code, "
+            + "latitude, longitude) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ORDER = "INSERT INTO customer_orders (id, customer_id, customer_name, address, "
+            + "product_id, total_amount, quantity, order_status, otp, delivery_agent_id, created_at, updated_at, "
+            + "delivered_at, notes, warehouse_id, latitude, longitude) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, NULL, ?, ?, ?, ?, NULL, ?, ?, ?)";
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private final MerchantRepository merchantRepository;
+    private final ProductRepository productRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final DeliveryAgentRepository agentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderIdSequenceInitializer sequenceInitializer;
+    private final OrderDetailsReadModel orderDetailsReadModel;
+    private final CollectionVersions collectionVersions;
+
+    @Value("${datagen.cities:12.9716,77.5946,15;19.0760,72.8777,20;28.6139,77.2090,25}")
+    private String cities;
+
+    @Value("${datagen.merchants:200}")
+    private int merchantCount = 200;
+
+    @Value("${datagen.products-per-merchant:10}")
+    private int productsPerMerchant = 10;
+
+    @Value("${datagen.warehouses-per-city:4}")
+    private int warehousesPerCity = 4;
+
+    @Value("${datagen.customers:50000}")
+    private int customerCount = 50000;
+
+    @Value("${datagen.agents:500}")
+    private int agentCount = 500;
+
+    @Value("${datagen.agents.two-wheeler-share:0.7}")
+    private double twoWheelerShare = 0.7;
+
+    @Value("${datagen.orders:1000000}")
+    private int orderCount = 1000000;
+
+    @Value("${datagen.history-days:90}")
+    private int historyDays = 90;
+
+    @Value("${datagen.pending-orders:200}")
+    private int pendingOrders = 200;
+
+    @Value("${datagen.cancel-rate:0.06}")
+    private double cancelRate = 0.06;
+
+    @Value("${datagen.chunk-size:10000}")
+    private int chunkSize = 10000;
+
+    @Value("${datagen.seed:42}")
+    private long seed = 42;
+
+    @Value("${datagen.skip-if-populated:true}")
+    private boolean skipIfPopulated = true;
+
+    public SyntheticDataGenerator(MerchantRepository merchantRepository, ProductRepository productRepository,
+            WarehouseRepository warehouseRepository, DeliveryAgentRepository agentRepository,
+            JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            OrderIdSequenceInitializer sequenceInitializer, OrderDetailsReadModel orderDetailsReadModel,
+            CollectionVersions collectionVersions) {
+        this.merchantRepository = merchantRepository;
+        this.productRepository = productRepository;
+        this.warehouseRepository = warehouseRepository;
+        this.agentRepository = agentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sequenceInitializer = sequenceInitializer;
+        this.orderDetailsReadModel = orderDetailsReadModel;
+        this.collectionVersions = collectionVersions;
+    }
+
+    @Override
+    public void run(String... args) {
+        Long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customer_orders", Long.class);
+        if (skipIfPopulated && existing != null && existing > 0) {
+            log.info("🧪 Synthetic data skipped: customer_orders already has {} rows (datagen.skip-if-populated)",
+                    existing);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        Random random = new Random(seed);
+        List<City> cityList = parseCities(cities);
+
+        List<Warehouse> warehouses = generateWarehouses(cityList, random);
+        List<Product> products = generateProducts(cityList, random);
+        List<DeliveryAgent> agents = generateAgents(cityList, random);
+        long referenceMs = System.currentTimeMillis() - start;
+
+        long customersStart = System.currentTimeMillis();
+        Customers customers = generateCustomers(cityList, random);
+        long customersMs = System.currentTimeMillis() - customersStart;
+
+        long ordersStart = System.currentTimeMillis();
+        long orders = generateOrders(cityList, customers, products, warehouses, agents, random);
+        long ordersMs = System.currentTimeMillis() - ordersStart;
+
+        // ids were written explicitly, so move the pooled sequence past them before the app inserts anything
+        sequenceInitializer.alignSequence();
+        long viewStart = System.currentTimeMillis();
+        int viewRows = orderDetailsReadModel.rebuild();
+        for (CollectionVersions.Collection collection : CollectionVersions.Collection.values()) {
+            collectionVersions.bump(collection);
+        }
+
+        log.info("🧪 Synthetic data: {} cities, {} merchants, {} products, {} warehouses, {} agents in {} ms",
+                cityList.size(), merchantCount, products.size(), warehouses.size(), agents.size(), referenceMs);
+        log.info("🧪 Synthetic data: {} customers in {} ms, {} orders in {} ms ({} orders/s), view {} rows in {} ms",
+                customers.size(), customersMs, orders, ordersMs, ordersMs == 0 ? orders : orders * 1000 / ordersMs,
+                viewRows, System.currentTimeMillis() - viewStart);
+    }
+
+    // 🏭 warehouses spread over each city's inner area
+    private List<Warehouse> generateWarehouses(List<City> cityList, Random random) {
+        List<Warehouse> warehouses = new ArrayList<>();
+        for (City city : cityList) {
+            for (int w = 0; w < warehousesPerCity; w++) {
+                double[] point = city.pointNear(random, 0.6);
+                warehouses.add(new Warehouse("Hub " + (city.index + 1) + "-" + (w + 1), street(random), city.pinCode(random),
+                        point[0], point[1], phone(random), fullName(random)));
+            }
+        }
+        warehouses = warehouseRepository.saveAll(warehouses);
+        for (int i = 0; i < warehouses.size(); i++) {
+            cityList.get(i / warehousesPerCity).warehouses.add(warehouses.get(i));
+        }
+        return warehouses;
+    }
+
+    // 🏪 merchants round-robin over the cities, each with products of skewed (mostly light) weights
+    private List<Product> generateProducts(List<City> cityList, Random random) {
+        List<Merchant> merchants = new ArrayList<>(merchantCount);
+        for (int m = 0; m < merchantCount; m++) {
+            City city = cityList.get(m % cityList.size());
+            double[] point = city.pointNear(random, 1.0);
+            merchants.add(new Merchant("Merchant " + (m + 1), "merchant" + (m + 1) + "@example.com", phone(random),
+                    city.pinCode(random), point[0], point[1]));
+        }
+        merchants = merchantRepository.saveAll(merchants);
+
+        List<Product> products = new ArrayList<>(merchantCount * productsPerMerchant);
+        for (int m = 0; m < merchants.size(); m++) {
+            Merchant merchant = merchants.get(m);
+            for (int p = 0; p < productsPerMerchant; p++) {
+                String kind = PRODUCT_KINDS[random.nextInt(PRODUCT_KINDS.length)];
+                BigDecimal price = BigDecimal.valueOf(49 + random.nextInt(1950)).setScale(2, RoundingMode.UNNECESSARY);
+                Product product = new Product(kind + " " + (p + 1) + " by " + merchant.getName(), kind, price,
+                        merchant.getId());
+                // grams; squared uniform keeps most items under the 400 g two-wheeler limit
+                double r = random.nextDouble();
+                product.setWeight((double) Math.round(50 + r * r * 4950));
+                products.add(product);
+            }
+        }
+        products = productRepository.saveAll(products);
+        for (int i = 0; i < products.size(); i++) {
+            cityList.get((i / productsPerMerchant) % cityList.size()).products.add(products.get(i));
+        }
+        return products;
+    }
+
+    // 🛵 agents round-robin over the cities, all AVAILABLE, with the configured two-wheeler share
+    private List<DeliveryAgent> generateAgents(List<City> cityList, Random random) {
+        List<DeliveryAgent> agents = new ArrayList<>(agentCount);
+        for (int a = 0; a < agentCount; a++) {
+            City city = cityList.get(a % cityList.size());
+            double[] point = city.pointNear(random, 1.0);
+            DeliveryAgent agent = new DeliveryAgent(fullName(random), phone(random));
+            agent.setStatus(DeliveryAgent.AgentStatus.AVAILABLE);
+            agent.setVehicleCapacity(random.nextDouble() < twoWheelerShare
+                    ? VehicleCapacity.TWO_WHEELER : VehicleCapacity.FOUR_WHEELER);
+            agent.setLatitude(point[0]);
+            agent.setLongitude(point[1]);
+            agent.setPinCode(city.pinCode(random));
+            agent.setAddress(street(random));
+            agents.add(agent);
+        }
+        agents = agentRepository.saveAll(agents);
+        for (int a = 0; a < agents.size(); a++) {
+            cityList.get(a % cityList.size()).agents.add(agents.get(a));
+        }
+        return agents;
+    }
+
+    // 👥 customers via JDBC batches with explicit ids (customers_seq is aligned afterwards)
+    private Customers generateCustomers(List<City> cityList, Random random) {
+        Long maxBefore = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM customers", Long.class);
+        Customers customers = new Customers(customerCount);
+        for (int c = 0; c < customerCount; c++) {
+            City city = cityList.get(random.nextInt(cityList.size()));
+            double[] point = city.pointNear(random, 1.0);
+            customers.city[c] = city.index;
+            customers.name[c] = fullName(random);
+            customers.address[c] = (1 + random.nextInt(400)) + ", " + street(random) + ", " + city.label();
+            customers.latitude[c] = point[0];
+            customers.longitude[c] = point[1];
+            customers.id[c] = maxBefore + c + 1;
+        }
+
+        for (int from = 0; from < customerCount; from += chunkSize) {
+            int offset = from;
+            int size = Math.min(chunkSize, customerCount - from);
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_CUSTOMER,
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            int c = offset + i;
+                            long n = customers.id[c];
+                            ps.setLong(1, n);
+                            ps.setString(2, customers.name[c]);
+                            ps.setString(3, "customer" + n + "@example.com");
+                            ps.setString(4, "+91" + (7000000000L + n)); // unique, so phone matching in bulk intake stays exact
+                            ps.setString(5, customers.address[c]);
+                            ps.setString(6, cityList.get(customers.city[c]).pinCode(c));
+                            ps.setDouble(7, customers.latitude[c]);
+                            ps.setDouble(8, customers.longitude[c]);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return size;
+                        }
+                    }));
+        }
+        return customers;
+    }
+
+    // 📦 order history: delivered/cancelled over datagen.history-days, plus a fresh PENDING_ASSIGNMENT tail
+    private long generateOrders(List<City> cityList, Customers customers, List<Product> products,
+            List<Warehouse> warehouses, List<DeliveryAgent> agents, Random random) {
+        if (customers.size() == 0 || products.isEmpty() || warehouses.isEmpty() || agents.isEmpty()) {
+            log.warn("⚠️ Synthetic orders skipped: customers, products, warehouses and agents are all required");
+            return 0;
+        }
+        // explicit ids above anything live or archived; the sequence is realigned afterwards
+        Long maxId = jdbcTemplate.queryForObject("SELECT GREATEST((SELECT COALESCE(MAX(id), 0) FROM customer_orders), "
+                + "(SELECT COALESCE(MAX(id), 0) FROM customer_orders_archive))", Long.class);
+        long firstId = maxId + 1;
+        LocalDateTime now = LocalDateTime.now();
+        int hourWeightTotal = 0;
+        for (int w : HOUR_WEIGHTS) {
+            hourWeightTotal += w;
+        }
+        int hourTotal = hourWeightTotal;
+        int historical = Math.max(0, orderCount - pendingOrders);
+
+        for (int from = 0; from < orderCount; from += chunkSize) {
+            int offset = from;
+            int size = Math.min(chunkSize, orderCount - from);
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_ORDER,
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            int n = offset + i;
+                            // squared uniform: a minority of customers places most of the orders
+                            double skew = random.nextDouble();
+                            int c = (int) (skew * skew * customers.size());
+                            City city = cityList.get(customers.city[c]);
+                            List<Product> cityProducts = city.products.isEmpty() ? products : city.products;
+                            Product product = cityProducts.get(random.nextInt(cityProducts.size()));
+                            Warehouse warehouse = city.nearestWarehouse(customers.latitude[c], customers.longitude[c],
+                                    warehouses);
+                            int quantity = 1 + (random.nextInt(10) < 8 ? 0 : random.nextInt(3));
+
+                            ps.setLong(1, firstId + n);
+                            ps.setLong(2, customers.id[c]);
+                            ps.setString(3, customers.name[c]);
+                            ps.setString(4, customers.address[c]);
+                            ps.setLong(5, product.getId());
+                            ps.setBigDecimal(6, product.getPrice().multiply(BigDecimal.valueOf(quantity)));
+                            ps.setInt(7, quantity);
+
+                            LocalDateTime created;
+                            if (n < historical) {
+                                created = now.minusDays(1 + random.nextInt(Math.max(1, historyDays)))
+                                        .withHour(hour(random, hourTotal))
+                                        .withMinute(random.nextInt(60))
+                                        .withSecond(random.nextInt(60));
+                                if (random.nextDouble() < cancelRate) {
+                                    ps.setString(8, OrderStatus.CANCELLED.name());
+                                    ps.setNull(9, Types.BIGINT);
+                                    ps.setTimestamp(10, Timestamp.valueOf(created));
+                                    ps.setTimestamp(11, Timestamp.valueOf(created.plusMinutes(1 + random.nextInt(15))));
+                                    ps.setNull(12, Types.TIMESTAMP);
+                                } else {
+                                    List<DeliveryAgent> cityAgents = city.agents.isEmpty() ? agents : city.agents;
+                                    LocalDateTime delivered = created.plusMinutes(15 + random.nextInt(90));
+                                    ps.setString(8, OrderStatus.DELIVERED.name());
+                                    ps.setLong(9, cityAgents.get(random.nextInt(cityAgents.size())).getId());
+                                    ps.setTimestamp(10, Timestamp.valueOf(created));
+                                    ps.setTimestamp(11, Timestamp.valueOf(delivered));
+                                    ps.setTimestamp(12, Timestamp.valueOf(delivered));
+                                }
+                            } else {
+                                created = now.minusSeconds(30 + random.nextInt(1800));
+                                ps.setString(8, OrderStatus.PENDING_ASSIGNMENT.name());
+                                ps.setNull(9, Types.BIGINT);
+                                ps.setTimestamp(10, Timestamp.valueOf(created));
+                                ps.setNull(11, Types.TIMESTAMP);
+                                ps.setNull(12, Types.TIMESTAMP);
+                            }
+                            ps.setLong(13, warehouse.getId());
+                            ps.setDouble(14, customers.latitude[c]);
+                            ps.setDouble(15, customers.longitude[c]);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return size;
+                        }
+                    }));
+            if ((from / chunkSize) % 20 == 19) {
+                log.info("🧪 ... {} / {} orders written", from + size, orderCount);
+            }
+        }
+        return orderCount;
+    }
+
+    private static int hour(Random random, int total) {
+        int pick = random.nextInt(total);
+        for (int h = 0; h < HOUR_WEIGHTS.length; h++) {
+            pick -= HOUR_WEIGHTS[h];
+            if (pick < 0) {
+                return h;
+            }
+        }
+        return HOUR_WEIGHTS.length - 1;
+    }
+
+    // "lat,lng,radiusKm;lat,lng,radiusKm;..."
+    static List<City> parseCities(String spec) {
+        List<City> result = new ArrayList<>();
+        for (String part : spec.split(";")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            String[] fields = part.trim().split(",");
+            if (fields.length != 3) {
+                throw new RuntimeException("Invalid datagen.cities entry '" + part + "', expected lat,lng,radiusKm");
+            }
+            result.add(new City(result.size(), Double.parseDouble(fields[0].trim()),
+                    Double.parseDouble(fields[1].trim()), Double.parseDouble(fields[2].trim())));
+        }
+        if (result.isEmpty()) {
+            throw new RuntimeException("datagen.cities must list at least one city");
+        }
+        return result;
+    }
+
+    private static String fullName(Random random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    private static String phone(Random random) {
+        return "+91" + (6000000000L + (long) (random.nextDouble() * 3999999999L));
+    }
+
+    private static String street(Random random) {
+        return STREETS[random.nextInt(STREETS.length)];
+    }
+
+    static class City {
+        private static final double KM_PER_DEGREE = 111.32;
+
+        final int index;
+        final double latitude;
+        final double longitude;
+        final double radiusKm;
+        final List<Warehouse> warehouses = new ArrayList<>();
+        final List<Product> products = new ArrayList<>();
+        final List<DeliveryAgent> agents = new ArrayList<>();
+
+        City(int index, double latitude, double longitude, double radiusKm) {
+            this.index = index;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radiusKm = radiusKm;
+        }
+
+        // gaussian around the centre (sigma = radius / 2), clamped to radius * spread
+        double[] pointNear(Random random, double spread) {
+            double limit = radiusKm * spread;
+            double distanceKm = Math.min(limit, Math.abs(random.nextGaussian()) * radiusKm / 2 * spread);
+            double bearing = random.nextDouble() * 2 * Math.PI;
+            double dLat = distanceKm * Math.cos(bearing) / KM_PER_DEGREE;
+            double dLng = distanceKm * Math.sin(bearing) / (KM_PER_DEGREE * Math.cos(Math.toRadians(latitude)));
+            return new double[] { latitude + dLat, longitude + dLng };
+        }
+
+        Warehouse nearestWarehouse(double lat, double lng, List<Warehouse> fallback) {
+            List<Warehouse> candidates = warehouses.isEmpty() ? fallback : warehouses;
+            Warehouse best = null;
+            double bestDistance = Double.MAX_VALUE;
+            double cosLat = Math.cos(Math.toRadians(lat));
+            for (Warehouse w : candidates) {
+                // equirectangular is enough to rank points inside one city
+                double dx = (w.getLongitude() - lng) * cosLat;
+                double dy = w.getLatitude() - lat;
+                double d = dx * dx + dy * dy;
+                if (d < bestDistance) {
+                    bestDistance = d;
+                    best = w;
+                }
+            }
+            return best;
+        }
+
+        // 6-digit PIN, first digit 1-9, stable per city prefix
+        String pinCode(Random random) {
+            return pinCode(random.nextInt(1000));
+        }
+
+        String pinCode(int seed) {
+            return String.valueOf((100 + (index * 37) % 900) * 1000 + Math.floorMod(seed, 1000));
+        }
+
+        String label() {
+            return "City " + (index + 1);
+        }
+    }
+
+    private static class Customers {
+        final long[] id;
+        final int[] city;
+        final String[] name;
+        final String[] address;
+        final double[] latitude;
+        final double[] longitude;
+
+        Customers(int count) {
+            id = new long[count];
+            city = new int[count];
+            name = new String[count];
+            address = new String[count];
+            latitude = new double[count];
+            longitude = new double[count];
+        }
+
+        int size() {
+            return id.length;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.qwqer.demo.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hit rates of the Hibernate second-level and query caches, and a way to drop them after
+ * rows were edited outside the application (e.g. through the H2 console).
+ */
+@RestController
+@RequestMapping("/api/cache")
+@Tag(name = "Cache", description = "Second-level cache statistics")
+@CrossOrigin(origins = "*")
+public class CacheController {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CacheController.class);
+
+    private final SessionFactory sessionFactory;
+
+    public CacheController(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Second-level and query cache statistics per region")
+    public Map<String, Object> getStats() {
+        Statistics stats = sessionFactory.getStatistics();
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : stats.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics r = stats.getCacheRegionStatistics(region);
+            if (r != null) {
+                regions.put(region, regionStats(r.getHitCount(), r.getMissCount(), r.getPutCount(),
+                        r.getElementCountInMemory()));
+            }
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("statisticsEnabled", stats.isStatisticsEnabled());
+        body.put("secondLevel", regionStats(stats.getSecondLevelCacheHitCount(),
+                stats.getSecondLevelCacheMissCount(), stats.getSecondLevelCachePutCount(), -1));
+        body.put("queryCache", regionStats(stats.getQueryCacheHitCount(),
+                stats.getQueryCacheMissCount(), stats.getQueryCachePutCount(), -1));
+        body.put("regions", regions);
+        return body;
+    }
+
+    @DeleteMapping
+    @Operation(summary = "Evict all second-level and query cache entries")
+    public ResponseEntity<Void> evictAll() {
+        sessionFactory.getCache().evictAllRegions();
+        log.info("🧹 Second-level and query caches evicted");
+        return ResponseEntity.noContent().build();
+    }
+
+    // elements < 0 means "not reported"
+    private static Map<String, Object> regionStats(long hits, long misses, long puts, long elements) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("hits", hits);
+        m.put("misses", misses);
+        m.put("puts", puts);
+        m.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        if (elements >= 0) {
+            m.put("elements", elements);
+        }
+        return m;
+    }
+}
@@ -0,0 +1,24 @@
+package com.qwqer.demo.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * ETag helpers for polled list endpoints (ETags come from CollectionVersions).
+ * Check first, before any query: on a match the handler returns null and Spring answers 304.
+ */
+final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    static boolean notModified(WebRequest request, String etag) {
+        return request.checkNotModified(etag);
+    }
+
+    // no-cache = browsers keep the body but revalidate with If-None-Match on every poll
+    static ResponseEntity.BodyBuilder ok(String etag) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache());
+    }
+}
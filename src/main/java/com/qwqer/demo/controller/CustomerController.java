@@ -2,6 +2,7 @@ package com.qwqer.demo.controller;
 
 import com.qwqer.demo.entity.Customer;
 import com.qwqer.demo.repository.CustomerRepository;
+import com.qwqer.demo.service.CollectionVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -9,6 +10,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,16 +18,29 @@ import java.util.Optional;
 @RestController
 @RequestMapping("/api/customers")
 @Tag(name = "Customers", description = "Customer management APIs")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = KeysetPage.NEXT_CURSOR_HEADER)
 public class CustomerController {
     
     @Autowired
     private CustomerRepository customerRepository;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
     
     @GetMapping
-    @Operation(summary = "Get all customers")
-    public List<Customer> getAllCustomers() {
-        return customerRepository.findAll();
+    @Operation(summary = "Get all customers (keyset paged, next page cursor in X-Next-Cursor)")
+    public ResponseEntity<List<Customer>> getAllCustomers(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest) {
+        String etag = collectionVersions.etag(CollectionVersions.Collection.CUSTOMERS);
+        if (ConditionalGet.notModified(webRequest, etag)) {
+            return null;
+        }
+        int pageLimit = KeysetPage.limit(limit);
+        List<Customer> rows = customerRepository.findByIdGreaterThanOrderByIdAsc(
+                KeysetPage.afterId(cursor), KeysetPage.probe(pageLimit));
+        return KeysetPage.respond(rows, pageLimit, Customer::getId, etag);
     }
     
     @GetMapping("/{id}")
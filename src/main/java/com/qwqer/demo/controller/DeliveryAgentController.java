@@ -2,6 +2,7 @@ package com.qwqer.demo.controller;
 
 import com.qwqer.demo.entity.DeliveryAgent;
 import com.qwqer.demo.repository.DeliveryAgentRepository;
+import com.qwqer.demo.service.CollectionVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -9,6 +10,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -21,11 +23,18 @@ public class DeliveryAgentController {
     
     @Autowired
     private DeliveryAgentRepository agentRepository;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
     
     @GetMapping
     @Operation(summary = "Get all delivery agents")
-    public List<DeliveryAgent> getAllAgents() {
-        return agentRepository.findAll();
+    public ResponseEntity<List<DeliveryAgent>> getAllAgents(WebRequest webRequest) {
+        String etag = collectionVersions.etag(CollectionVersions.Collection.AGENTS);
+        if (ConditionalGet.notModified(webRequest, etag)) {
+            return null;
+        }
+        return ConditionalGet.ok(etag).body(agentRepository.findAll());
     }
     
     @GetMapping("/{id}")
@@ -38,14 +47,23 @@ public class DeliveryAgentController {
     
     @GetMapping("/status/{status}")
     @Operation(summary = "Get agents by status")
-    public List<DeliveryAgent> getAgentsByStatus(@PathVariable DeliveryAgent.AgentStatus status) {
-        return agentRepository.findByStatus(status);
+    public ResponseEntity<List<DeliveryAgent>> getAgentsByStatus(@PathVariable DeliveryAgent.AgentStatus status,
+                                                                 WebRequest webRequest) {
+        String etag = collectionVersions.etag(CollectionVersions.Collection.AGENTS);
+        if (ConditionalGet.notModified(webRequest, etag)) {
+            return null;
+        }
+        return ConditionalGet.ok(etag).body(agentRepository.findByStatus(status));
     }
     
     @GetMapping("/available")
     @Operation(summary = "Get available delivery agents")
-    public List<DeliveryAgent> getAvailableAgents() {
-        return agentRepository.findByStatus(DeliveryAgent.AgentStatus.AVAILABLE);
+    public ResponseEntity<List<DeliveryAgent>> getAvailableAgents(WebRequest webRequest) {
+        String etag = collectionVersions.etag(CollectionVersions.Collection.AGENTS);
+        if (ConditionalGet.notModified(webRequest, etag)) {
+            return null;
+        }
+        return ConditionalGet.ok(etag).body(agentRepository.findByStatus(DeliveryAgent.AgentStatus.AVAILABLE));
     }
     
     @PostMapping
@@ -11,16 +11,24 @@ import com.qwqer.demo.repository.CustomerOrderRepository;
 import com.qwqer.demo.repository.DeliveryAgentRepository;
 import com.qwqer.demo.repository.ProductRepository;
 import com.qwqer.demo.repository.WarehouseRepository;
+import com.qwqer.demo.service.DispatchClaims;
+import com.qwqer.demo.service.DispatchMetrics;
+import com.qwqer.demo.service.OrderTransitionService;
+import com.qwqer.demo.service.PeriodicJobs;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
-import org.springframework.transaction.annotation.Transactional;
 
 @Controller
 public class DriverLocationController {
@@ -31,6 +39,11 @@ public class DriverLocationController {
     private final CustomerOrderRepository orderRepository;
     private final WarehouseRepository warehouseRepository;
     private final ProductRepository productRepository;
+    private final DispatchMetrics.Cycle cycleMetrics;
+    private final PeriodicJobs.Job job;
+    private final TransactionTemplate transactionTemplate;
+    private final DispatchClaims dispatchClaims;
+    private final OrderTransitionService transitionService;
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(DriverLocationController.class);
 
@@ -41,37 +54,61 @@ public class DriverLocationController {
     public DriverLocationController(SimpMessagingTemplate messagingTemplate,
             DeliveryAgentRepository agentRepository,
             CustomerOrderRepository orderRepository, WarehouseRepository warehouseRepository,
-            ProductRepository productRepository) {
+            ProductRepository productRepository, DispatchMetrics dispatchMetrics, PeriodicJobs periodicJobs,
+            @Qualifier("dispatchWorkers") ThreadPoolTaskExecutor dispatchWorkers,
+            PlatformTransactionManager transactionManager, DispatchClaims dispatchClaims,
+            OrderTransitionService transitionService) {
         this.messagingTemplate = messagingTemplate;
         this.agentRepository = agentRepository;
         this.orderRepository = orderRepository;
         this.warehouseRepository = warehouseRepository;
         this.productRepository = productRepository;
+        this.cycleMetrics = dispatchMetrics.cycle("driver-location");
+        this.job = periodicJobs.onWorkers("driver-location-assign", 10000, dispatchWorkers);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dispatchClaims = dispatchClaims;
+        this.transitionService = transitionService;
     }
 
-    @Scheduled(fixedRate = 10000)
-    @Transactional
+    @Value("${dispatch.auto-assign.enabled:true}")
+    private boolean enabled = true;
+
+    // the tick only hands the cycle to a dispatch worker, which runs it in one transaction
+    @Scheduled(fixedRate = 10000, scheduler = "dispatchScheduler")
     public void autoAssignDrivers() {
-        List<CustomerOrder> pendingOrders = orderRepository.findByStatus(OrderStatus.PENDING_ASSIGNMENT);
-        if (pendingOrders.isEmpty()) {
-            log.debug("⏸ No pending orders found — skipping this cycle.");
+        if (!enabled) {
             return;
         }
+        job.tick(() -> {
+            long start = System.nanoTime();
+            int assigned = 0;
+            try {
+                Integer result = transactionTemplate.execute(status -> assignPending());
+                assigned = result != null ? result : 0;
+            } finally {
+                cycleMetrics.record(start, assigned);
+            }
+        });
+    }
 
+    // returns how many orders got a driver; runs in one transaction that holds the claim on its batch
+    private int assignPending() {
+        dispatchClaims.refreshBacklog();
         LocalDateTime now = LocalDateTime.now();
-        log.info("🕐 Checking {} pending orders for assignment...", pendingOrders.size());
-
-        // ✅ Only process orders older than 30 seconds
-        List<CustomerOrder> eligibleOrders = pendingOrders.stream()
-                .filter(o -> Duration.between(o.getCreatedAt(), now).getSeconds() >= 30)
-                .collect(Collectors.toList());
-
+        // ✅ Only orders older than 30 seconds, and only those no other cycle has claimed
+        List<CustomerOrder> eligibleOrders = dispatchClaims.claimPending(now.minusSeconds(30));
         if (eligibleOrders.isEmpty()) {
-            log.info("⏱ All pending orders are too new (<30s). Waiting for next cycle.");
-            return;
+            log.debug("⏸ No claimable pending orders — skipping this cycle.");
+            return 0;
         }
+        log.info("🕐 Checking {} claimed pending orders for assignment...", eligibleOrders.size());
+
+        int assigned = 0;
+        Set<Long> done = new HashSet<>();
 
         for (CustomerOrder order : eligibleOrders) {
+            if (done.contains(order.getId()))
+                continue;
             final Warehouse warehouse = (order.getWarehouseId() != null)
                     ? warehouseRepository.findById(order.getWarehouseId()).orElse(null)
                     : null;
@@ -91,6 +128,7 @@ public class DriverLocationController {
             // 🧭 Find other nearby orders (within 3 km + within ±30s)
             List<CustomerOrder> nearbyOrders = eligibleOrders.stream()
                     .filter(o -> !o.equals(order))
+                    .filter(o -> !done.contains(o.getId()))
                     .filter(o -> o.getLatitude() != null && o.getLongitude() != null)
                     .filter(o -> Duration.between(o.getCreatedAt(), order.getCreatedAt()).abs().getSeconds() <= 30)
                     .filter(o -> distance(order.getLatitude(), order.getLongitude(),
@@ -101,7 +139,8 @@ public class DriverLocationController {
                                 || (requiredCapacity == VehicleCapacity.FOUR_WHEELER && w >= 0.4);
                     })
                     .collect(Collectors.toList());
-            nearbyOrders.add(order);
+            nearbyOrders.add(0, order);
+            List<Long> orderIds = nearbyOrders.stream().map(CustomerOrder::getId).toList();
 
             double totalWeightKg = calculateTotalWeight(nearbyOrders);
             log.info("📍 Order {} → {} nearby orders found (total {} kg)",
@@ -131,15 +170,13 @@ public class DriverLocationController {
 
                 if (firstAssignedOrder != null &&
                         Duration.between(firstAssignedOrder.getCreatedAt(), now).getSeconds() >= 30) {
-                    for (CustomerOrder o : nearbyOrders) {
-                        o.setDeliveryAgentId(reusableDriver.getId());
-                        o.setStatus(OrderStatus.ASSIGNED);
-                        orderRepository.save(o);
-                    }
+                    int reused = transitionService.assignGroup(orderIds, reusableDriver.getId(), false);
+                    done.addAll(orderIds);
+                    assigned += reused;
                     log.info("♻️ Reused driver '{}' [{}] for nearby orders {} | Vehicle={} | TotalWeight={} kg",
                             reusableDriver.getName(),
                             reusableDriver.getStatus(),
-                            nearbyOrders.stream().map(CustomerOrder::getId).toList(),
+                            orderIds,
                             reusableDriver.getVehicleCapacity(),
                             String.format("%.2f", totalWeightKg));
                     continue;
@@ -159,34 +196,35 @@ public class DriverLocationController {
                 continue;
             }
 
-            DeliveryAgent nearest = matchingAgents.stream()
-                    .min(Comparator.comparingDouble(a -> distance(a.getLatitude(), a.getLongitude(),
-                            warehouse.getLatitude(), warehouse.getLongitude())))
-                    .orElse(null);
+            matchingAgents.sort(Comparator.comparingDouble(a -> distance(a.getLatitude(), a.getLongitude(),
+                    warehouse.getLatitude(), warehouse.getLongitude())));
+
+            // Book the nearest driver still free (another cycle may have taken one meanwhile) for all grouped orders
+            DeliveryAgent nearest = null;
+            int groupAssigned = 0;
+            for (DeliveryAgent candidate : matchingAgents) {
+                groupAssigned = transitionService.assignGroup(orderIds, candidate.getId(), true);
+                if (groupAssigned > 0) {
+                    nearest = candidate;
+                    break;
+                }
+            }
 
             if (nearest == null)
                 continue;
 
-            // Assign driver to all grouped orders
-            for (CustomerOrder o : nearbyOrders) {
-                o.setDeliveryAgentId(nearest.getId());
-                o.setStatus(OrderStatus.ASSIGNED);
-                orderRepository.save(o);
-            }
-
-            nearest.setStatus(AgentStatus.ASSIGNED);
-            nearest.setAssignedOrderId(order.getId());
-            agentRepository.save(nearest);
+            done.addAll(orderIds);
+            assigned += groupAssigned;
 
-            log.info("✅ Assigned NEW driver '{}' [{}] to orders {} | Vehicle={} | TotalWeight={} kg | Dist={} km",
+            log.info("✅ Assigned NEW driver '{}' to orders {} | Vehicle={} | TotalWeight={} kg | Dist={} km",
                     nearest.getName(),
-                    nearest.getStatus(),
-                    nearbyOrders.stream().map(CustomerOrder::getId).toList(),
+                    orderIds,
                     nearest.getVehicleCapacity(),
                     String.format("%.2f", totalWeightKg),
                     String.format("%.2f", distance(nearest.getLatitude(), nearest.getLongitude(),
                             warehouse.getLatitude(), warehouse.getLongitude())));
         }
+        return assigned;
     }
 
     private double calculateOrderWeight(CustomerOrder o) {
@@ -0,0 +1,76 @@
+package com.qwqer.demo.controller;
+
+import com.qwqer.demo.dto.OrderEvent;
+import com.qwqer.demo.service.OrderEventJournal;
+import com.qwqer.demo.service.OrderEventProjection;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read side of the order event journal: a long-poll tail for consumers that keep their own
+ * position (pass the returned {@code next} back as {@code after}), and a full replay into an
+ * in-memory status projection.
+ */
+@RestController
+@RequestMapping("/api/journal")
+@Tag(name = "Journal", description = "Append-only order and agent event log")
+@CrossOrigin(origins = "*")
+public class JournalController {
+
+    private static final int MAX_LIMIT = 10_000;
+    private static final long MAX_WAIT_MS = 30_000;
+
+    private final OrderEventJournal journal;
+
+    public JournalController(OrderEventJournal journal) {
+        this.journal = journal;
+    }
+
+    @GetMapping("/events")
+    @Operation(summary = "Events after a sequence number, waiting up to waitMs for new ones")
+    public Map<String, Object> tail(@RequestParam(defaultValue = "0") long after,
+                                    @RequestParam(defaultValue = "1000") int limit,
+                                    @RequestParam(defaultValue = "0") long waitMs) throws InterruptedException {
+        if (waitMs > 0) {
+            journal.awaitAfter(after, Math.min(waitMs, MAX_WAIT_MS));
+        }
+        List<OrderEvent> events = new ArrayList<>();
+        OrderEventJournal.Cursor cursor = journal.cursor(after + 1);
+        cursor.poll(Math.max(1, Math.min(limit, MAX_LIMIT)), events::add);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("events", events);
+        body.put("next", events.isEmpty() ? after : events.get(events.size() - 1).getSequence());
+        body.put("head", journal.lastSequence());
+        return body;
+    }
+
+    @GetMapping("/replay")
+    @Operation(summary = "Replay the journal into order/agent status counts, optionally as of a point in time")
+    public Map<String, Object> replay(@RequestParam(required = false)
+                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime until) {
+        long untilMs = until != null ? until.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : Long.MAX_VALUE;
+        OrderEventProjection projection = new OrderEventProjection(untilMs);
+        long start = System.nanoTime();
+        long read = journal.replay(1, projection);
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("eventsRead", read);
+        body.put("eventsApplied", projection.getApplied());
+        body.put("elapsedMs", elapsedNanos / 1_000_000);
+        body.put("eventsPerSecond", read * 1_000_000_000L / elapsedNanos);
+        body.put("orders", projection.orderCounts());
+        body.put("agents", projection.agentCounts());
+        return body;
+    }
+}
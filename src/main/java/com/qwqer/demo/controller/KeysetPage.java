@@ -0,0 +1,105 @@
+package com.qwqer.demo.controller;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset (cursor) paging helpers for list endpoints.
+ *
+ * Rows are returned in ascending id order. The body stays a plain JSON array; when more rows
+ * exist the opaque cursor for the next page is sent in the X-Next-Cursor header.
+ */
+public final class KeysetPage {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_LIMIT = 200;
+    public static final int MAX_LIMIT = 1000;
+
+    private static final String PREFIX = "id:";
+    private static final String TIME_PREFIX = "t:";
+
+    private KeysetPage() {
+    }
+
+    // id to continue after; 0 for the first page
+    public static long afterId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                throw new IllegalArgumentException(decoded);
+            }
+            return Long.parseLong(decoded.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // (createdAt, id) position for lists ordered newest first; null for the first page
+    public static TimeAndId afterTimeAndId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            if (!decoded.startsWith(TIME_PREFIX) || separator < 0) {
+                throw new IllegalArgumentException(decoded);
+            }
+            return new TimeAndId(LocalDateTime.parse(decoded.substring(TIME_PREFIX.length(), separator)),
+                    Long.parseLong(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    public static String encode(LocalDateTime createdAt, long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((TIME_PREFIX + createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public record TimeAndId(LocalDateTime createdAt, long id) {
+    }
+
+    public static int limit(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (requested < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
+        }
+        return Math.min(requested, MAX_LIMIT);
+    }
+
+    // ask for one extra row so we know whether a next page exists without a count query
+    public static Pageable probe(int limit) {
+        return PageRequest.of(0, limit + 1);
+    }
+
+    public static <T> ResponseEntity<List<T>> respond(List<T> rows, int limit, Function<T, Long> idOf, String etag) {
+        if (rows.size() <= limit) {
+            return ConditionalGet.ok(etag).body(rows);
+        }
+        List<T> page = rows.subList(0, limit);
+        return ConditionalGet.ok(etag)
+                .header(NEXT_CURSOR_HEADER, encode(idOf.apply(page.get(limit - 1))))
+                .body(page);
+    }
+}
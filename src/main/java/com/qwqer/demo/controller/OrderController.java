@@ -1,26 +1,42 @@
 package com.qwqer.demo.controller;
 
+import com.qwqer.demo.dto.BulkOrderResponse;
 import com.qwqer.demo.dto.CreateOrderRequest;
 import com.qwqer.demo.dto.CustomerOrderRequest;
 import com.qwqer.demo.dto.MerchantOrderRequest;
 import com.qwqer.demo.dto.OrderHistoryResponse;
 import com.qwqer.demo.entity.CustomerOrder;
 import com.qwqer.demo.entity.DeliveryAgent;
-import com.qwqer.demo.entity.DeliveryAgent.AgentStatus;
 import com.qwqer.demo.enums.OrderStatus;
 import com.qwqer.demo.repository.CustomerOrderRepository;
+import com.qwqer.demo.repository.OrderDetailsViewRepository;
+import com.qwqer.demo.service.BulkOrderService;
+import com.qwqer.demo.service.CollectionVersions;
+import com.qwqer.demo.service.OrderExportService;
 import com.qwqer.demo.service.OrderService;
+import com.qwqer.demo.service.OrderStatusStream;
+import com.qwqer.demo.service.OrderTransitionService;
 import com.qwqer.demo.service.OrderWorkflowService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -29,107 +45,120 @@ import java.util.Optional;
 @RestController
 @RequestMapping("/api/orders")
 @Tag(name = "Orders", description = "Customer order management APIs")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = { KeysetPage.NEXT_CURSOR_HEADER, "X-Has-Next" })
 public class OrderController {
     @Autowired
     private com.qwqer.demo.repository.DeliveryAgentRepository deliveryAgentRepository;
 
     @Autowired
-    private com.qwqer.demo.repository.CustomerRepository customerRepository;
-
-    @Autowired
-    private com.qwqer.demo.repository.MerchantRepository merchantRepository;
-
-    @Autowired
-    private com.qwqer.demo.repository.ProductRepository productRepository;
-
-    @Autowired
-    private com.qwqer.demo.repository.DeliveryAgentRepository agentRepository;
+    private OrderTransitionService transitionService;
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OrderController.class);
 
+    private static final int MAX_DETAILS_PAGE_SIZE = 1000;
+    private static final int MAX_HISTORY_PAGE_SIZE = 500;
+
     @GetMapping("/details")
     @Operation(summary = "Get all orders with detailed info")
-    public ResponseEntity<List<com.qwqer.demo.dto.OrderDetailsResponse>> getAllOrderDetails() {
-        List<CustomerOrder> orders = orderRepository.findAll();
-        List<com.qwqer.demo.dto.OrderDetailsResponse> details = orders.stream().map(order -> {
-            final String[] customerName = { null };
-            final String[] customerPhone = { null };
-            final String[] customerAddress = { null };
-            final String[] deliveryAgentName = { null };
-            final String[] deliveryAgentPhone = { null };
-            final String[] deliveryAgentAddress = { null };
-            final String[] merchantName = { null };
-            final String[] merchantPhone = { null };
-            final String[] merchantAddress = { null };
-            final String[] productName = { null };
-            final Double[] productPrice = { null };
-            // Fetch customer
-            if (order.getCustomerId() != null) {
-                customerRepository.findById(order.getCustomerId()).ifPresent(c -> {
-                    customerName[0] = c.getName();
-                    customerPhone[0] = c.getPhone();
-                    customerAddress[0] = c.getAddress();
-                });
-            }
-            // Fetch delivery agent
-            if (order.getDeliveryAgentId() != null) {
-                deliveryAgentRepository.findById(order.getDeliveryAgentId()).ifPresent(a -> {
-                    deliveryAgentName[0] = a.getName();
-                    deliveryAgentPhone[0] = a.getPhone();
-                    deliveryAgentAddress[0] = null; // Add address if available in DeliveryAgent entity
-                });
-            }
-            // Fetch product and merchant
-            if (order.getProductId() != null) {
-                productRepository.findById(order.getProductId()).ifPresent(p -> {
-                    productName[0] = p.getName();
-                    if (p.getPrice() != null)
-                        productPrice[0] = p.getPrice().doubleValue();
-                    if (p.getMerchantId() != null) {
-                        merchantRepository.findById(p.getMerchantId()).ifPresent(m -> {
-                            merchantName[0] = m.getName();
-                            merchantPhone[0] = m.getPhone();
-                            merchantAddress[0] = null; // Add address if available in Merchant entity
-                        });
-                    }
-                });
-            }
-            String createdAt = order.getCreatedAt() != null ? order.getCreatedAt().toString() : null;
-            return new com.qwqer.demo.dto.OrderDetailsResponse(
-                    order.getId(),
-                    order.getStatus(),
-                    customerName[0],
-                    customerPhone[0],
-                    customerAddress[0],
-                    deliveryAgentName[0],
-                    deliveryAgentPhone[0],
-                    deliveryAgentAddress[0],
-                    merchantName[0],
-                    merchantPhone[0],
-                    merchantAddress[0],
-                    productName[0],
-                    productPrice[0],
-                    createdAt,
-                    order.getStatus() != null ? order.getStatus().name() : null,
-                    order.getOtp());
-        }).toList();
-        return ResponseEntity.ok(details);
+    public ResponseEntity<List<com.qwqer.demo.dto.OrderDetailsResponse>> getAllOrderDetails(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(required = false) @Parameter(description = "Filter by order status") OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            WebRequest webRequest) {
+        if (page < 0 || size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        String etag = collectionVersions.etag(CollectionVersions.Collection.ORDERS);
+        if (ConditionalGet.notModified(webRequest, etag)) {
+            return null;
+        }
+        // Single-table read of the materialized details view; fetches size + 1 rows to know if there is a next page
+        Slice<com.qwqer.demo.dto.OrderDetailsResponse> details = orderDetailsViewRepository.findDetails(
+                status, startDate, endDate, PageRequest.of(page, Math.min(size, MAX_DETAILS_PAGE_SIZE)));
+        return ConditionalGet.ok(etag)
+                .header("X-Has-Next", String.valueOf(details.hasNext()))
+                .body(details.getContent());
     }
 
     @Autowired
     private CustomerOrderRepository orderRepository;
 
+    @Autowired
+    private CollectionVersions collectionVersions;
+
     @Autowired
     private OrderWorkflowService workflowService;
 
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private OrderDetailsViewRepository orderDetailsViewRepository;
+
+    @Autowired
+    private BulkOrderService bulkOrderService;
+
+    @Autowired
+    private OrderStatusStream orderStatusStream;
+
+    @Value("${orders.bulk.max-items:5000}")
+    private int maxBulkOrders;
+
     @GetMapping
-    @Operation(summary = "Get all orders")
-    public List<CustomerOrder> getAllOrders() {
-        return orderRepository.findAll();
+    @Operation(summary = "Get all orders (keyset paged, next page cursor in X-Next-Cursor)")
+    public ResponseEntity<List<CustomerOrder>> getAllOrders(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest) {
+        String etag = collectionVersions.etag(CollectionVersions.Collection.ORDERS);
+        if (ConditionalGet.notModified(webRequest, etag)) {
+            return null;
+        }
+        int pageLimit = KeysetPage.limit(limit);
+        List<CustomerOrder> rows = orderRepository.findByIdGreaterThanOrderByIdAsc(
+                KeysetPage.afterId(cursor), KeysetPage.probe(pageLimit));
+        return KeysetPage.respond(rows, pageLimit, CustomerOrder::getId, etag);
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Stream all matching orders as NDJSON (default) or CSV")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "ndjson") @Parameter(description = "ndjson or csv") String format,
+            @RequestParam(required = false) @Parameter(description = "Filter by order status") OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        OrderExportService.Format exportFormat;
+        try {
+            exportFormat = OrderExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean csv = exportFormat == OrderExportService.Format.CSV;
+        StreamingResponseBody body = out -> orderExportService.export(exportFormat, status, startDate, endDate, out);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Server-sent events for order status changes, optionally for one customer and/or merchant")
+    public SseEmitter streamOrderStatus(
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false) Long merchantId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(required = false) @Parameter(description = "Resume after this event id (alternative to the Last-Event-ID header)") String lastEventId) {
+        if (!orderStatusStream.isEnabled()) {
+            // the feed only covers one instance's commits, see OrderStatusStream
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Order status stream is disabled");
+        }
+        return orderStatusStream.subscribe(customerId, merchantId,
+                lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
     }
 
     @GetMapping("/healthcheck")
@@ -147,9 +176,20 @@ public class OrderController {
     }
 
     @GetMapping("/status/{status}")
-    @Operation(summary = "Get orders by status")
-    public List<CustomerOrder> getOrdersByStatus(@PathVariable OrderStatus status) {
-        return orderRepository.findByStatus(status);
+    @Operation(summary = "Get orders by status (keyset paged, next page cursor in X-Next-Cursor)")
+    public ResponseEntity<List<CustomerOrder>> getOrdersByStatus(
+            @PathVariable OrderStatus status,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest) {
+        String etag = collectionVersions.etag(CollectionVersions.Collection.ORDERS);
+        if (ConditionalGet.notModified(webRequest, etag)) {
+            return null;
+        }
+        int pageLimit = KeysetPage.limit(limit);
+        List<CustomerOrder> rows = orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                status, KeysetPage.afterId(cursor), KeysetPage.probe(pageLimit));
+        return KeysetPage.respond(rows, pageLimit, CustomerOrder::getId, etag);
     }
 
     @GetMapping("/product/{productId}")
@@ -194,12 +234,36 @@ public class OrderController {
         }
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "Merchant pushes many orders at once; returns a result per item")
+    public ResponseEntity<BulkOrderResponse> placeOrdersInBulk(@RequestBody List<MerchantOrderRequest> requests) {
+        if (requests == null || requests.isEmpty() || requests.size() > maxBulkOrders) {
+            return ResponseEntity.badRequest().build();
+        }
+        BulkOrderResponse response = bulkOrderService.placeOrders(requests);
+        return ResponseEntity.status(response.getCreated() > 0 ? HttpStatus.CREATED : HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(response);
+    }
+
     // New customer order history endpoints
     @GetMapping("/customer/{customerId}/history")
-    @Operation(summary = "Get complete order history for a customer")
-    public ResponseEntity<OrderHistoryResponse> getCustomerOrderHistory(@PathVariable Long customerId) {
+    @Operation(summary = "Get order history for a customer: status counts plus one page of orders, newest first")
+    public ResponseEntity<OrderHistoryResponse> getCustomerOrderHistory(
+            @PathVariable Long customerId,
+            @RequestParam(required = false) @Parameter(description = "nextCursor of the previous page") String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        if (size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        KeysetPage.TimeAndId after = KeysetPage.afterTimeAndId(cursor);
         try {
-            OrderHistoryResponse history = orderService.getCustomerOrderHistory(customerId);
+            OrderHistoryResponse history = orderService.getCustomerOrderHistory(customerId,
+                    after != null ? after.createdAt() : null, after != null ? after.id() : null,
+                    Math.min(size, MAX_HISTORY_PAGE_SIZE));
+            if (history.isHasNext()) {
+                CustomerOrder last = history.getOrders().get(history.getOrders().size() - 1);
+                history.setNextCursor(KeysetPage.encode(last.getCreatedAt(), last.getId()));
+            }
             return ResponseEntity.ok(history);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
@@ -258,14 +322,15 @@ public class OrderController {
     }
 
     @PutMapping("/{id}")
-    @Operation(summary = "Update an order")
-    public ResponseEntity<CustomerOrder> updateOrder(@PathVariable Long id, @Valid @RequestBody CustomerOrder order) {
-        if (!orderRepository.existsById(id)) {
+    @Operation(summary = "Update an order's details (status and agent change only through the workflow endpoints)")
+    public ResponseEntity<?> updateOrder(@PathVariable Long id, @Valid @RequestBody CustomerOrder order) {
+        try {
+            return ResponseEntity.ok(orderService.updateOrderDetails(id, order));
+        } catch (OrderTransitionService.OrderNotFoundException e) {
             return ResponseEntity.notFound().build();
+        } catch (OrderTransitionService.IllegalTransitionException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
-        order.setId(id);
-        CustomerOrder updatedOrder = orderRepository.save(order);
-        return ResponseEntity.ok(updatedOrder);
     }
 
     @DeleteMapping("/{id}")
@@ -336,60 +401,26 @@ public class OrderController {
 
     @PutMapping("/{orderId}/pickup")
     public ResponseEntity<?> markOrderPickedUp(@PathVariable Long orderId) {
-        Optional<CustomerOrder> orderOpt = orderRepository.findById(orderId);
-        if (orderOpt.isEmpty()) {
+        // 🚗 order and driver are updated together by one conditional UPDATE each
+        try {
+            return ResponseEntity.ok(transitionService.pickUp(orderId));
+        } catch (OrderTransitionService.OrderNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found");
+        } catch (OrderTransitionService.IllegalTransitionException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
-
-        CustomerOrder order = orderOpt.get();
-        if (order.getStatus() != OrderStatus.ASSIGNED) {
-            return ResponseEntity.badRequest().body("Order not in ASSIGNED state");
-        }
-
-        order.setStatus(OrderStatus.PICKED_UP);
-        orderRepository.save(order);
-
-        // 🚗 Update the driver status too
-        if (order.getDeliveryAgentId() != null) {
-            Optional<DeliveryAgent> agentOpt = agentRepository.findById(order.getDeliveryAgentId());
-            if (agentOpt.isPresent()) {
-                DeliveryAgent agent = agentOpt.get();
-                agent.setStatus(AgentStatus.ON_DELIVERY);
-                agentRepository.save(agent);
-            }
-        }
-
-        log.info("✅ Order {} marked as PICKED_UP", orderId);
-        return ResponseEntity.ok(order);
     }
 
-
     @PutMapping("/{orderId}/delivered")
-public ResponseEntity<?> markOrderDelivered(@PathVariable Long orderId) {
-    Optional<CustomerOrder> orderOpt = orderRepository.findById(orderId);
-    if (orderOpt.isEmpty()) {
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found");
-    }
-
-    CustomerOrder order = orderOpt.get();
-    if (order.getStatus() != OrderStatus.PICKED_UP) {
-        return ResponseEntity.badRequest().body("Order not in PICKED_UP state");
-    }
-
-    order.setStatus(OrderStatus.DELIVERED);
-    orderRepository.save(order);
-
-    // 🚗 free the driver
-    if (order.getDeliveryAgentId() != null) {
-        agentRepository.findById(order.getDeliveryAgentId()).ifPresent(agent -> {
-            agent.setAssignedOrderId(null);
-            agent.setStatus(AgentStatus.AVAILABLE);
-            agentRepository.save(agent);
-        });
+    public ResponseEntity<?> markOrderDelivered(@PathVariable Long orderId) {
+        // 🚗 driver-app hand-over of a PICKED_UP order; frees the driver once nothing else is on board
+        try {
+            return ResponseEntity.ok(transitionService.handOver(orderId));
+        } catch (OrderTransitionService.OrderNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found");
+        } catch (OrderTransitionService.IllegalTransitionException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
-    log.info("✅ Order {} marked as DELIVERED", orderId);
-    return ResponseEntity.ok(order);
-}
-
 }
\ No newline at end of file
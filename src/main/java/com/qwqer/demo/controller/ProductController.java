@@ -2,6 +2,7 @@ package com.qwqer.demo.controller;
 
 import com.qwqer.demo.entity.Product;
 import com.qwqer.demo.repository.ProductRepository;
+import com.qwqer.demo.service.CollectionVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -9,6 +10,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,16 +18,29 @@ import java.util.Optional;
 @RestController
 @RequestMapping("/api/products")
 @Tag(name = "Products", description = "Product management APIs")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = KeysetPage.NEXT_CURSOR_HEADER)
 public class ProductController {
     
     @Autowired
     private ProductRepository productRepository;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
     
     @GetMapping
-    @Operation(summary = "Get all products")
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    @Operation(summary = "Get all products (keyset paged, next page cursor in X-Next-Cursor)")
+    public ResponseEntity<List<Product>> getAllProducts(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest) {
+        String etag = collectionVersions.etag(CollectionVersions.Collection.PRODUCTS);
+        if (ConditionalGet.notModified(webRequest, etag)) {
+            return null;
+        }
+        int pageLimit = KeysetPage.limit(limit);
+        List<Product> rows = productRepository.findByIdGreaterThanOrderByIdAsc(
+                KeysetPage.afterId(cursor), KeysetPage.probe(pageLimit));
+        return KeysetPage.respond(rows, pageLimit, Product::getId, etag);
     }
     
     @GetMapping("/{id}")
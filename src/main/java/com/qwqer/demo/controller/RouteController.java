@@ -1,15 +1,29 @@
 package com.qwqer.demo.controller;
 
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
+
+import com.enums.VehicleCapacity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.qwqer.demo.dto.EncodedRouteResponse;
+import com.qwqer.demo.service.FallbackRouteModel;
+import com.qwqer.demo.service.OrsClient;
+import com.qwqer.demo.service.PolylineCodec;
+import com.qwqer.demo.service.RouteCache;
+import com.qwqer.demo.service.TourOptimizationService;
 
 @RestController
 @RequestMapping("/api/routes")
@@ -18,139 +32,245 @@ public class RouteController {
 
     private static final Logger log = LoggerFactory.getLogger(RouteController.class);
 
-    @Value("${ors.api.key}")
-    private String orsApiKey;
+    @Autowired
+    private OrsClient orsClient;
+
+    @Autowired
+    private TourOptimizationService tourOptimizationService;
+
+    @Autowired
+    private FallbackRouteModel fallbackRouteModel;
 
-    // ✅ Simple in-memory cache (safe for demo/small usage)
-    private final Map<String, String> routeCache = new ConcurrentHashMap<>();
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // ✅ In-memory cache, routes kept as encoded polylines
+    @Autowired
+    private RouteCache routeCache;
 
     @GetMapping("/driving")
-    public ResponseEntity<?> getDrivingRoute(
+    public CompletableFuture<ResponseEntity<?>> getDrivingRoute(
             @RequestParam double startLat,
             @RequestParam double startLng,
             @RequestParam double endLat,
-            @RequestParam double endLng) {
+            @RequestParam double endLng,
+            @RequestParam(defaultValue = "geojson") String format,
+            @RequestParam(defaultValue = "5") int precision,
+            @RequestParam(required = false) Double simplify,
+            @RequestParam(required = false) VehicleCapacity vehicle) {
 
-        String cacheKey = startLat + "," + startLng + "->" + endLat + "," + endLng;
+        if (!"geojson".equalsIgnoreCase(format) && !"polyline".equalsIgnoreCase(format)) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("error", "format must be 'geojson' or 'polyline'")));
+        }
+        if (precision != 5 && precision != 6) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("error", "precision must be 5 or 6")));
+        }
+
+        String cacheKey = RouteCache.key(startLat, startLng, endLat, endLng);
 
-        // 🧠 Step 1: Serve from cache if available
-        if (routeCache.containsKey(cacheKey)) {
+        // 🧠 Step 1: Serve from cache if available (fallback entries get another chance at ORS)
+        RouteCache.CachedRoute cached = routeCache.lookup(cacheKey);
+        if (cached != null && !cached.isFallback()) {
             log.info("✅ Using cached route for {}", cacheKey);
-            return ResponseEntity.ok(routeCache.get(cacheKey));
+            return CompletableFuture.completedFuture(render(cached, format, precision, simplify));
         }
 
-        try {
-            if (orsApiKey == null || orsApiKey.isBlank()) {
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(Map.of("error", "Missing ors.api.key in configuration"));
-            }
-
-            log.info("Fetching ORS route: start=({}, {}), end=({}, {})", startLat, startLng, endLat, endLng);
+        if (!orsClient.isConfigured()) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Missing ors.api.key in configuration")));
+        }
 
-            String url = String.format(
-                    "https://api.openrouteservice.org/v2/directions/driving-car?api_key=%s&start=%f,%f&end=%f,%f",
-                    orsApiKey, startLng, startLat, endLng, endLat);
+        log.info("Fetching ORS route: start=({}, {}), end=({}, {})", startLat, startLng, endLat, endLng);
 
-            RestTemplate restTemplate = new RestTemplate();
-            ResponseEntity<String> orsResponse = restTemplate.exchange(url, HttpMethod.GET, null, String.class);
+        return orsClient.getDirections(startLat, startLng, endLat, endLng)
+                .<ResponseEntity<?>>thenApply(body -> {
+                    // 🧩 Step 2: Cache successful response (compacted)
+                    RouteCache.CachedRoute route = routeCache.put(cacheKey, body);
+                    log.info("💾 Cached new route for {}", cacheKey);
+                    return render(route, format, precision, simplify);
+                })
+                .exceptionally(ex -> {
+                    Throwable cause = unwrap(ex);
+                    if (cause instanceof OrsClient.OrsUnavailableException) {
+                        log.warn("⚠️ ORS unavailable ({}), falling back to straight line route for {}",
+                                cause.getMessage(), cacheKey);
 
-            // 🧩 Step 2: Cache successful response
-            routeCache.put(cacheKey, orsResponse.getBody());
-            log.info("💾 Cached new route for {}", cacheKey);
+                        // 🪄 Step 3: Generate fallback route, tagged so a real route can replace it later
+                        String fallback = getFallbackStraightLine(startLat, startLng, endLat, endLng, vehicle);
+                        return render(routeCache.putFallback(cacheKey, fallback), format, precision, simplify);
+                    }
+                    if (cause instanceof OrsClient.OrsHttpException orsError) {
+                        log.error("ORS error: {} {}", orsError.getStatusCode(), orsError.getResponseBody());
+                        return ResponseEntity.status(orsError.getStatusCode())
+                                .body(Map.of("error", "ORS: " + orsError.getResponseBody()));
+                    }
+                    log.error("Route fetch failed", cause);
+                    return ResponseEntity.internalServerError()
+                            .body(Map.of("error", String.valueOf(cause.getMessage())));
+                });
+    }
 
-            return ResponseEntity.ok(orsResponse.getBody());
+    // 🗺️ expand a cached route into the requested wire format, optionally simplified (tolerance in meters)
+    private ResponseEntity<?> render(RouteCache.CachedRoute route, String format, int precision, Double simplify) {
+        List<double[]> points = route.decodePoints();
+        int[] kept = (simplify != null && simplify > 0) ? PolylineCodec.simplify(points, simplify) : null;
 
-        } catch (HttpClientErrorException ex) {
-            if (ex.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
-                log.warn("⚠️ ORS rate limit hit, falling back to straight line route for {}", cacheKey);
+        if ("geojson".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                    .body(routeCache.toGeoJson(route, points, kept));
+        }
 
-                // 🪄 Step 3: Generate fallback route
-                String fallback = getFallbackStraightLine(startLat, startLng, endLat, endLng);
-                routeCache.put(cacheKey, fallback);
-                return ResponseEntity.ok(fallback);
+        List<double[]> selected = points;
+        if (kept != null) {
+            selected = new ArrayList<>(kept.length);
+            for (int idx : kept) {
+                selected.add(points.get(idx));
             }
-
-            log.error("ORS error: {} {}", ex.getStatusCode(), ex.getResponseBodyAsString());
-            return ResponseEntity.status(ex.getStatusCode())
-                    .body(Map.of("error", "ORS: " + ex.getResponseBodyAsString()));
-
-        } catch (Exception e) {
-            log.error("Route fetch failed", e);
-            return ResponseEntity.internalServerError()
-                    .body(Map.of("error", e.getMessage()));
         }
+        return ResponseEntity.ok(new EncodedRouteResponse(
+                PolylineCodec.encode(selected, precision), precision, selected.size(),
+                route.getDistance(), route.getDuration(), route.isFallback()));
     }
 
-    // 🔄 fallback route = simple straight line geometry
-    private String getFallbackStraightLine(double startLat, double startLng, double endLat, double endLng) {
-        double distanceKm = calculateDistance(startLat, startLng, endLat, endLng);
-        return String.format("""
-                {
-                  "type": "FeatureCollection",
-                  "features": [
-                    {
-                      "type": "Feature",
-                      "geometry": {
-                        "type": "LineString",
-                        "coordinates": [
-                          [%f, %f],
-                          [%f, %f]
-                        ]
-                      },
-                      "properties": {
-                        "summary": { "distance": %f, "duration": %f }
-                      }
-                    }
-                  ]
-                }
-                """, startLng, startLat, endLng, endLat,
-                distanceKm * 1000, distanceKm / 0.25 * 60.0); // assume 15km/h speed
+    // 🔄 fallback route = straight line geometry, distance/duration from the vehicle-aware model
+    private String getFallbackStraightLine(double startLat, double startLng, double endLat, double endLng,
+            VehicleCapacity vehicle) {
+        FallbackRouteModel.Estimate estimate = fallbackRouteModel.estimate(
+                startLat, startLng, endLat, endLng, vehicle, LocalTime.now());
+        List<double[]> lngLat = List.of(new double[] { startLng, startLat }, new double[] { endLng, endLat });
+        return fallbackGeoJson(lngLat, estimate, vehicle).toString();
     }
 
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        double R = 6371;
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                        * Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        return R * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    private ObjectNode fallbackGeoJson(List<double[]> lngLat, FallbackRouteModel.Estimate estimate,
+            VehicleCapacity vehicle) {
+        ObjectNode geoJson = objectMapper.createObjectNode();
+        geoJson.put("type", "FeatureCollection");
+        ObjectNode feature = geoJson.putArray("features").addObject();
+        feature.put("type", "Feature");
+        ObjectNode geometry = feature.putObject("geometry");
+        geometry.put("type", "LineString");
+        ArrayNode coordinates = geometry.putArray("coordinates");
+        for (double[] p : lngLat) {
+            coordinates.addArray().add(p[0]).add(p[1]);
+        }
+        ObjectNode properties = feature.putObject("properties");
+        ObjectNode summary = properties.putObject("summary");
+        summary.put("distance", estimate.getDistanceMeters());
+        summary.put("duration", estimate.getDurationSeconds());
+        properties.put("fallback", true);
+        ObjectNode model = properties.putObject("fallbackModel");
+        model.put("vehicle", vehicle != null ? vehicle.name() : null);
+        model.put("speedKmh", estimate.getSpeedKmh());
+        model.put("circuity", estimate.getCircuity());
+        return geoJson;
     }
 
     @GetMapping("/optimized")
-    public ResponseEntity<?> getOptimizedRoute(@RequestParam String coords) {
+    public CompletableFuture<ResponseEntity<?>> getOptimizedRoute(
+            @RequestParam String coords,
+            @RequestParam(defaultValue = "false") boolean roundTrip,
+            @RequestParam(required = false) VehicleCapacity vehicle) {
         try {
-            // Example input: "76.9,15.14;76.93,15.14;76.95,15.15"
+            // Example input: "76.9,15.14;76.93,15.14;76.95,15.15" (lng,lat; first stop is the fixed start)
             String[] pairs = coords.split(";");
-            StringBuilder jsonCoords = new StringBuilder("[");
-            for (int i = 0; i < pairs.length; i++) {
-                String[] parts = pairs[i].split(",");
+            List<double[]> stops = new ArrayList<>();
+            for (String pair : pairs) {
+                String[] parts = pair.split(",");
                 if (parts.length != 2)
                     continue;
+                stops.add(new double[] { Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()) });
+            }
+            if (stops.size() < 2) {
+                return CompletableFuture.completedFuture(
+                        ResponseEntity.badRequest().body(Map.of("error", "At least two coordinates are required")));
+            }
+
+            // 🧮 Step 1: reorder the stops locally before asking ORS for the road geometry
+            double[] lats = new double[stops.size()];
+            double[] lngs = new double[stops.size()];
+            for (int i = 0; i < stops.size(); i++) {
+                lngs[i] = stops.get(i)[0];
+                lats[i] = stops.get(i)[1];
+            }
+            TourOptimizationService.Tour tour = tourOptimizationService.optimize(lats, lngs, roundTrip);
+            int[] order = tour.getOrderArray();
+
+            StringBuilder jsonCoords = new StringBuilder("[");
+            for (int i = 0; i < order.length; i++) {
                 if (i > 0)
                     jsonCoords.append(",");
-                jsonCoords.append("[").append(parts[0]).append(",").append(parts[1]).append("]");
+                jsonCoords.append("[").append(lngs[order[i]]).append(",").append(lats[order[i]]).append("]");
+            }
+            if (roundTrip) {
+                jsonCoords.append(",[").append(lngs[order[0]]).append(",").append(lats[order[0]]).append("]");
             }
             jsonCoords.append("]");
 
-            String url = "https://api.openrouteservice.org/v2/directions/driving-car/geojson";
+            String body = "{ \"coordinates\": " + jsonCoords.toString() + " }";
 
-            RestTemplate restTemplate = new RestTemplate();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("Authorization", orsApiKey);
+            return orsClient.postGeoJsonDirections(body)
+                    .<ResponseEntity<?>>thenApply(orsBody -> {
+                        try {
+                            // 📋 Step 2: attach the visit order and local estimate to the ORS GeoJSON
+                            ObjectNode geoJson = (ObjectNode) objectMapper.readTree(orsBody);
+                            attachOptimization(geoJson, tour, roundTrip);
+                            return ResponseEntity.ok(objectMapper.writeValueAsString(geoJson));
+                        } catch (JsonProcessingException e) {
+                            throw new CompletionException(e);
+                        }
+                    })
+                    .exceptionally(ex -> {
+                        Throwable cause = unwrap(ex);
+                        if (cause instanceof OrsClient.OrsUnavailableException) {
+                            log.warn("⚠️ ORS unavailable ({}), falling back to straight line tour", cause.getMessage());
+                            return ResponseEntity.ok(getFallbackTour(lats, lngs, tour, roundTrip, vehicle));
+                        }
+                        log.error("ORS call failed", cause);
+                        return ResponseEntity.internalServerError()
+                                .body(Map.of("error", "ORS call failed", "details", String.valueOf(cause.getMessage())));
+                    });
+        } catch (NumberFormatException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("error", "Invalid coords", "details", e.getMessage())));
+        }
+    }
 
-            String body = "{ \"coordinates\": " + jsonCoords.toString() + " }";
-            HttpEntity<String> entity = new HttpEntity<>(body, headers);
+    private void attachOptimization(ObjectNode geoJson, TourOptimizationService.Tour tour, boolean roundTrip) {
+        ObjectNode optimization = geoJson.putObject("optimization");
+        ArrayNode visitOrder = optimization.putArray("order");
+        for (int idx : tour.getOrderArray()) {
+            visitOrder.add(idx);
+        }
+        optimization.put("roundTrip", roundTrip);
+        optimization.put("distance", tour.getDistanceMeters());
+        optimization.put("duration", tour.getDurationSeconds());
+    }
 
-            ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
+    // 🔄 fallback tour = straight lines through the optimized stop order
+    private String getFallbackTour(double[] lats, double[] lngs, TourOptimizationService.Tour tour, boolean roundTrip,
+            VehicleCapacity vehicle) {
+        int[] order = tour.getOrderArray();
+        List<double[]> lngLat = new ArrayList<>(order.length + 1);
+        for (int idx : order) {
+            lngLat.add(new double[] { lngs[idx], lats[idx] });
+        }
+        if (roundTrip) {
+            lngLat.add(new double[] { lngs[order[0]], lats[order[0]] });
+        }
+        FallbackRouteModel.Estimate estimate = fallbackRouteModel.estimateFromStraightLine(
+                tour.getDistanceMeters(), vehicle, LocalTime.now());
+        ObjectNode geoJson = fallbackGeoJson(lngLat, estimate, vehicle);
+        attachOptimization(geoJson, tour, roundTrip);
+        return geoJson.toString();
+    }
 
-            return ResponseEntity.ok(response.getBody());
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.internalServerError()
-                    .body(Map.of("error", "ORS call failed", "details", e.getMessage()));
+    private static Throwable unwrap(Throwable ex) {
+        while (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
         }
+        return ex;
     }
 
 }
@@ -2,6 +2,7 @@ package com.qwqer.demo.controller;
 
 import com.qwqer.demo.entity.Warehouse;
 import com.qwqer.demo.repository.WarehouseRepository;
+import com.qwqer.demo.service.CollectionVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -9,6 +10,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,16 +18,29 @@ import java.util.Optional;
 @RestController
 @RequestMapping("/api/warehouses")
 @Tag(name = "Warehouses", description = "Warehouse management APIs")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = KeysetPage.NEXT_CURSOR_HEADER)
 public class WarehouseController {
 
     @Autowired
     private WarehouseRepository warehouseRepository;
 
+    @Autowired
+    private CollectionVersions collectionVersions;
+
     @GetMapping
-    @Operation(summary = "Get all warehouses")
-    public List<Warehouse> getAllWarehouses() {
-        return warehouseRepository.findAll();
+    @Operation(summary = "Get all warehouses (keyset paged, next page cursor in X-Next-Cursor)")
+    public ResponseEntity<List<Warehouse>> getAllWarehouses(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest) {
+        String etag = collectionVersions.etag(CollectionVersions.Collection.WAREHOUSES);
+        if (ConditionalGet.notModified(webRequest, etag)) {
+            return null;
+        }
+        int pageLimit = KeysetPage.limit(limit);
+        List<Warehouse> rows = warehouseRepository.findByIdGreaterThanOrderByIdAsc(
+                KeysetPage.afterId(cursor), KeysetPage.probe(pageLimit));
+        return KeysetPage.respond(rows, pageLimit, Warehouse::getId, etag);
     }
 
     @GetMapping("/{id}")
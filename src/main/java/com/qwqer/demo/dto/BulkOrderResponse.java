@@ -0,0 +1,66 @@
+package com.qwqer.demo.dto;
+
+import java.util.List;
+
+public class BulkOrderResponse {
+    private int received;
+    private int created;
+    private int rejected;
+    private List<ItemResult> results; // one per request item, in request order
+
+    public BulkOrderResponse() {}
+
+    public BulkOrderResponse(int received, int created, int rejected, List<ItemResult> results) {
+        this.received = received;
+        this.created = created;
+        this.rejected = rejected;
+        this.results = results;
+    }
+
+    // getters / setters
+    public int getReceived() { return received; }
+    public void setReceived(int received) { this.received = received; }
+    public int getCreated() { return created; }
+    public void setCreated(int created) { this.created = created; }
+    public int getRejected() { return rejected; }
+    public void setRejected(int rejected) { this.rejected = rejected; }
+    public List<ItemResult> getResults() { return results; }
+    public void setResults(List<ItemResult> results) { this.results = results; }
+
+    public static class ItemResult {
+        private int index;
+        private boolean created;
+        private Long orderId;
+        private Long customerId;
+        private String error;
+
+        public ItemResult() {}
+
+        public static ItemResult created(int index, Long orderId, Long customerId) {
+            ItemResult r = new ItemResult();
+            r.index = index;
+            r.created = true;
+            r.orderId = orderId;
+            r.customerId = customerId;
+            return r;
+        }
+
+        public static ItemResult rejected(int index, String error) {
+            ItemResult r = new ItemResult();
+            r.index = index;
+            r.error = error;
+            return r;
+        }
+
+        public int getIndex() { return index; }
+        public void setIndex(int index) { this.index = index; }
+        public boolean isCreated() { return created; }
+        public void setCreated(boolean created) { this.created = created; }
+        public Long getOrderId() { return orderId; }
+        public void setOrderId(Long orderId) { this.orderId = orderId; }
+        public Long getCustomerId() { return customerId; }
+        public void setCustomerId(Long customerId) { this.customerId = customerId; }
+        public String getError() { return error; }
+        public void setError(String error) { this.error = error; }
+    }
+}
@@ -0,0 +1,36 @@
+package com.qwqer.demo.dto;
+
+public class EncodedRouteResponse {
+    private String polyline; // Google encoded polyline (lat,lng order)
+    private int precision;
+    private int points;
+    private double distance; // meters
+    private double duration; // seconds
+    private boolean fallback; // true when ORS was unavailable and this is an estimate
+
+    public EncodedRouteResponse() {}
+
+    public EncodedRouteResponse(String polyline, int precision, int points, double distance, double duration,
+                                boolean fallback) {
+        this.polyline = polyline;
+        this.precision = precision;
+        this.points = points;
+        this.distance = distance;
+        this.duration = duration;
+        this.fallback = fallback;
+    }
+
+    // getters / setters
+    public String getPolyline() { return polyline; }
+    public void setPolyline(String polyline) { this.polyline = polyline; }
+    public int getPrecision() { return precision; }
+    public void setPrecision(int precision) { this.precision = precision; }
+    public int getPoints() { return points; }
+    public void setPoints(int points) { this.points = points; }
+    public double getDistance() { return distance; }
+    public void setDistance(double distance) { this.distance = distance; }
+    public double getDuration() { return duration; }
+    public void setDuration(double duration) { this.duration = duration; }
+    public boolean isFallback() { return fallback; }
+    public void setFallback(boolean fallback) { this.fallback = fallback; }
+}
@@ -7,6 +7,9 @@ import com.qwqer.demo.entity.Merchant;
 import com.qwqer.demo.entity.Product;
 import com.qwqer.demo.enums.OrderStatus;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
 public class OrderDetailsResponse {
     private String otp;
     private String productStatus;
@@ -48,6 +51,22 @@ public class OrderDetailsResponse {
         this.productStatus = productStatus;
         this.otp = otp;
     }
+
+    // Used by the JPQL constructor projection in OrderDetailsViewRepository.findDetails
+    public OrderDetailsResponse(Long orderId, OrderStatus status,
+                                String customerName, String customerPhone, String customerAddress,
+                                String deliveryAgentName, String deliveryAgentPhone,
+                                String merchantName, String merchantPhone,
+                                String productName, BigDecimal productPrice, LocalDateTime createdAt, String otp) {
+        this(orderId, status,
+                customerName, customerPhone, customerAddress,
+                deliveryAgentName, deliveryAgentPhone, null,
+                merchantName, merchantPhone, null,
+                productName, productPrice != null ? productPrice.doubleValue() : null,
+                createdAt != null ? createdAt.toString() : null,
+                status != null ? status.name() : null, otp);
+    }
+
     public String getOtp() { return otp; }
     public void setOtp(String otp) { this.otp = otp; }
     public String getProductStatus() { return productStatus; }
@@ -0,0 +1,42 @@
+package com.qwqer.demo.dto;
+
+/**
+ * One entry of the order/agent event journal (OrderEventJournal).
+ *
+ * sequence is global and gap-free; entitySequence counts the events of one order or agent.
+ * For ORDER events relatedId is the delivery agent, for AGENT events the order that moved it.
+ */
+public class OrderEvent {
+
+    public enum Entity { ORDER, AGENT }
+
+    private final long sequence;
+    private final long timestamp; // epoch millis
+    private final Entity entity;
+    private final long entityId;
+    private final long entitySequence;
+    private final Long relatedId;
+    private final String from;
+    private final String to;
+
+    public OrderEvent(long sequence, long timestamp, Entity entity, long entityId, long entitySequence,
+            Long relatedId, String from, String to) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.entity = entity;
+        this.entityId = entityId;
+        this.entitySequence = entitySequence;
+        this.relatedId = relatedId;
+        this.from = from;
+        this.to = to;
+    }
+
+    public long getSequence() { return sequence; }
+    public long getTimestamp() { return timestamp; }
+    public Entity getEntity() { return entity; }
+    public long getEntityId() { return entityId; }
+    public long getEntitySequence() { return entitySequence; }
+    public Long getRelatedId() { return relatedId; }
+    public String getFrom() { return from; }
+    public String getTo() { return to; }
+}
@@ -0,0 +1,67 @@
+package com.qwqer.demo.dto;
+
+import com.qwqer.demo.enums.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Flat, unmanaged order row for /api/orders/export (built by a JPQL constructor projection)
+public class OrderExportRow {
+    public static final String[] CSV_HEADER = {
+            "id", "customerId", "customerName", "address", "productId", "quantity", "totalAmount",
+            "status", "deliveryAgentId", "warehouseId", "createdAt", "updatedAt", "deliveredAt" };
+
+    private Long id;
+    private Long customerId;
+    private String customerName;
+    private String address;
+    private Long productId;
+    private Integer quantity;
+    private BigDecimal totalAmount;
+    private OrderStatus status;
+    private Long deliveryAgentId;
+    private Long warehouseId;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime deliveredAt;
+
+    public OrderExportRow(Long id, Long customerId, String customerName, String address, Long productId,
+                          Integer quantity, BigDecimal totalAmount, OrderStatus status, Long deliveryAgentId,
+                          Long warehouseId, LocalDateTime createdAt, LocalDateTime updatedAt,
+                          LocalDateTime deliveredAt) {
+        this.id = id;
+        this.customerId = customerId;
+        this.customerName = customerName;
+        this.address = address;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.totalAmount = totalAmount;
+        this.status = status;
+        this.deliveryAgentId = deliveryAgentId;
+        this.warehouseId = warehouseId;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.deliveredAt = deliveredAt;
+    }
+
+    // same order as CSV_HEADER
+    public Object[] csvValues() {
+        return new Object[] { id, customerId, customerName, address, productId, quantity, totalAmount,
+                status, deliveryAgentId, warehouseId, createdAt, updatedAt, deliveredAt };
+    }
+
+    // getters
+    public Long getId() { return id; }
+    public Long getCustomerId() { return customerId; }
+    public String getCustomerName() { return customerName; }
+    public String getAddress() { return address; }
+    public Long getProductId() { return productId; }
+    public Integer getQuantity() { return quantity; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public OrderStatus getStatus() { return status; }
+    public Long getDeliveryAgentId() { return deliveryAgentId; }
+    public Long getWarehouseId() { return warehouseId; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public LocalDateTime getDeliveredAt() { return deliveredAt; }
+}
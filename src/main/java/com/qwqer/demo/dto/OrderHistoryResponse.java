@@ -1,6 +1,9 @@
 package com.qwqer.demo.dto;
 
+import com.qwqer.demo.enums.OrderStatus;
+
 import java.util.List;
+import java.util.Map;
 
 public class OrderHistoryResponse {
     
@@ -9,7 +12,11 @@ public class OrderHistoryResponse {
     private long totalOrders;
     private long deliveredOrders;
     private long pendingOrders;
-    private List<com.qwqer.demo.entity.CustomerOrder> orders;
+    private Map<OrderStatus, Long> statusCounts;
+    private List<com.qwqer.demo.entity.CustomerOrder> orders; // one page, newest first
+    private String nextCursor; // pass back as ?cursor= for the next page; null on the last one
+    private int size;
+    private boolean hasNext;
     
     // Constructors
     public OrderHistoryResponse() {}
@@ -24,6 +31,15 @@ public class OrderHistoryResponse {
         this.pendingOrders = pendingOrders;
         this.orders = orders;
     }
+
+    public OrderHistoryResponse(Long customerId, String customerName, long totalOrders,
+                               long deliveredOrders, long pendingOrders, Map<OrderStatus, Long> statusCounts,
+                               List<com.qwqer.demo.entity.CustomerOrder> orders, int size, boolean hasNext) {
+        this(customerId, customerName, totalOrders, deliveredOrders, pendingOrders, orders);
+        this.statusCounts = statusCounts;
+        this.size = size;
+        this.hasNext = hasNext;
+    }
     
     // Getters and Setters
     public Long getCustomerId() {
@@ -73,4 +89,36 @@ public class OrderHistoryResponse {
     public void setOrders(List<com.qwqer.demo.entity.CustomerOrder> orders) {
         this.orders = orders;
     }
+
+    public Map<OrderStatus, Long> getStatusCounts() {
+        return statusCounts;
+    }
+    
+    public void setStatusCounts(Map<OrderStatus, Long> statusCounts) {
+        this.statusCounts = statusCounts;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public void setSize(int size) {
+        this.size = size;
+    }
+    
+    public boolean isHasNext() {
+        return hasNext;
+    }
+    
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.qwqer.demo.entity;
+
+import com.qwqer.demo.enums.OrderStatus;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Cold copy of a delivered or cancelled order, moved out of customer_orders by OrderArchiver.
+ * Rows are append-only and keep the original order id; there are no foreign keys so customers
+ * and products can still be edited or removed independently of their old orders.
+ */
+@Entity
+@Table(name = "customer_orders_archive", indexes = {
+        @Index(name = "idx_orders_archive_customer_created_id", columnList = "customer_id, created_at, id"),
+        @Index(name = "idx_orders_archive_status_created", columnList = "order_status, created_at")
+})
+public class ArchivedOrder {
+
+    @Id
+    private Long id;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    @Column(name = "customer_name", nullable = false)
+    private String customerName;
+
+    @Column(nullable = false, length = 500)
+    private String address;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "order_status", nullable = false)
+    private OrderStatus status;
+
+    @Column(length = 6)
+    private String otp;
+
+    @Column(name = "delivery_agent_id")
+    private Long deliveryAgentId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "delivered_at")
+    private LocalDateTime deliveredAt;
+
+    @Column(length = 1000)
+    private String notes;
+
+    @Column(name = "warehouse_id")
+    private Long warehouseId;
+
+    private Double latitude;
+
+    private Double longitude;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    protected ArchivedOrder() {
+    }
+
+    // detached CustomerOrder with the archived values, for responses that mix live and archived orders
+    public CustomerOrder toOrder() {
+        CustomerOrder order = new CustomerOrder();
+        order.setId(id);
+        order.setCustomerId(customerId);
+        order.setCustomerName(customerName);
+        order.setAddress(address);
+        order.setProductId(productId);
+        order.setTotalAmount(totalAmount);
+        order.setQuantity(quantity);
+        order.setStatus(status); // stamps updatedAt/deliveredAt, so those are set afterwards
+        order.setOtp(otp);
+        order.setDeliveryAgentId(deliveryAgentId);
+        order.setCreatedAt(createdAt);
+        order.setUpdatedAt(updatedAt);
+        order.setDeliveredAt(deliveredAt);
+        order.setNotes(notes);
+        order.setWarehouseId(warehouseId);
+        order.setLatitude(latitude);
+        order.setLongitude(longitude);
+        return order;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+}
@@ -1,13 +1,18 @@
 package com.qwqer.demo.entity;
+import com.qwqer.demo.service.CollectionVersionListener;
+import com.qwqer.demo.service.OrderDetailsViewListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 
 @Entity
 @Table(name = "customers")
+@EntityListeners({ OrderDetailsViewListener.class, CollectionVersionListener.class })
 public class Customer {
     
+    // Pooled sequence like CustomerOrder, so new customers from bulk intake are inserted as JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customers_seq")
+    @SequenceGenerator(name = "customers_seq", sequenceName = "customers_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -2,8 +2,12 @@ package com.qwqer.demo.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.qwqer.demo.enums.OrderStatus;
+import com.qwqer.demo.service.CollectionVersionListener;
+import com.qwqer.demo.service.OrderDetailsViewListener;
+import com.qwqer.demo.service.StatusChangeListener;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.DecimalMin;
@@ -11,11 +15,21 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "customer_orders")
+@Table(name = "customer_orders", indexes = {
+        @Index(name = "idx_orders_status_created", columnList = "order_status, created_at"),
+        @Index(name = "idx_orders_status_id", columnList = "order_status, id"), // keyset pages of /status/{status}
+        @Index(name = "idx_orders_customer_created_id", columnList = "customer_id, created_at, id"),
+        @Index(name = "idx_orders_customer_status", columnList = "customer_id, order_status"),
+        @Index(name = "idx_orders_product", columnList = "product_id")
+})
+@EntityListeners({ OrderDetailsViewListener.class, CollectionVersionListener.class, StatusChangeListener.class })
+@DynamicUpdate // entity saves write only changed columns, never a stale order_status next to a transition
 public class CustomerOrder {
 
+    // Pooled sequence instead of IDENTITY so Hibernate can batch inserts (ids are handed out 50 at a time)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_orders_seq")
+    @SequenceGenerator(name = "customer_orders_seq", sequenceName = "customer_orders_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
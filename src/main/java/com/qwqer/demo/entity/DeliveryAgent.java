@@ -2,11 +2,21 @@ package com.qwqer.demo.entity;
 
 import com.enums.VehicleCapacity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.qwqer.demo.service.CollectionVersionListener;
+import com.qwqer.demo.service.OrderDetailsViewListener;
+import com.qwqer.demo.service.StatusChangeListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.NotBlank;
 
 @Entity
-@Table(name = "delivery_agents")
+@Table(name = "delivery_agents", indexes = {
+        @Index(name = "idx_agents_assigned_order", columnList = "assigned_order_id")
+})
+@EntityListeners({ OrderDetailsViewListener.class, CollectionVersionListener.class, StatusChangeListener.class })
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "delivery-agents")
 public class DeliveryAgent {
 
     @Id
@@ -1,10 +1,17 @@
 package com.qwqer.demo.entity;
 
+import com.qwqer.demo.service.CollectionVersionListener;
+import com.qwqer.demo.service.OrderDetailsViewListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.NotBlank;
 
 @Entity
 @Table(name = "merchants")
+@EntityListeners({ OrderDetailsViewListener.class, CollectionVersionListener.class })
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "merchants")
 public class Merchant {
     
     @Id
@@ -0,0 +1,137 @@
+package com.qwqer.demo.entity;
+
+import com.qwqer.demo.enums.OrderStatus;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Denormalised copy of an order with its customer, agent, product and merchant names.
+ * Maintained by OrderDetailsReadModel after each committed write; never edited directly.
+ */
+@Entity
+@Table(name = "order_details_view", indexes = {
+        @Index(name = "idx_odv_status_created", columnList = "order_status, created_at"),
+        @Index(name = "idx_odv_customer_created", columnList = "customer_id, created_at"),
+        @Index(name = "idx_odv_agent", columnList = "delivery_agent_id"),
+        @Index(name = "idx_odv_product", columnList = "product_id"),
+        @Index(name = "idx_odv_merchant", columnList = "merchant_id")
+})
+public class OrderDetailsView implements Persistable<Long> {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "order_status")
+    private OrderStatus status;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(length = 6)
+    private String otp;
+
+    @Column(name = "customer_id")
+    private Long customerId;
+    private String customerName;
+    private String customerPhone;
+    @Column(length = 500)
+    private String customerAddress;
+
+    @Column(name = "delivery_agent_id")
+    private Long deliveryAgentId;
+    private String deliveryAgentName;
+    private String deliveryAgentPhone;
+
+    @Column(name = "product_id")
+    private Long productId;
+    private String productName;
+    @Column(precision = 10, scale = 2)
+    private BigDecimal productPrice;
+
+    @Column(name = "merchant_id")
+    private Long merchantId;
+    private String merchantName;
+    private String merchantPhone;
+
+    // lets save() insert rows known to be new without a SELECT first (see OrderDetailsReadModel)
+    @Transient
+    private boolean newRow;
+
+    public OrderDetailsView() {
+    }
+
+    // Used by the JPQL constructor projection in OrderDetailsViewRepository.buildFromOrders
+    public OrderDetailsView(Long orderId, OrderStatus status, LocalDateTime createdAt, String otp,
+            Long customerId, String customerName, String customerPhone, String customerAddress,
+            Long deliveryAgentId, String deliveryAgentName, String deliveryAgentPhone,
+            Long productId, String productName, BigDecimal productPrice,
+            Long merchantId, String merchantName, String merchantPhone) {
+        this.orderId = orderId;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.otp = otp;
+        this.customerId = customerId;
+        this.customerName = customerName;
+        this.customerPhone = customerPhone;
+        this.customerAddress = customerAddress;
+        this.deliveryAgentId = deliveryAgentId;
+        this.deliveryAgentName = deliveryAgentName;
+        this.deliveryAgentPhone = deliveryAgentPhone;
+        this.productId = productId;
+        this.productName = productName;
+        this.productPrice = productPrice;
+        this.merchantId = merchantId;
+        this.merchantName = merchantName;
+        this.merchantPhone = merchantPhone;
+    }
+
+    @Override
+    public Long getId() { return orderId; }
+
+    @Override
+    public boolean isNew() { return newRow; }
+
+    public void markNew() { this.newRow = true; }
+
+    @PostPersist
+    @PostLoad
+    void markNotNew() { this.newRow = false; }
+
+    // same visible content as a row rebuilt from the live tables (used by the reconciliation pass)
+    public boolean sameContent(OrderDetailsView o) {
+        return Objects.equals(orderId, o.orderId) && status == o.status && Objects.equals(createdAt, o.createdAt)
+                && Objects.equals(otp, o.otp)
+                && Objects.equals(customerId, o.customerId) && Objects.equals(customerName, o.customerName)
+                && Objects.equals(customerPhone, o.customerPhone) && Objects.equals(customerAddress, o.customerAddress)
+                && Objects.equals(deliveryAgentId, o.deliveryAgentId) && Objects.equals(deliveryAgentName, o.deliveryAgentName)
+                && Objects.equals(deliveryAgentPhone, o.deliveryAgentPhone)
+                && Objects.equals(productId, o.productId) && Objects.equals(productName, o.productName)
+                && (productPrice == null ? o.productPrice == null : o.productPrice != null && productPrice.compareTo(o.productPrice) == 0)
+                && Objects.equals(merchantId, o.merchantId) && Objects.equals(merchantName, o.merchantName)
+                && Objects.equals(merchantPhone, o.merchantPhone);
+    }
+
+    public Long getOrderId() { return orderId; }
+    public OrderStatus getStatus() { return status; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public String getOtp() { return otp; }
+    public Long getCustomerId() { return customerId; }
+    public String getCustomerName() { return customerName; }
+    public String getCustomerPhone() { return customerPhone; }
+    public String getCustomerAddress() { return customerAddress; }
+    public Long getDeliveryAgentId() { return deliveryAgentId; }
+    public String getDeliveryAgentName() { return deliveryAgentName; }
+    public String getDeliveryAgentPhone() { return deliveryAgentPhone; }
+    public Long getProductId() { return productId; }
+    public String getProductName() { return productName; }
+    public BigDecimal getProductPrice() { return productPrice; }
+    public Long getMerchantId() { return merchantId; }
+    public String getMerchantName() { return merchantName; }
+    public String getMerchantPhone() { return merchantPhone; }
+}
@@ -1,7 +1,11 @@
 package com.qwqer.demo.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.qwqer.demo.service.CollectionVersionListener;
+import com.qwqer.demo.service.OrderDetailsViewListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -9,6 +13,9 @@ import java.math.BigDecimal;
 
 @Entity
 @Table(name = "products")
+@EntityListeners({ OrderDetailsViewListener.class, CollectionVersionListener.class })
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "products")
 public class Product {
     
     @Id
@@ -1,12 +1,18 @@
 package com.qwqer.demo.entity;
 
+import com.qwqer.demo.service.CollectionVersionListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 
 
 @Entity
 @Table(name = "warehouses")
+@EntityListeners(CollectionVersionListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "warehouses")
 public class Warehouse {
 
     @Id
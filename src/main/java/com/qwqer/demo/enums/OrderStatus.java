@@ -1,6 +1,41 @@
 package com.qwqer.demo.enums;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum OrderStatus {
     ON_DELIVERY,
-     PLACED, ASSIGNED, PICKED_UP, OUT_FOR_DELIVERY, DELIVERED, CANCELLED, PENDING_ASSIGNMENT
+     PLACED, ASSIGNED, PICKED_UP, OUT_FOR_DELIVERY, DELIVERED, CANCELLED, PENDING_ASSIGNMENT;
+
+    // Allowed status transitions, enforced by OrderTransitionService (ON_DELIVERY is a legacy alias of OUT_FOR_DELIVERY).
+    // PICKED_UP -> DELIVERED is only the driver-app hand-over; the OTP delivery still requires OUT_FOR_DELIVERY.
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+    static {
+        TRANSITIONS.put(PLACED, EnumSet.of(PENDING_ASSIGNMENT, ASSIGNED, CANCELLED));
+        TRANSITIONS.put(PENDING_ASSIGNMENT, EnumSet.of(ASSIGNED, CANCELLED));
+        TRANSITIONS.put(ASSIGNED, EnumSet.of(PICKED_UP, CANCELLED));
+        TRANSITIONS.put(PICKED_UP, EnumSet.of(OUT_FOR_DELIVERY, DELIVERED));
+        TRANSITIONS.put(OUT_FOR_DELIVERY, EnumSet.of(DELIVERED));
+        TRANSITIONS.put(ON_DELIVERY, EnumSet.of(DELIVERED));
+        TRANSITIONS.put(DELIVERED, EnumSet.noneOf(OrderStatus.class));
+        TRANSITIONS.put(CANCELLED, EnumSet.noneOf(OrderStatus.class));
+    }
+
+    public boolean canTransitionTo(OrderStatus next) {
+        return TRANSITIONS.get(this).contains(next);
+    }
+
+    // every status an order may be in to move to target
+    public static Set<OrderStatus> sourcesOf(OrderStatus target) {
+        Set<OrderStatus> sources = EnumSet.noneOf(OrderStatus.class);
+        for (Map.Entry<OrderStatus, Set<OrderStatus>> entry : TRANSITIONS.entrySet()) {
+            if (entry.getValue().contains(target)) {
+                sources.add(entry.getKey());
+            }
+        }
+        return Collections.unmodifiableSet(sources);
+    }
 }
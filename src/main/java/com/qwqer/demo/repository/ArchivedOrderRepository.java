@@ -0,0 +1,70 @@
+package com.qwqer.demo.repository;
+
+import com.qwqer.demo.dto.OrderExportRow;
+import com.qwqer.demo.entity.ArchivedOrder;
+import com.qwqer.demo.enums.OrderStatus;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+    // Copy live orders into the archive in one statement (the caller deletes them from customer_orders)
+    @Modifying
+    @Query("INSERT INTO ArchivedOrder (id, customerId, customerName, address, productId, totalAmount, quantity, " +
+           "status, otp, deliveryAgentId, createdAt, updatedAt, deliveredAt, notes, warehouseId, " +
+           "latitude, longitude, archivedAt) " +
+           "SELECT o.id, o.customerId, o.customerName, o.address, o.productId, o.totalAmount, o.quantity, " +
+           "o.status, o.otp, o.deliveryAgentId, o.createdAt, o.updatedAt, o.deliveredAt, o.notes, o.warehouseId, " +
+           "o.latitude, o.longitude, :archivedAt " +
+           "FROM CustomerOrder o WHERE o.id IN :ids")
+    int copyFromOrders(@Param("ids") Collection<Long> ids, @Param("archivedAt") LocalDateTime archivedAt);
+
+    // Archived order count per status for one customer (added to the live counts in CustomerOrderStats)
+    @Query("SELECT a.status, COUNT(a) FROM ArchivedOrder a WHERE a.customerId = :customerId GROUP BY a.status")
+    List<Object[]> countByStatusForCustomer(@Param("customerId") Long customerId);
+
+    @Query("SELECT a.id FROM ArchivedOrder a WHERE a.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Same keyset as CustomerOrderRepository's history queries, so both tables merge into one history
+    List<ArchivedOrder> findByCustomerIdOrderByCreatedAtDescIdDesc(Long customerId, Pageable pageable);
+
+    @Query("SELECT a FROM ArchivedOrder a WHERE a.customerId = :customerId AND a.createdAt <= :createdAt " +
+           "AND (a.createdAt < :createdAt OR a.id < :id) " +
+           "ORDER BY a.createdAt DESC, a.id DESC")
+    List<ArchivedOrder> findHistoryPageAfter(@Param("customerId") Long customerId, @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id, Pageable pageable);
+
+    // Same projection and filters as CustomerOrderRepository.streamOrdersForExport
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT new com.qwqer.demo.dto.OrderExportRow(" +
+           "a.id, a.customerId, a.customerName, a.address, a.productId, a.quantity, a.totalAmount, a.status, " +
+           "a.deliveryAgentId, a.warehouseId, a.createdAt, a.updatedAt, a.deliveredAt) " +
+           "FROM ArchivedOrder a " +
+           "WHERE (:status IS NULL OR a.status = :status) " +
+           "AND (:startDate IS NULL OR a.createdAt >= :startDate) " +
+           "AND (:endDate IS NULL OR a.createdAt <= :endDate) " +
+           "ORDER BY a.id")
+    Stream<OrderExportRow> streamOrdersForExport(@Param("status") OrderStatus status,
+                                                 @Param("startDate") LocalDateTime startDate,
+                                                 @Param("endDate") LocalDateTime endDate);
+}
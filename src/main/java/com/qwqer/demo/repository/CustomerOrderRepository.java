@@ -1,24 +1,52 @@
 package com.qwqer.demo.repository;
 
+import com.qwqer.demo.dto.OrderExportRow;
 import com.qwqer.demo.entity.CustomerOrder;
 import com.qwqer.demo.enums.OrderStatus;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CustomerOrderRepository extends JpaRepository<CustomerOrder, Long> {
     List<CustomerOrder> findByCustomerNameContainingIgnoreCase(String customerName);
     List<CustomerOrder> findByStatus(OrderStatus status);
     List<CustomerOrder> findByProductId(Long productId);
+
+    // Keyset pages (ascending id), pass KeysetPage.probe(limit) as pageable
+    List<CustomerOrder> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+    List<CustomerOrder> findByStatusAndIdGreaterThanOrderByIdAsc(OrderStatus status, Long afterId, Pageable pageable);
+
+    // id-only keyset walk over the whole table (order details view reconciliation)
+    @Query("SELECT o.id FROM CustomerOrder o WHERE o.id > :afterId ORDER BY o.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
     
     // New methods for enhanced functionality
     List<CustomerOrder> findByCustomerIdOrderByCreatedAtDesc(Long customerId);
+
+    // History keyset, newest first: the first page, then pages strictly after (createdAt, id) of the last row shown.
+    // "createdAt <= :createdAt" is the range the index seeks to; the OR only filters rows sharing that timestamp.
+    List<CustomerOrder> findByCustomerIdOrderByCreatedAtDescIdDesc(Long customerId, Pageable pageable);
+
+    @Query("SELECT o FROM CustomerOrder o WHERE o.customerId = :customerId AND o.createdAt <= :createdAt " +
+           "AND (o.createdAt < :createdAt OR o.id < :id) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<CustomerOrder> findHistoryPageAfter(@Param("customerId") Long customerId, @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") Long id, Pageable pageable);
     List<CustomerOrder> findByCustomerIdAndStatusOrderByCreatedAtDesc(Long customerId, OrderStatus status);
     
     @Query("SELECT o FROM CustomerOrder o WHERE o.customerId = :customerId AND o.createdAt BETWEEN :startDate AND :endDate ORDER BY o.createdAt DESC")
@@ -26,12 +54,93 @@ public interface CustomerOrderRepository extends JpaRepository<CustomerOrder, Lo
                                                     @Param("startDate") LocalDateTime startDate, 
                                                     @Param("endDate") LocalDateTime endDate);
     
+    // Customer name and order count per status in one grouped query (status is null when there are no orders)
+    @Query("SELECT c.name, o.status, COUNT(o) FROM Customer c LEFT JOIN CustomerOrder o ON o.customerId = c.id " +
+           "WHERE c.id = :customerId GROUP BY c.name, o.status")
+    List<Object[]> countByStatusForCustomer(@Param("customerId") Long customerId);
+
     @Query("SELECT COUNT(o) FROM CustomerOrder o WHERE o.customerId = :customerId")
     long countByCustomerId(@Param("customerId") Long customerId);
     
     @Query("SELECT COUNT(o) FROM CustomerOrder o WHERE o.customerId = :customerId AND o.status = :status")
     long countByCustomerIdAndStatus(@Param("customerId") Long customerId, @Param("status") OrderStatus status);
 
+    // Delivery locations of recent orders, used to find demand hotspots per warehouse
+    @Query("SELECT o.warehouseId, o.latitude, o.longitude FROM CustomerOrder o WHERE o.createdAt >= :since " +
+           "AND o.warehouseId IS NOT NULL AND o.latitude IS NOT NULL AND o.longitude IS NOT NULL")
+    List<Object[]> findRecentDeliveryLocations(@Param("since") LocalDateTime since);
+
+    // Conditional status updates used by OrderTransitionService: 0 rows means the order is gone or in another status
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CustomerOrder o SET o.status = :to, o.updatedAt = :now WHERE o.id = :id AND o.status IN :from")
+    int updateStatus(@Param("id") Long id, @Param("from") Collection<OrderStatus> from,
+                     @Param("to") OrderStatus to, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CustomerOrder o SET o.status = com.qwqer.demo.enums.OrderStatus.ASSIGNED, o.deliveryAgentId = :agentId, " +
+           "o.updatedAt = :now WHERE o.id = :id AND o.status IN :from")
+    int assignIfIn(@Param("id") Long id, @Param("from") Collection<OrderStatus> from,
+                   @Param("agentId") Long agentId, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CustomerOrder o SET o.status = com.qwqer.demo.enums.OrderStatus.PICKED_UP, o.otp = :otp, " +
+           "o.updatedAt = :now WHERE o.id = :id AND o.status IN :from")
+    int pickUpIfIn(@Param("id") Long id, @Param("from") Collection<OrderStatus> from,
+                   @Param("otp") String otp, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CustomerOrder o SET o.status = com.qwqer.demo.enums.OrderStatus.DELIVERED, o.deliveredAt = :now, " +
+           "o.updatedAt = :now WHERE o.id = :id AND o.status IN :from")
+    int deliverIfIn(@Param("id") Long id, @Param("from") Collection<OrderStatus> from, @Param("now") LocalDateTime now);
+
+    @Query("SELECT o.status FROM CustomerOrder o WHERE o.id = :id")
+    Optional<OrderStatus> findStatusById(@Param("id") Long id);
+
+    @Query("SELECT o.deliveryAgentId FROM CustomerOrder o WHERE o.id = :id")
+    Optional<Long> findAgentIdById(@Param("id") Long id);
+
+    // one row per order: [id, customerId, merchantId of its product]
+    @Query("SELECT o.id, o.customerId, p.merchantId FROM CustomerOrder o LEFT JOIN Product p ON p.id = o.productId " +
+           "WHERE o.id IN :ids")
+    List<Object[]> findOwners(@Param("ids") Collection<Long> ids);
+
+    // Dispatch work claiming (DispatchClaims): rows locked by another instance's open cycle are skipped, not waited for
+    @Query(value = "SELECT * FROM customer_orders WHERE order_status = 'PENDING_ASSIGNMENT' AND created_at <= :cutoff " +
+           "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<CustomerOrder> lockPendingSkipLocked(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    // one row: [count, oldest createdAt]
+    @Query("SELECT COUNT(o), MIN(o.createdAt) FROM CustomerOrder o WHERE o.status = :status")
+    List<Object[]> countAndOldestByStatus(@Param("status") OrderStatus status);
+
+    // Orders in a final status whose last change is older than the cutoff (createdAt <= updatedAt lets the status index bound the scan)
+    @Query("SELECT o.id FROM CustomerOrder o WHERE o.status IN :statuses AND o.createdAt < :cutoff " +
+           "AND COALESCE(o.updatedAt, o.createdAt) < :cutoff")
+    List<Long> findArchivableIds(@Param("statuses") Collection<OrderStatus> statuses,
+                                 @Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM CustomerOrder o WHERE o.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Forward-only cursor over all matching orders for the export; must be consumed inside a transaction and closed
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT new com.qwqer.demo.dto.OrderExportRow(" +
+           "o.id, o.customerId, o.customerName, o.address, o.productId, o.quantity, o.totalAmount, o.status, " +
+           "o.deliveryAgentId, o.warehouseId, o.createdAt, o.updatedAt, o.deliveredAt) " +
+           "FROM CustomerOrder o " +
+           "WHERE (:status IS NULL OR o.status = :status) " +
+           "AND (:startDate IS NULL OR o.createdAt >= :startDate) " +
+           "AND (:endDate IS NULL OR o.createdAt <= :endDate) " +
+           "ORDER BY o.id")
+    Stream<OrderExportRow> streamOrdersForExport(@Param("status") OrderStatus status,
+                                                 @Param("startDate") LocalDateTime startDate,
+                                                 @Param("endDate") LocalDateTime endDate);
+
     //List<CustomerOrder> findByStatus(OrderStatus status);
 
 }
\ No newline at end of file
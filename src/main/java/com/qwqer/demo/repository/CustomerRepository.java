@@ -1,9 +1,11 @@
 package com.qwqer.demo.repository;
 
 import com.qwqer.demo.entity.Customer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,4 +16,7 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     List<Customer> findByEmail(String email);
     
     List<Customer> findByPhone(String phone);
+    List<Customer> findByPhoneIn(Collection<String> phones);
+
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
 }
\ No newline at end of file
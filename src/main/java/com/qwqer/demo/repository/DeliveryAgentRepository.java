@@ -1,15 +1,64 @@
 package com.qwqer.demo.repository;
 
 import com.qwqer.demo.entity.DeliveryAgent;
+import com.qwqer.demo.enums.OrderStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface DeliveryAgentRepository extends JpaRepository<DeliveryAgent, Long> {
+    // Read every 2 s by the position broadcast and by each assignment cycle; served from the query cache
+    // until an agent row changes (entity saves and the bulk UPDATEs below both invalidate it). Only this
+    // instance's writes invalidate it, so the cluster profile turns the query cache off
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<DeliveryAgent> findAll();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<DeliveryAgent> findByStatus(DeliveryAgent.AgentStatus status);
     Optional<DeliveryAgent> findByAssignedOrderId(Long orderId);
+
+    // Agent updates that go with an order transition (same transaction, see OrderTransitionService)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE DeliveryAgent a SET a.status = :assigned, a.assignedOrderId = :orderId " +
+           "WHERE a.id = :agentId AND a.status = :available")
+    int claimIfAvailable(@Param("agentId") Long agentId, @Param("orderId") Long orderId,
+                         @Param("available") DeliveryAgent.AgentStatus available,
+                         @Param("assigned") DeliveryAgent.AgentStatus assigned);
+
+    @Query("SELECT a.status FROM DeliveryAgent a WHERE a.id = :id")
+    Optional<DeliveryAgent.AgentStatus> findStatusById(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE DeliveryAgent a SET a.status = :to WHERE a.id = :agentId AND a.status = :from")
+    int updateStatusIf(@Param("agentId") Long agentId, @Param("from") DeliveryAgent.AgentStatus from,
+                       @Param("to") DeliveryAgent.AgentStatus to);
+
+    // frees the agent only when it is still in status from and none of its orders is in one of the active statuses
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE DeliveryAgent a SET a.status = :available, a.assignedOrderId = NULL " +
+           "WHERE a.id = :agentId AND a.status = :from " +
+           "AND NOT EXISTS (SELECT o.id FROM CustomerOrder o WHERE o.deliveryAgentId = :agentId AND o.status IN :active)")
+    int releaseIfIdle(@Param("agentId") Long agentId, @Param("active") Collection<OrderStatus> active,
+                      @Param("from") DeliveryAgent.AgentStatus from,
+                      @Param("available") DeliveryAgent.AgentStatus available);
+
+    // an agent still carrying grouped orders moves on to the next one when its current order is done
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE DeliveryAgent a SET a.assignedOrderId = (SELECT MIN(o.id) FROM CustomerOrder o " +
+           "WHERE o.deliveryAgentId = :agentId AND o.status IN :active) " +
+           "WHERE a.id = :agentId AND a.assignedOrderId = :orderId")
+    int moveAssignedOrder(@Param("agentId") Long agentId, @Param("orderId") Long orderId,
+                          @Param("active") Collection<OrderStatus> active);
     //List<DeliveryAgent> findByStatus(String status);
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package com.qwqer.demo.repository;
+
+import com.qwqer.demo.dto.OrderDetailsResponse;
+import com.qwqer.demo.entity.OrderDetailsView;
+import com.qwqer.demo.enums.OrderStatus;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderDetailsViewRepository extends JpaRepository<OrderDetailsView, Long> {
+
+    // Single-table read of the details view
+    @Query("SELECT new com.qwqer.demo.dto.OrderDetailsResponse(" +
+           "v.orderId, v.status, v.customerName, v.customerPhone, v.customerAddress, " +
+           "v.deliveryAgentName, v.deliveryAgentPhone, v.merchantName, v.merchantPhone, " +
+           "v.productName, v.productPrice, v.createdAt, v.otp) " +
+           "FROM OrderDetailsView v " +
+           "WHERE (:status IS NULL OR v.status = :status) " +
+           "AND (:startDate IS NULL OR v.createdAt >= :startDate) " +
+           "AND (:endDate IS NULL OR v.createdAt <= :endDate) " +
+           "ORDER BY v.orderId")
+    Slice<OrderDetailsResponse> findDetails(@Param("status") OrderStatus status,
+                                            @Param("startDate") LocalDateTime startDate,
+                                            @Param("endDate") LocalDateTime endDate,
+                                            Pageable pageable);
+
+    // Rebuilds rows from the normalised tables
+    @Query("SELECT new com.qwqer.demo.entity.OrderDetailsView(" +
+           "o.id, o.status, o.createdAt, o.otp, " +
+           "o.customerId, c.name, c.phone, c.address, " +
+           "o.deliveryAgentId, a.name, a.phone, " +
+           "o.productId, p.name, p.price, " +
+           "p.merchantId, m.name, m.phone) " +
+           "FROM CustomerOrder o " +
+           "LEFT JOIN o.customer c " +
+           "LEFT JOIN o.deliveryAgent a " +
+           "LEFT JOIN o.product p " +
+           "LEFT JOIN p.merchant m " +
+           "WHERE o.id IN :orderIds")
+    List<OrderDetailsView> buildFromOrders(@Param("orderIds") Collection<Long> orderIds);
+
+    // Full rebuild in one statement, used when the view is out of step with customer_orders
+    @Modifying
+    @Query("INSERT INTO OrderDetailsView (orderId, status, createdAt, otp, " +
+           "customerId, customerName, customerPhone, customerAddress, " +
+           "deliveryAgentId, deliveryAgentName, deliveryAgentPhone, " +
+           "productId, productName, productPrice, merchantId, merchantName, merchantPhone) " +
+           "SELECT o.id, o.status, o.createdAt, o.otp, o.customerId, c.name, c.phone, c.address, " +
+           "o.deliveryAgentId, a.name, a.phone, o.productId, p.name, p.price, p.merchantId, m.name, m.phone " +
+           "FROM CustomerOrder o " +
+           "LEFT JOIN o.customer c " +
+           "LEFT JOIN o.deliveryAgent a " +
+           "LEFT JOIN o.product p " +
+           "LEFT JOIN p.merchant m")
+    int rebuildAll();
+
+    // view rows whose order is no longer in customer_orders (archived or deleted while an update was lost)
+    @Query("SELECT v.orderId FROM OrderDetailsView v WHERE NOT EXISTS " +
+           "(SELECT o.id FROM CustomerOrder o WHERE o.id = v.orderId)")
+    List<Long> findOrphanIds();
+
+    // Name changes fan out to every order that shows them
+    @Modifying
+    @Query("UPDATE OrderDetailsView v SET v.customerName = :name, v.customerPhone = :phone, v.customerAddress = :address " +
+           "WHERE v.customerId = :customerId")
+    int updateCustomer(@Param("customerId") Long customerId, @Param("name") String name,
+                       @Param("phone") String phone, @Param("address") String address);
+
+    @Modifying
+    @Query("UPDATE OrderDetailsView v SET v.deliveryAgentName = :name, v.deliveryAgentPhone = :phone " +
+           "WHERE v.deliveryAgentId = :agentId")
+    int updateAgent(@Param("agentId") Long agentId, @Param("name") String name, @Param("phone") String phone);
+
+    @Modifying
+    @Query("UPDATE OrderDetailsView v SET v.productName = :name, v.productPrice = :price, v.merchantId = :merchantId, " +
+           "v.merchantName = :merchantName, v.merchantPhone = :merchantPhone WHERE v.productId = :productId")
+    int updateProduct(@Param("productId") Long productId, @Param("name") String name, @Param("price") BigDecimal price,
+                      @Param("merchantId") Long merchantId, @Param("merchantName") String merchantName,
+                      @Param("merchantPhone") String merchantPhone);
+
+    @Modifying
+    @Query("UPDATE OrderDetailsView v SET v.merchantName = :name, v.merchantPhone = :phone WHERE v.merchantId = :merchantId")
+    int updateMerchant(@Param("merchantId") Long merchantId, @Param("name") String name, @Param("phone") String phone);
+}
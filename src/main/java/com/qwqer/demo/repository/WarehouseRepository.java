@@ -1,10 +1,14 @@
 package com.qwqer.demo.repository;
 
 import com.qwqer.demo.entity.Warehouse;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface WarehouseRepository extends JpaRepository<Warehouse, Long> {
+    List<Warehouse> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
 }
 
@@ -1,154 +1,268 @@
 package com.qwqer.demo.service;
 
-import com.qwqer.demo.entity.Product;
 import com.qwqer.demo.entity.Warehouse;
 import com.qwqer.demo.entity.DeliveryAgent.AgentStatus;
-import com.qwqer.demo.enums.OrderStatus;
 import com.enums.VehicleCapacity;
 import com.qwqer.demo.entity.CustomerOrder;
 import com.qwqer.demo.entity.DeliveryAgent;
 import com.qwqer.demo.repository.ProductRepository;
 import com.qwqer.demo.repository.WarehouseRepository;
-import com.qwqer.demo.repository.CustomerOrderRepository;
 import com.qwqer.demo.repository.DeliveryAgentRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
+/**
+ * Assignment engine: every 10 s, claims a batch of pending orders (DispatchClaims) and books drivers.
+ *
+ * The batch is split by warehouse and each partition is planned in parallel on the
+ * dispatchSolverPool fork-join pool: nearby orders are grouped, weighed, and given a ranked list of
+ * the nearest matching drivers. Planning only reads snapshots loaded up front. Partitions can want
+ * the same driver, so a final merge on the transaction thread books drivers oldest group first,
+ * each driver once, falling back down a group's list when its first choice is gone. A group whose
+ * whole shortlist was taken by older groups is re-ranked against the drivers still free, so a busy
+ * warehouse never leaves orders pending while a matching driver further away is idle.
+ */
 @Service
 public class AutoAssignService {
 
-    private final CustomerOrderRepository orderRepository;
     private final ProductRepository productRepository;
     private final DeliveryAgentRepository agentRepository;
     private final WarehouseRepository warehouseRepository;
+    private final DispatchMetrics.Cycle cycleMetrics;
+    private final PeriodicJobs.Job job;
+    private final DispatchClaims dispatchClaims;
+    private final OrderTransitionService transitionService;
+    private final TransactionTemplate transactionTemplate;
+    private final ForkJoinPool solverPool;
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(AutoAssignService.class);
 
-    public AutoAssignService(CustomerOrderRepository orderRepository,
-            ProductRepository productRepository,
-            DeliveryAgentRepository agentRepository, WarehouseRepository warehouseRepository) {
-        this.orderRepository = orderRepository;
+    public AutoAssignService(ProductRepository productRepository,
+            DeliveryAgentRepository agentRepository, WarehouseRepository warehouseRepository,
+            DispatchMetrics dispatchMetrics, PeriodicJobs periodicJobs,
+            @Qualifier("dispatchWorkers") ThreadPoolTaskExecutor dispatchWorkers, DispatchClaims dispatchClaims,
+            OrderTransitionService transitionService, PlatformTransactionManager transactionManager,
+            @Qualifier("dispatchSolverPool") ForkJoinPool solverPool) {
         this.productRepository = productRepository;
         this.agentRepository = agentRepository;
         this.warehouseRepository = warehouseRepository;
+        this.cycleMetrics = dispatchMetrics.cycle("auto-assign");
+        this.job = periodicJobs.onWorkers("auto-assign", 10000, dispatchWorkers);
+        this.dispatchClaims = dispatchClaims;
+        this.transitionService = transitionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.solverPool = solverPool;
     }
 
     private static final double NEARBY_RADIUS_KM = 1.0; // group orders within 1 km
 
-    @Scheduled(fixedRate = 10000) // every 10 seconds
-public void autoAssignDrivers() {
-    List<CustomerOrder> pendingOrders = orderRepository.findByStatus(OrderStatus.PENDING_ASSIGNMENT);
-    if (pendingOrders.isEmpty())
-        return;
+    @Value("${dispatch.parallel.candidates-per-group:8}")
+    private int candidatesPerGroup = 8;
 
-    LocalDateTime now = LocalDateTime.now();
+    @Value("${dispatch.auto-assign.enabled:true}")
+    private boolean enabled = true;
 
-    for (CustomerOrder order : pendingOrders) {
-        // ⏱ Only assign if order is at least 30 seconds old
-        if (Duration.between(order.getCreatedAt(), now).getSeconds() < 30)
-            continue;
-
-        // 🏭 Get warehouse for this order
-        final Warehouse warehouse = (order.getWarehouseId() != null)
-                ? warehouseRepository.findById(order.getWarehouseId()).orElse(null)
-                : null;
-
-        if (warehouse == null || warehouse.getLatitude() == null || warehouse.getLongitude() == null) {
-            log.warn("⚠️ Skipping order {} — missing warehouse or coordinates", order.getId());
-            continue;
+    @Scheduled(fixedRate = 10000, scheduler = "dispatchScheduler") // every 10 seconds, run on a dispatch worker
+    public void autoAssignDrivers() {
+        if (enabled) {
+            job.tick(this::assignNow);
         }
+    }
 
-        // 🧭 Find other nearby pending orders (within 1 km)
-        List<CustomerOrder> nearbyOrders = pendingOrders.stream()
-                .filter(o -> !o.equals(order))
-                .filter(o -> o.getLatitude() != null && o.getLongitude() != null)
-                .filter(o -> distance(order.getLatitude(), order.getLongitude(),
-                        o.getLatitude(), o.getLongitude()) <= NEARBY_RADIUS_KM)
-                .collect(Collectors.toList());
-
-        // Include current order itself
-        nearbyOrders.add(order);
-
-        // ⚖️ Calculate total weight (in kilograms)
-        double totalWeightKg = calculateTotalWeight(nearbyOrders);
+    // 🚚 one assignment cycle on the calling thread; returns how many orders got a driver
+    public int assignNow() {
+        long start = System.nanoTime();
+        int assigned = 0;
+        try {
+            Integer result = transactionTemplate.execute(status -> assignPending());
+            assigned = result != null ? result : 0;
+        } finally {
+            cycleMetrics.record(start, assigned);
+        }
+        return assigned;
+    }
 
-        // 🚗 Decide vehicle type
-        VehicleCapacity requiredCapacity = (totalWeightKg < 0.4)
-                ? VehicleCapacity.TWO_WHEELER
-                : VehicleCapacity.FOUR_WHEELER;
+    // returns how many orders got a driver; runs in one transaction that holds the claim on its batch
+    private int assignPending() {
+        dispatchClaims.refreshBacklog();
+        // ⏱ Only orders at least 30 seconds old, and only those no other cycle has claimed
+        List<CustomerOrder> pendingOrders = dispatchClaims.claimPending(LocalDateTime.now().minusSeconds(30));
+        if (pendingOrders.isEmpty())
+            return 0;
 
-        // 🔍 Get available drivers matching vehicle type
-        List<DeliveryAgent> eligibleAgents = agentRepository.findByStatus(AgentStatus.AVAILABLE).stream()
+        // 📥 Everything the planners read, loaded once on this (transaction) thread
+        Map<Long, Warehouse> warehouses = new HashMap<>();
+        warehouseRepository.findAllById(pendingOrders.stream().map(CustomerOrder::getWarehouseId)
+                .filter(Objects::nonNull).collect(Collectors.toSet()))
+                .forEach(w -> warehouses.put(w.getId(), w));
+        Map<Long, Double> gramsByProduct = new HashMap<>();
+        productRepository.findAllById(pendingOrders.stream().map(CustomerOrder::getProductId)
+                .collect(Collectors.toSet()))
+                .forEach(p -> gramsByProduct.put(p.getId(), p.getWeight() != null ? p.getWeight() : 0.0));
+        List<DeliveryAgent> availableAgents = agentRepository.findByStatus(AgentStatus.AVAILABLE).stream()
                 .filter(a -> a.getVehicleCapacity() != null)
                 .filter(a -> a.getLatitude() != null && a.getLongitude() != null)
-                .filter(a -> a.getVehicleCapacity() == requiredCapacity)
                 .collect(Collectors.toList());
 
-        if (eligibleAgents.isEmpty()) {
-            log.warn("⚠️ No eligible {} driver found for order {} (totalWeight={}kg)",
-                    requiredCapacity, order.getId(), String.format("%.2f", totalWeightKg));
-            continue;
+        // 🏭 One partition per warehouse: orders of different warehouses are never grouped together
+        Map<Long, List<CustomerOrder>> byWarehouse = new LinkedHashMap<>();
+        for (CustomerOrder order : pendingOrders) {
+            Warehouse warehouse = order.getWarehouseId() != null ? warehouses.get(order.getWarehouseId()) : null;
+            if (warehouse == null || warehouse.getLatitude() == null || warehouse.getLongitude() == null) {
+                log.warn("⚠️ Skipping order {} — missing warehouse or coordinates", order.getId());
+                continue;
+            }
+            byWarehouse.computeIfAbsent(warehouse.getId(), id -> new ArrayList<>()).add(order);
         }
 
-        // 📍 Find nearest driver (to warehouse, not customer)
-        DeliveryAgent nearest = eligibleAgents.stream()
-                .min(Comparator.comparingDouble(a -> distance(
-                        a.getLatitude(), a.getLongitude(),
-                        warehouse.getLatitude(), warehouse.getLongitude())))
-                .orElse(null);
+        List<Plan> plans = solveAll(byWarehouse, warehouses, gramsByProduct, availableAgents);
+        return merge(plans, availableAgents);
+    }
 
-        if (nearest == null) {
-            log.warn("⚠️ No nearest driver found for order {}", order.getId());
-            continue;
+    // 🧮 Partitions are solved in parallel; the planners only read the snapshots above
+    private List<Plan> solveAll(Map<Long, List<CustomerOrder>> byWarehouse, Map<Long, Warehouse> warehouses,
+            Map<Long, Double> gramsByProduct, List<DeliveryAgent> agents) {
+        if (byWarehouse.size() <= 1) {
+            List<Plan> plans = new ArrayList<>();
+            byWarehouse.forEach((id, orders) -> plans.addAll(solve(warehouses.get(id), orders, gramsByProduct, agents)));
+            return plans;
         }
+        List<Callable<List<Plan>>> tasks = new ArrayList<>(byWarehouse.size());
+        byWarehouse.forEach((id, orders) -> tasks.add(() -> solve(warehouses.get(id), orders, gramsByProduct, agents)));
 
-        // ✅ Assign driver to this and grouped nearby orders
-        for (CustomerOrder o : nearbyOrders) {
-            o.setDeliveryAgentId(nearest.getId());
-            o.setStatus(OrderStatus.ASSIGNED);
-            orderRepository.save(o);
+        List<Plan> plans = new ArrayList<>();
+        try {
+            for (Future<List<Plan>> partition : solverPool.invokeAll(tasks)) {
+                plans.addAll(partition.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while planning assignments", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Planning assignments failed", e.getCause());
         }
-
-        nearest.setStatus(AgentStatus.ASSIGNED);
-        agentRepository.save(nearest);
-
-        log.info("✅ Assigned driver '{}' [{}] to orders {} | Vehicle: {} | TotalWeight={}kg | DistanceToWarehouse={}km",
-                nearest.getName(),
-                nearest.getStatus(),
-                nearbyOrders.stream().map(CustomerOrder::getId).toList(),
-                nearest.getVehicleCapacity(),
-                String.format("%.2f", totalWeightKg),
-                String.format("%.2f", distance(nearest.getLatitude(), nearest.getLongitude(),
-                        warehouse.getLatitude(), warehouse.getLongitude())));
+        return plans;
     }
-}
 
+    // groups of nearby orders (within 1 km) of one warehouse, each with its nearest eligible drivers ranked
+    private List<Plan> solve(Warehouse warehouse, List<CustomerOrder> orders, Map<Long, Double> gramsByProduct,
+            List<DeliveryAgent> agents) {
+        List<Plan> plans = new ArrayList<>();
+        Set<Long> grouped = new HashSet<>();
+        for (CustomerOrder order : orders) {
+            if (!grouped.add(order.getId()))
+                continue;
 
+            // 🧭 The order itself first (the driver is booked for it), then its ungrouped neighbours
+            List<CustomerOrder> group = new ArrayList<>();
+            group.add(order);
+            for (CustomerOrder o : orders) {
+                if (!grouped.contains(o.getId()) && o.getLatitude() != null && o.getLongitude() != null
+                        && order.getLatitude() != null && order.getLongitude() != null
+                        && distance(order.getLatitude(), order.getLongitude(),
+                                o.getLatitude(), o.getLongitude()) <= NEARBY_RADIUS_KM) {
+                    group.add(o);
+                    grouped.add(o.getId());
+                }
+            }
 
-    private double calculateTotalWeight(List<CustomerOrder> orders) {
-        double total = 0.0;
-        for (CustomerOrder order : orders) {
-            Optional<Product> productOpt = productRepository.findById(order.getProductId());
-            if (productOpt.isPresent()) {
-                double w = productOpt.get().getWeight();
-                total += (w * order.getQuantity()) / 1000.0; // convert g → kg
+            // ⚖️ Total weight (kg) decides the vehicle type
+            double totalWeightKg = 0.0;
+            for (CustomerOrder o : group) {
+                totalWeightKg += gramsByProduct.getOrDefault(o.getProductId(), 0.0) * o.getQuantity() / 1000.0;
             }
+            VehicleCapacity requiredCapacity = (totalWeightKg < 0.4)
+                    ? VehicleCapacity.TWO_WHEELER
+                    : VehicleCapacity.FOUR_WHEELER;
+
+            // 📍 Nearest matching drivers to the warehouse, so the merge can fall back if one is taken
+            List<DeliveryAgent> candidates = agents.stream()
+                    .filter(a -> a.getVehicleCapacity() == requiredCapacity)
+                    .sorted(Comparator.comparingDouble(a -> distance(a.getLatitude(), a.getLongitude(),
+                            warehouse.getLatitude(), warehouse.getLongitude())))
+                    .limit(candidatesPerGroup)
+                    .toList();
+
+            plans.add(new Plan(warehouse, group.stream().map(CustomerOrder::getId).toList(), order.getCreatedAt(),
+                    totalWeightKg, requiredCapacity, candidates));
         }
-        return total;
+        return plans;
+    }
+
+    // 🤝 Partitions may want the same driver: oldest groups pick first, each driver is booked once
+    private int merge(List<Plan> plans, List<DeliveryAgent> agents) {
+        plans.sort(Comparator.comparing(Plan::oldest, Comparator.nullsLast(Comparator.naturalOrder())));
+        Set<Long> taken = new HashSet<>();
+        int assigned = 0;
+        for (Plan plan : plans) {
+            DeliveryAgent booked = null;
+            int groupAssigned = 0;
+            for (DeliveryAgent candidate : plan.candidates()) {
+                if (!taken.add(candidate.getId()))
+                    continue; // booked for an earlier group, or lost to another cycle
+                groupAssigned = transitionService.assignGroup(plan.orderIds(), candidate.getId(), true);
+                if (groupAssigned > 0) {
+                    booked = candidate;
+                    break;
+                }
+            }
+            if (booked == null) {
+                // 🔁 Shortlist used up: re-rank the matching drivers nobody has tried yet, nearest first
+                for (DeliveryAgent candidate : remaining(plan, agents, taken)) {
+                    taken.add(candidate.getId());
+                    groupAssigned = transitionService.assignGroup(plan.orderIds(), candidate.getId(), true);
+                    if (groupAssigned > 0) {
+                        booked = candidate;
+                        break;
+                    }
+                }
+            }
+            if (booked == null) {
+                log.warn("⚠️ No eligible {} driver left for orders {} (totalWeight={}kg)",
+                        plan.capacity(), plan.orderIds(), String.format("%.2f", plan.totalWeightKg()));
+                continue;
+            }
+            assigned += groupAssigned;
+
+            Warehouse warehouse = plan.warehouse();
+            log.info("✅ Assigned driver '{}' to orders {} | Vehicle: {} | TotalWeight={}kg | DistanceToWarehouse={}km",
+                    booked.getName(),
+                    plan.orderIds(),
+                    booked.getVehicleCapacity(),
+                    String.format("%.2f", plan.totalWeightKg()),
+                    String.format("%.2f", distance(booked.getLatitude(), booked.getLongitude(),
+                            warehouse.getLatitude(), warehouse.getLongitude())));
+        }
+        return assigned;
+    }
+
+    private List<DeliveryAgent> remaining(Plan plan, List<DeliveryAgent> agents, Set<Long> taken) {
+        Warehouse warehouse = plan.warehouse();
+        return agents.stream()
+                .filter(a -> a.getVehicleCapacity() == plan.capacity() && !taken.contains(a.getId()))
+                .sorted(Comparator.comparingDouble(a -> distance(a.getLatitude(), a.getLongitude(),
+                        warehouse.getLatitude(), warehouse.getLongitude())))
+                .toList();
     }
 
     private double distance(double lat1, double lon1, double lat2, double lon2) {
-        double R = 6371;
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                        * Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        return R * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return GeoDistance.haversineKm(lat1, lon1, lat2, lon2);
+    }
+
+    private record Plan(Warehouse warehouse, List<Long> orderIds, LocalDateTime oldest, double totalWeightKg,
+            VehicleCapacity capacity, List<DeliveryAgent> candidates) {
     }
 }
@@ -0,0 +1,218 @@
+package com.qwqer.demo.service;
+
+import com.qwqer.demo.dto.BulkOrderResponse;
+import com.qwqer.demo.dto.BulkOrderResponse.ItemResult;
+import com.qwqer.demo.dto.MerchantOrderRequest;
+import com.qwqer.demo.entity.Customer;
+import com.qwqer.demo.entity.CustomerOrder;
+import com.qwqer.demo.entity.Product;
+import com.qwqer.demo.repository.CustomerOrderRepository;
+import com.qwqer.demo.repository.CustomerRepository;
+import com.qwqer.demo.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk intake for merchant orders (POST /api/orders/bulk).
+ *
+ * Same rules as OrderService.createOrderByMerchant, but:
+ *  - products and customers are looked up once per request / chunk with IN queries,
+ *  - customers without an id are matched by phone, and each new phone is created only once,
+ *  - orders and new customers are written in chunks, one transaction per chunk, as JDBC batches
+ *    (CustomerOrder and Customer ids come from pooled sequences, see hibernate.jdbc.batch_size).
+ * A chunk that fails on write is retried item by item so only the bad items are rejected.
+ */
+@Service
+public class BulkOrderService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(BulkOrderService.class);
+
+    private final CustomerOrderRepository orderRepository;
+    private final CustomerRepository customerRepository;
+    private final ProductRepository productRepository;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${orders.bulk.chunk-size:500}")
+    private int chunkSize = 500;
+
+    public BulkOrderService(CustomerOrderRepository orderRepository, CustomerRepository customerRepository,
+            ProductRepository productRepository, Validator validator, PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.customerRepository = customerRepository;
+        this.productRepository = productRepository;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public BulkOrderResponse placeOrders(List<MerchantOrderRequest> requests) {
+        long start = System.currentTimeMillis();
+        ItemResult[] results = new ItemResult[requests.size()];
+
+        // 1️⃣ field validation, without failing the whole request
+        List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            MerchantOrderRequest request = requests.get(i);
+            if (request == null) {
+                results[i] = ItemResult.rejected(i, "Order is empty");
+                continue;
+            }
+            Set<ConstraintViolation<MerchantOrderRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                results[i] = ItemResult.rejected(i, violations.stream()
+                        .map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; ")));
+                continue;
+            }
+            valid.add(i);
+        }
+
+        // 2️⃣ one product lookup for the whole request
+        Set<Long> productIds = valid.stream().map(i -> requests.get(i).getProductId()).collect(Collectors.toSet());
+        Set<Long> knownProducts = productRepository.findAllById(productIds).stream()
+                .map(Product::getId).collect(Collectors.toSet());
+        List<Integer> accepted = new ArrayList<>();
+        for (int i : valid) {
+            if (knownProducts.contains(requests.get(i).getProductId())) {
+                accepted.add(i);
+            } else {
+                results[i] = ItemResult.rejected(i, "Product not found with ID: " + requests.get(i).getProductId());
+            }
+        }
+
+        // 3️⃣ chunked writes; phone -> customer id survives across chunks so a new customer is created once
+        Map<String, Long> customerIdByPhone = new HashMap<>();
+        for (int from = 0; from < accepted.size(); from += chunkSize) {
+            List<Integer> chunk = accepted.subList(from, Math.min(from + chunkSize, accepted.size()));
+            try {
+                Map<String, Long> chunkPhones = new HashMap<>(customerIdByPhone);
+                List<ItemResult> written = transactionTemplate.execute(status -> writeChunk(requests, chunk, chunkPhones));
+                written.forEach(r -> results[r.getIndex()] = r);
+                customerIdByPhone = chunkPhones;
+            } catch (RuntimeException e) {
+                log.warn("⚠️ Bulk chunk of {} orders failed ({}), retrying one by one", chunk.size(), e.getMessage());
+                for (int i : chunk) {
+                    Map<String, Long> itemPhones = new HashMap<>(customerIdByPhone);
+                    try {
+                        ItemResult r = transactionTemplate.execute(status -> writeChunk(requests, List.of(i), itemPhones)).get(0);
+                        results[i] = r;
+                        customerIdByPhone = itemPhones;
+                    } catch (RuntimeException itemError) {
+                        results[i] = ItemResult.rejected(i, rootMessage(itemError));
+                    }
+                }
+            }
+        }
+
+        int created = 0;
+        for (ItemResult r : results) {
+            if (r.isCreated()) {
+                created++;
+            }
+        }
+        log.info("📥 Bulk intake: {} received, {} created in {} ms",
+                requests.size(), created, System.currentTimeMillis() - start);
+        return new BulkOrderResponse(requests.size(), created, requests.size() - created, Arrays.asList(results));
+    }
+
+    private List<ItemResult> writeChunk(List<MerchantOrderRequest> requests, List<Integer> chunk,
+            Map<String, Long> customerIdByPhone) {
+        // customers referenced by id, loaded once for the chunk (managed, so name/phone updates are batched too)
+        Set<Long> customerIds = new HashSet<>();
+        Set<String> phones = new HashSet<>();
+        for (int i : chunk) {
+            MerchantOrderRequest request = requests.get(i);
+            if (request.getCustomerId() != null && request.getCustomerId() > 0) {
+                customerIds.add(request.getCustomerId());
+            }
+            phones.add(request.getCustomerPhone());
+        }
+        Map<Long, Customer> customersById = new HashMap<>();
+        for (Customer c : customerRepository.findAllById(customerIds)) {
+            customersById.put(c.getId(), c);
+        }
+        phones.removeAll(customerIdByPhone.keySet());
+        if (!phones.isEmpty()) {
+            for (Customer c : customerRepository.findByPhoneIn(phones)) {
+                customerIdByPhone.putIfAbsent(c.getPhone(), c.getId());
+            }
+        }
+
+        List<CustomerOrder> orders = new ArrayList<>(chunk.size());
+        for (int i : chunk) {
+            MerchantOrderRequest request = requests.get(i);
+            Long customerId = resolveCustomer(request, customersById, customerIdByPhone);
+
+            CustomerOrder order = new CustomerOrder(
+                    customerId,
+                    request.getCustomerName(),
+                    request.getAddress(),
+                    request.getProductId(),
+                    request.getTotalAmount(),
+                    request.getQuantity());
+            String notes = OrderService.combineNotes(request);
+            if (notes != null) {
+                order.setNotes(notes);
+            }
+            orders.add(order);
+        }
+
+        orderRepository.saveAll(orders);
+        // push the batch out now and drop the entities, so a long request does not grow the persistence context
+        entityManager.flush();
+        entityManager.clear();
+
+        List<ItemResult> written = new ArrayList<>(chunk.size());
+        for (int k = 0; k < chunk.size(); k++) {
+            CustomerOrder order = orders.get(k);
+            written.add(ItemResult.created(chunk.get(k), order.getId(), order.getCustomerId()));
+        }
+        return written;
+    }
+
+    // existing customer by id (refreshing name/phone like the single-order path), else by phone, else a new one
+    private Long resolveCustomer(MerchantOrderRequest request, Map<Long, Customer> customersById,
+            Map<String, Long> customerIdByPhone) {
+        Customer existing = request.getCustomerId() != null ? customersById.get(request.getCustomerId()) : null;
+        if (existing != null) {
+            if (!Objects.equals(existing.getName(), request.getCustomerName())) {
+                existing.setName(request.getCustomerName());
+            }
+            if (!Objects.equals(existing.getPhone(), request.getCustomerPhone())) {
+                existing.setPhone(request.getCustomerPhone());
+            }
+            return existing.getId();
+        }
+        Long byPhone = customerIdByPhone.get(request.getCustomerPhone());
+        if (byPhone != null) {
+            return byPhone;
+        }
+        Customer customer = new Customer();
+        customer.setName(request.getCustomerName());
+        customer.setPhone(request.getCustomerPhone());
+        customer.setAddress(request.getAddress());
+        // persist only takes an id from the pooled sequence; the INSERT goes out with the chunk's batched flush
+        entityManager.persist(customer);
+        customerIdByPhone.put(customer.getPhone(), customer.getId());
+        return customer.getId();
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+    }
+}
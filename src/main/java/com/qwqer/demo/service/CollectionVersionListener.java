@@ -0,0 +1,46 @@
+package com.qwqer.demo.service;
+
+import com.qwqer.demo.entity.Customer;
+import com.qwqer.demo.entity.CustomerOrder;
+import com.qwqer.demo.entity.DeliveryAgent;
+import com.qwqer.demo.entity.Merchant;
+import com.qwqer.demo.entity.Product;
+import com.qwqer.demo.entity.Warehouse;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.stereotype.Component;
+
+// JPA entity listener: any insert, update or delete moves the collection's version (after commit)
+@Component
+public class CollectionVersionListener {
+
+    private final CollectionVersions versions;
+
+    public CollectionVersionListener(CollectionVersions versions) {
+        this.versions = versions;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onWrite(Object entity) {
+        CollectionVersions.Collection collection = null;
+        if (entity instanceof CustomerOrder) {
+            collection = CollectionVersions.Collection.ORDERS;
+        } else if (entity instanceof Customer) {
+            collection = CollectionVersions.Collection.CUSTOMERS;
+        } else if (entity instanceof Product) {
+            collection = CollectionVersions.Collection.PRODUCTS;
+        } else if (entity instanceof Warehouse) {
+            collection = CollectionVersions.Collection.WAREHOUSES;
+        } else if (entity instanceof DeliveryAgent) {
+            collection = CollectionVersions.Collection.AGENTS;
+        } else if (entity instanceof Merchant) {
+            collection = CollectionVersions.Collection.MERCHANTS;
+        }
+        if (collection != null) {
+            versions.bumpAfterCommit(collection);
+        }
+    }
+}
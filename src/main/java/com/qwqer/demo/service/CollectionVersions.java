@@ -0,0 +1,87 @@
+package com.qwqer.demo.service;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One version counter per collection, bumped after every committed write (see CollectionVersionListener).
+ * List endpoints turn the counter into a strong ETag, so an unchanged poll is answered with 304
+ * before touching the database. The boot epoch keeps ETags from a previous run from matching.
+ *
+ * The counters are in memory and only follow this instance's writes; the cluster profile replaces
+ * this bean with SharedCollectionVersions, which keeps them in the database.
+ */
+@Component
+@Profile("!cluster")
+public class CollectionVersions {
+
+    public enum Collection { ORDERS, CUSTOMERS, PRODUCTS, WAREHOUSES, AGENTS, MERCHANTS }
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CollectionVersions.class);
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLongArray versions = new AtomicLongArray(Collection.values().length);
+
+    public long current(Collection collection) {
+        return versions.get(collection.ordinal());
+    }
+
+    public String etag(Collection collection) {
+        return "\"" + collection.name().toLowerCase() + "-" + epoch + "-" + current(collection) + "\"";
+    }
+
+    public void bump(Collection collection) {
+        bump(EnumSet.of(collection));
+    }
+
+    protected void bump(Set<Collection> collections) {
+        collections.forEach(c -> versions.incrementAndGet(c.ordinal()));
+    }
+
+    // bump once the surrounding transaction commits, so a reader never sees old rows under a new version
+    public void bumpAfterCommit(Collection collection) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump(collection);
+            return;
+        }
+        PendingBumps pending = (PendingBumps) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingBumps();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.collections.add(collection);
+    }
+
+    // called from afterCommit, while the committed transaction still holds its connection
+    protected void bumpCommitted(Set<Collection> collections) {
+        try {
+            bump(collections);
+        } catch (RuntimeException e) {
+            // the write is committed either way; until the next bump a poll may still get 304 for the old data
+            log.error("Could not bump versions of {}", collections, e);
+        }
+    }
+
+    private class PendingBumps implements TransactionSynchronization {
+        private final Set<Collection> collections = EnumSet.noneOf(Collection.class);
+
+        @Override
+        public void afterCommit() {
+            if (!collections.isEmpty()) {
+                bumpCommitted(collections);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CollectionVersions.this);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.qwqer.demo.service;
+
+import com.qwqer.demo.enums.OrderStatus;
+import com.qwqer.demo.repository.ArchivedOrderRepository;
+import com.qwqer.demo.repository.CustomerOrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-customer order counters for the history endpoint.
+ *
+ * A customer's counters are loaded with one grouped query on first use and then adjusted in place
+ * by OrderDetailsReadModel on every committed status transition. Entries are reloaded after
+ * {@code orders.history.counters-ttl-ms} so any drift from racing updates heals on its own.
+ * Counts cover live and archived orders; archiving moves an order without changing its status.
+ *
+ * The counters are per instance and only follow transitions committed through this instance, so with
+ * several instances on one database they would drift for up to the TTL. A TTL of 0 turns the cache
+ * off (every read is the grouped query); the cluster profile does that.
+ */
+@Component
+public class CustomerOrderStats {
+
+    private final CustomerOrderRepository orderRepository;
+    private final ArchivedOrderRepository archiveRepository;
+    private final Map<Long, Counters> counters = new ConcurrentHashMap<>();
+
+    @Value("${orders.history.counters-ttl-ms:600000}")
+    private long ttlMs = 600000;
+
+    public CustomerOrderStats(CustomerOrderRepository orderRepository, ArchivedOrderRepository archiveRepository) {
+        this.orderRepository = orderRepository;
+        this.archiveRepository = archiveRepository;
+    }
+
+    // null when the customer does not exist
+    public Counters get(Long customerId) {
+        if (ttlMs <= 0) {
+            return load(customerId);
+        }
+        Counters cached = counters.get(customerId);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt < ttlMs) {
+            return cached;
+        }
+        Counters loaded = load(customerId);
+        if (loaded == null) {
+            counters.remove(customerId);
+        } else {
+            counters.put(customerId, loaded);
+        }
+        return loaded;
+    }
+
+    // customer name + live count per status in one query (a customer without orders yields one row with a null status), then archived counts
+    private Counters load(Long customerId) {
+        List<Object[]> rows = orderRepository.countByStatusForCustomer(customerId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Counters loaded = new Counters((String) rows.get(0)[0]);
+        for (Object[] row : rows) {
+            if (row[1] != null) {
+                loaded.add((OrderStatus) row[1], (Long) row[2]);
+            }
+        }
+        for (Object[] row : archiveRepository.countByStatusForCustomer(customerId)) {
+            loaded.add((OrderStatus) row[0], (Long) row[1]);
+        }
+        return loaded;
+    }
+
+    // 🔁 apply one committed change of an order; either side may be null (created / deleted)
+    public void onTransition(Long oldCustomerId, OrderStatus oldStatus, Long newCustomerId, OrderStatus newStatus) {
+        if (oldCustomerId != null && oldStatus != null) {
+            Counters c = counters.get(oldCustomerId);
+            if (c != null) {
+                c.add(oldStatus, -1);
+            }
+        }
+        if (newCustomerId != null && newStatus != null) {
+            Counters c = counters.get(newCustomerId);
+            if (c != null) {
+                c.add(newStatus, 1);
+            }
+        }
+    }
+
+    public void evict(Long customerId) {
+        counters.remove(customerId);
+    }
+
+    public static class Counters {
+        private final String customerName;
+        private final long[] byStatus = new long[OrderStatus.values().length];
+        private final long loadedAt = System.currentTimeMillis();
+
+        Counters(String customerName) {
+            this.customerName = customerName;
+        }
+
+        synchronized void add(OrderStatus status, long delta) {
+            byStatus[status.ordinal()] += delta;
+        }
+
+        public String getCustomerName() {
+            return customerName;
+        }
+
+        public synchronized long count(OrderStatus status) {
+            return byStatus[status.ordinal()];
+        }
+
+        public synchronized long total() {
+            long sum = 0;
+            for (long c : byStatus) {
+                sum += c;
+            }
+            return sum;
+        }
+
+        public synchronized Map<OrderStatus, Long> snapshot() {
+            Map<OrderStatus, Long> copy = new EnumMap<>(OrderStatus.class);
+            for (OrderStatus status : OrderStatus.values()) {
+                if (byStatus[status.ordinal()] != 0) {
+                    copy.put(status, byStatus[status.ordinal()]);
+                }
+            }
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.qwqer.demo.service;
+
+import com.qwqer.demo.entity.CustomerOrder;
+import com.qwqer.demo.enums.OrderStatus;
+import com.qwqer.demo.repository.CustomerOrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Work claiming for the assignment engines, so several app instances (and both engines inside one
+ * instance) can dispatch against the same database without assigning an order twice.
+ *
+ * A cycle runs in one transaction and starts with {@link #claimPending}: up to
+ * {@code dispatch.claim.batch-size} of the oldest eligible pending orders, locked with
+ * {@code SELECT ... FOR UPDATE SKIP LOCKED}. A concurrent cycle skips those rows and claims the next
+ * batch instead of waiting, so dispatch throughput grows with instances. The locks end with the
+ * cycle's transaction, or with its connection if the instance dies. Drivers are claimed by
+ * OrderTransitionService.assignGroup with a conditional AVAILABLE → ASSIGNED update.
+ */
+@Service
+public class DispatchClaims {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(DispatchClaims.class);
+
+    private final CustomerOrderRepository orderRepository;
+    private final DispatchMetrics dispatchMetrics;
+
+    @Value("${dispatch.claim.batch-size:200}")
+    private int batchSize = 200;
+
+    public DispatchClaims(CustomerOrderRepository orderRepository, DispatchMetrics dispatchMetrics) {
+        this.orderRepository = orderRepository;
+        this.dispatchMetrics = dispatchMetrics;
+    }
+
+    // the claim lasts until the caller's transaction ends, so there must be one
+    public List<CustomerOrder> claimPending(LocalDateTime createdBefore) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Pending orders can only be claimed inside a dispatch transaction");
+        }
+        List<CustomerOrder> claimed = orderRepository.lockPendingSkipLocked(createdBefore, batchSize);
+        if (!claimed.isEmpty()) {
+            log.debug("🔒 Claimed {} pending orders", claimed.size());
+        }
+        return claimed;
+    }
+
+    // feeds the backlog gauges from one aggregate query over the status index
+    public void refreshBacklog() {
+        List<Object[]> rows = orderRepository.countAndOldestByStatus(OrderStatus.PENDING_ASSIGNMENT);
+        Object[] row = rows.isEmpty() ? new Object[] { 0L, null } : rows.get(0);
+        dispatchMetrics.updateBacklog(((Number) row[0]).longValue(), (LocalDateTime) row[1]);
+    }
+}
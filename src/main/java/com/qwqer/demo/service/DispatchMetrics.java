@@ -0,0 +1,78 @@
+package com.qwqer.demo.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Meters for the driver assignment cycles.
+ *
+ * All meters are registered up front, so recording a cycle is two meter updates with no
+ * registry lookup or allocation. The backlog gauges are fed once per cycle from one aggregate
+ * query (DispatchClaims), so scraping them costs no query.
+ */
+@Component
+public class DispatchMetrics {
+
+    private final MeterRegistry registry;
+    private final AtomicLong pendingOrders = new AtomicLong();
+    private final AtomicLong oldestPendingEpochMs = new AtomicLong();
+
+    public DispatchMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("dispatch.pending.orders", pendingOrders, AtomicLong::get)
+                .description("Orders waiting for a driver at the last assignment cycle")
+                .register(registry);
+        Gauge.builder("dispatch.pending.oldest.age", oldestPendingEpochMs, DispatchMetrics::ageSeconds)
+                .description("Age of the oldest order waiting for a driver")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    // one per assignment engine, created once by its owner
+    public Cycle cycle(String engine) {
+        Timer duration = Timer.builder("dispatch.assignment.cycle")
+                .description("Duration of one assignment cycle")
+                .tag("engine", engine)
+                .publishPercentileHistogram()
+                .register(registry);
+        DistributionSummary assigned = DistributionSummary.builder("dispatch.assignment.orders")
+                .description("Orders assigned to a driver per cycle")
+                .tag("engine", engine)
+                .register(registry);
+        return new Cycle(duration, assigned);
+    }
+
+    public void updateBacklog(long pending, LocalDateTime oldest) {
+        pendingOrders.set(pending);
+        oldestPendingEpochMs.set(oldest == null ? 0 : oldest.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    private static double ageSeconds(AtomicLong epochMs) {
+        long oldest = epochMs.get();
+        return oldest == 0 ? 0 : (System.currentTimeMillis() - oldest) / 1000.0;
+    }
+
+    public static class Cycle {
+        private final Timer duration;
+        private final DistributionSummary assigned;
+
+        Cycle(Timer duration, DistributionSummary assigned) {
+            this.duration = duration;
+            this.assigned = assigned;
+        }
+
+        // startNanos from System.nanoTime() at the start of the cycle
+        public void record(long startNanos, int ordersAssigned) {
+            duration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            assigned.record(ordersAssigned);
+        }
+    }
+}
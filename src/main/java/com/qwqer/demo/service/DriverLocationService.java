@@ -4,13 +4,22 @@ import com.qwqer.demo.entity.DeliveryAgent;
 import com.qwqer.demo.repository.DeliveryAgentRepository;
 
 import jakarta.annotation.PostConstruct;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.qwqer.demo.dto.DriverPositiondTO;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This service:
@@ -31,12 +40,37 @@ public class DriverLocationService {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PeriodicJobs periodicJobs;
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(DriverLocationService.class);
+
+    private Timer broadcastTimer;
+    private DistributionSummary payloadBytes;
+    private PeriodicJobs.Job tickJob;
+
     // keep live positions in memory: agentId -> [lat, lon]
     private final Map<Long, double[]> livePositions = new ConcurrentHashMap<>();
     private final Random rnd = new Random();
 
     @PostConstruct
     public void init() {
+        broadcastTimer = Timer.builder("drivers.broadcast")
+                .description("Building, serialising and fanning out one driver position broadcast")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        payloadBytes = DistributionSummary.builder("drivers.broadcast.payload")
+                .description("Size of one driver position broadcast")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        tickJob = periodicJobs.inline("driver-broadcast", 2000);
+
         // load initial positions from DB into memory
         List<DeliveryAgent> agents = agentRepository.findAll();
         for (DeliveryAgent a : agents) {
@@ -51,9 +85,13 @@ public class DriverLocationService {
         broadcastPositions();
     }
 
-    // simulate and broadcast every 2 seconds
-    @Scheduled(fixedRate = 2000)
+    // simulate and broadcast every 2 seconds, on its own scheduler thread; late catch-up ticks are dropped
+    @Scheduled(fixedRate = 2000, scheduler = "broadcastScheduler")
     public void tickAndBroadcast() {
+        tickJob.tick(this::moveAndBroadcast);
+    }
+
+    private void moveAndBroadcast() {
         // simulate small movement for each live driver
         for (Map.Entry<Long, double[]> e : livePositions.entrySet()) {
             double[] pos = e.getValue();
@@ -67,6 +105,7 @@ public class DriverLocationService {
     }
 
     private void broadcastPositions() {
+        long start = System.nanoTime();
         // Read agents from DB to get name/phone/vehicleCapacity/status
         List<DeliveryAgent> agents = agentRepository.findAll();
 
@@ -93,7 +132,20 @@ public class DriverLocationService {
             payload.add(dto);
         }
 
-        // send to subscribed clients
-        messagingTemplate.convertAndSend("/topic/driver-updates", payload);
+        // send to subscribed clients; serialised here once so the payload size is known
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialise driver positions", e);
+            return;
+        }
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.setLeaveMutable(true);
+        messagingTemplate.send("/topic/driver-updates", MessageBuilder.createMessage(json, headers.getMessageHeaders()));
+
+        payloadBytes.record(json.length);
+        broadcastTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
     }
 }
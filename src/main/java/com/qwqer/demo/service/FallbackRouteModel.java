@@ -0,0 +1,132 @@
+package com.qwqer.demo.service;
+
+import com.enums.VehicleCapacity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalTime;
+
+/**
+ * Travel-time model used when ORS cannot give us a real route.
+ *
+ * Road distance = straight-line distance * circuity factor, where the circuity factor is
+ * recalibrated from the real (non-fallback) routes in the route cache. Duration uses a base
+ * speed per VehicleCapacity, scaled for peak hours and night time.
+ */
+@Service
+public class FallbackRouteModel {
+
+    private static final double MIN_CIRCUITY = 1.0;
+    private static final double MAX_CIRCUITY = 3.0;
+    private static final double MIN_CALIBRATION_METERS = 300.0; // very short hops are all noise
+    private static final int MIN_CALIBRATION_SAMPLES = 5;
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FallbackRouteModel.class);
+
+    private final RouteCache routeCache;
+
+    @Value("${routes.fallback.speed-kmh.two-wheeler:22}")
+    private double twoWheelerSpeedKmh = 22;
+
+    @Value("${routes.fallback.speed-kmh.four-wheeler:18}")
+    private double fourWheelerSpeedKmh = 18;
+
+    @Value("${routes.fallback.peak-factor:0.65}")
+    private double peakFactor = 0.65;
+
+    @Value("${routes.fallback.night-factor:1.25}")
+    private double nightFactor = 1.25;
+
+    private volatile double circuity;
+
+    public FallbackRouteModel(RouteCache routeCache,
+            @Value("${routes.fallback.default-circuity:1.35}") double defaultCircuity) {
+        this.routeCache = routeCache;
+        this.circuity = defaultCircuity;
+    }
+
+    public Estimate estimate(double startLat, double startLng, double endLat, double endLng,
+            VehicleCapacity vehicle, LocalTime timeOfDay) {
+        double straightMeters = GeoDistance.haversineKm(startLat, startLng, endLat, endLng) * 1000.0;
+        return estimateFromStraightLine(straightMeters, vehicle, timeOfDay);
+    }
+
+    public Estimate estimateFromStraightLine(double straightMeters, VehicleCapacity vehicle, LocalTime timeOfDay) {
+        double factor = circuity;
+        double roadMeters = straightMeters * factor;
+        double speedKmh = speedKmh(vehicle, timeOfDay);
+        double durationSeconds = roadMeters / 1000.0 / speedKmh * 3600.0;
+        return new Estimate(roadMeters, durationSeconds, speedKmh, factor);
+    }
+
+    public double speedKmh(VehicleCapacity vehicle, LocalTime timeOfDay) {
+        double base = vehicle == VehicleCapacity.FOUR_WHEELER ? fourWheelerSpeedKmh : twoWheelerSpeedKmh;
+        int hour = timeOfDay.getHour();
+        if ((hour >= 8 && hour < 11) || (hour >= 17 && hour < 21)) {
+            return base * peakFactor; // 🚦 rush hours
+        }
+        if (hour >= 22 || hour < 6) {
+            return base * nightFactor; // 🌙 empty roads
+        }
+        return base;
+    }
+
+    public double getCircuity() {
+        return circuity;
+    }
+
+    // 📏 road distance / straight-line distance over all real cached routes
+    @Scheduled(fixedDelayString = "${routes.fallback.calibration-interval-ms:300000}")
+    public void calibrate() {
+        double roadSum = 0;
+        double straightSum = 0;
+        int samples = 0;
+        for (RouteCache.CachedRoute route : routeCache.routes()) {
+            if (route.isFallback() || route.getStraightLineMeters() < MIN_CALIBRATION_METERS
+                    || route.getDistance() <= 0) {
+                continue;
+            }
+            roadSum += route.getDistance();
+            straightSum += route.getStraightLineMeters();
+            samples++;
+        }
+        if (samples < MIN_CALIBRATION_SAMPLES) {
+            return;
+        }
+        double calibrated = Math.max(MIN_CIRCUITY, Math.min(MAX_CIRCUITY, roadSum / straightSum));
+        circuity = calibrated;
+        log.info("📏 Fallback circuity recalibrated to {} from {} cached routes",
+                String.format("%.3f", calibrated), samples);
+    }
+
+    public static class Estimate {
+        private final double distanceMeters;
+        private final double durationSeconds;
+        private final double speedKmh;
+        private final double circuity;
+
+        public Estimate(double distanceMeters, double durationSeconds, double speedKmh, double circuity) {
+            this.distanceMeters = distanceMeters;
+            this.durationSeconds = durationSeconds;
+            this.speedKmh = speedKmh;
+            this.circuity = circuity;
+        }
+
+        public double getDistanceMeters() {
+            return distanceMeters;
+        }
+
+        public double getDurationSeconds() {
+            return durationSeconds;
+        }
+
+        public double getSpeedKmh() {
+            return speedKmh;
+        }
+
+        public double getCircuity() {
+            return circuity;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.qwqer.demo.service;
+
+import com.qwqer.demo.entity.Merchant;
+import com.qwqer.demo.entity.OrderDetailsView;
+import com.qwqer.demo.repository.ArchivedOrderRepository;
+import com.qwqer.demo.repository.CustomerOrderRepository;
+import com.qwqer.demo.repository.CustomerRepository;
+import com.qwqer.demo.repository.DeliveryAgentRepository;
+import com.qwqer.demo.repository.MerchantRepository;
+import com.qwqer.demo.repository.OrderDetailsViewRepository;
+import com.qwqer.demo.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Keeps the order_details_view table in step with orders, customers, agents, products and merchants.
+ *
+ * Changes are collected per transaction and applied together after it commits, in a transaction of
+ * their own on the afterCommitWriter thread, so a rolled-back write never reaches the view, a failed
+ * view update never fails the write, the committing thread never needs a second connection, and a
+ * batch of N orders costs a couple of IN queries plus one batched insert.
+ * Name changes are one indexed bulk UPDATE on the view; order changes rebuild their rows and
+ * move the per-customer status counters in CustomerOrderStats from the old row's status to the new one.
+ * Status transitions themselves (journal, SSE) are published by OrderTransitions, not derived from the view.
+ *
+ * Changes whose update fails are queued and retried every {@code view.retry.interval-ms}; a periodic
+ * reconciliation pass compares every row with a fresh build from the live tables and repairs whatever
+ * is still different (including rows dropped from a full retry queue).
+ */
+@Service
+public class OrderDetailsReadModel {
+
+    // ORDER_ARCHIVED drops the view row but keeps the order in the customer counters (it still counts in history)
+    public enum Kind { ORDER, ORDER_REMOVED, ORDER_ARCHIVED, CUSTOMER, AGENT, PRODUCT, MERCHANT }
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OrderDetailsReadModel.class);
+
+    private final OrderDetailsViewRepository viewRepository;
+    private final CustomerOrderRepository orderRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final CustomerRepository customerRepository;
+    private final DeliveryAgentRepository agentRepository;
+    private final ProductRepository productRepository;
+    private final MerchantRepository merchantRepository;
+    private final CustomerOrderStats customerOrderStats;
+    private final CollectionVersions collectionVersions;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor afterCommitWriter;
+    private final BlockingQueue<Change> failed;
+
+    @Value("${view.reconcile.batch-size:1000}")
+    private int reconcileBatchSize = 1000;
+
+    public OrderDetailsReadModel(OrderDetailsViewRepository viewRepository, CustomerOrderRepository orderRepository,
+            ArchivedOrderRepository archivedOrderRepository, CustomerRepository customerRepository, DeliveryAgentRepository agentRepository,
+            ProductRepository productRepository, MerchantRepository merchantRepository,
+            CustomerOrderStats customerOrderStats, CollectionVersions collectionVersions,
+            PlatformTransactionManager transactionManager, @Qualifier("afterCommitWriter") ThreadPoolTaskExecutor afterCommitWriter,
+            @Value("${view.retry.max-pending:10000}") int maxPendingRetries) {
+        this.viewRepository = viewRepository;
+        this.orderRepository = orderRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.customerRepository = customerRepository;
+        this.agentRepository = agentRepository;
+        this.productRepository = productRepository;
+        this.merchantRepository = merchantRepository;
+        this.customerOrderStats = customerOrderStats;
+        this.collectionVersions = collectionVersions;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.afterCommitWriter = afterCommitWriter;
+        this.failed = new LinkedBlockingQueue<>(maxPendingRetries);
+    }
+
+    // changes are collected per transaction and applied together once it commits
+    @EventListener
+    public void onChange(Change change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyAll(List.of(change));
+            return;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.changes.add(change);
+    }
+
+    // the writer thread applies them once the committing thread has let go of its connection
+    private void applyLater(List<Change> changes) {
+        try {
+            afterCommitWriter.execute(() -> applyAll(changes));
+        } catch (TaskRejectedException e) {
+            retryLater(changes, e);
+        }
+    }
+
+    // the executor itself would only shut down after JPA is closed; this bean goes before the repositories
+    @PreDestroy
+    public void drainPending() {
+        afterCommitWriter.shutdown();
+    }
+
+    private void applyAll(List<Change> changes) {
+        Map<Kind, Set<Long>> ids = new EnumMap<>(Kind.class);
+        for (Change change : changes) {
+            ids.computeIfAbsent(change.getKind(), k -> new LinkedHashSet<>()).add(change.getId());
+        }
+        Set<Long> removed = ids.getOrDefault(Kind.ORDER_REMOVED, Set.of());
+        Set<Long> archived = ids.getOrDefault(Kind.ORDER_ARCHIVED, Set.of());
+        Set<Long> orders = ids.getOrDefault(Kind.ORDER, new LinkedHashSet<>());
+        orders.removeAll(removed);
+        orders.removeAll(archived);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!orders.isEmpty()) {
+                    refreshOrders(orders);
+                }
+                if (!removed.isEmpty()) {
+                    removeOrders(removed);
+                }
+                if (!archived.isEmpty()) {
+                    viewRepository.deleteAllByIdInBatch(archived);
+                }
+                ids.getOrDefault(Kind.CUSTOMER, Set.of()).forEach(this::refreshCustomer);
+                ids.getOrDefault(Kind.AGENT, Set.of()).forEach(this::refreshAgent);
+                ids.getOrDefault(Kind.PRODUCT, Set.of()).forEach(this::refreshProduct);
+                ids.getOrDefault(Kind.MERCHANT, Set.of()).forEach(this::refreshMerchant);
+            });
+            // /details reads the view, so its ETag may only move once the view has caught up
+            collectionVersions.bump(CollectionVersions.Collection.ORDERS);
+        } catch (RuntimeException e) {
+            retryLater(changes, e);
+        }
+    }
+
+    private void retryLater(List<Change> changes, RuntimeException cause) {
+        int dropped = 0;
+        for (Change change : changes) {
+            if (!failed.offer(change)) {
+                dropped++;
+            }
+        }
+        log.error("Order details view update failed for {} changes, queued for retry ({} left to reconciliation)",
+                changes.size(), dropped, cause);
+    }
+
+    // 🔁 failed changes go through applyAll again; a change that fails again is queued again
+    @Scheduled(fixedDelayString = "${view.retry.interval-ms:5000}")
+    public void retryFailed() {
+        List<Change> retry = new ArrayList<>();
+        failed.drainTo(retry);
+        if (!retry.isEmpty()) {
+            log.info("🔁 Retrying {} order details view changes", retry.size());
+            applyAll(retry);
+        }
+    }
+
+    // 🩺 walks customer_orders by id, rebuilds each chunk and repairs the rows that differ; also drops rows of gone orders
+    @Scheduled(initialDelayString = "${view.reconcile.initial-delay-ms:60000}",
+               fixedDelayString = "${view.reconcile.interval-ms:3600000}")
+    public int reconcile() {
+        long start = System.currentTimeMillis();
+        int repaired = 0;
+        long afterId = 0;
+        List<Long> ids;
+        do {
+            ids = orderRepository.findIdsAfter(afterId, PageRequest.of(0, reconcileBatchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            Map<Long, OrderDetailsView> current = new HashMap<>();
+            for (OrderDetailsView row : viewRepository.findAllById(ids)) {
+                current.put(row.getOrderId(), row);
+            }
+            List<Change> repairs = new ArrayList<>();
+            for (OrderDetailsView built : viewRepository.buildFromOrders(ids)) {
+                OrderDetailsView row = current.get(built.getOrderId());
+                if (row == null || !row.sameContent(built)) {
+                    repairs.add(new Change(Kind.ORDER, built.getOrderId()));
+                }
+            }
+            if (!repairs.isEmpty()) {
+                applyAll(repairs);
+                repaired += repairs.size();
+            }
+            afterId = ids.get(ids.size() - 1);
+        } while (ids.size() == reconcileBatchSize);
+
+        List<Long> orphans = viewRepository.findOrphanIds();
+        if (!orphans.isEmpty()) {
+            Set<Long> archived = new HashSet<>(archivedOrderRepository.findExistingIds(orphans));
+            List<Change> removals = new ArrayList<>();
+            for (Long id : orphans) {
+                removals.add(new Change(archived.contains(id) ? Kind.ORDER_ARCHIVED : Kind.ORDER_REMOVED, id));
+            }
+            applyAll(removals);
+            repaired += removals.size();
+        }
+        if (repaired > 0) {
+            log.warn("🩺 Order details view reconciliation repaired {} rows in {} ms", repaired,
+                    System.currentTimeMillis() - start);
+        } else {
+            log.debug("🩺 Order details view in step with customer_orders ({} ms)", System.currentTimeMillis() - start);
+        }
+        return repaired;
+    }
+
+    private void refreshOrders(Collection<Long> orderIds) {
+        // the current view rows are the last committed state: the counters move from there to the new rows
+        Map<Long, OrderDetailsView> previous = new HashMap<>();
+        for (OrderDetailsView row : viewRepository.findAllById(orderIds)) {
+            previous.put(row.getOrderId(), row);
+        }
+        List<OrderDetailsView> rows = viewRepository.buildFromOrders(orderIds);
+        for (OrderDetailsView row : rows) {
+            OrderDetailsView before = previous.get(row.getOrderId());
+            if (before == null) {
+                row.markNew();
+            }
+            customerOrderStats.onTransition(
+                    before != null ? before.getCustomerId() : null,
+                    before != null ? before.getStatus() : null,
+                    row.getCustomerId(), row.getStatus());
+        }
+        viewRepository.saveAll(rows);
+    }
+
+    private void removeOrders(Collection<Long> orderIds) {
+        List<OrderDetailsView> rows = viewRepository.findAllById(orderIds);
+        for (OrderDetailsView previous : rows) {
+            customerOrderStats.onTransition(previous.getCustomerId(), previous.getStatus(), null, null);
+        }
+        viewRepository.deleteAllInBatch(rows);
+    }
+
+    private void refreshCustomer(Long id) {
+        customerRepository.findById(id).ifPresent(c -> {
+            viewRepository.updateCustomer(id, c.getName(), c.getPhone(), c.getAddress());
+            customerOrderStats.evict(id);
+        });
+    }
+
+    private void refreshAgent(Long id) {
+        agentRepository.findById(id).ifPresent(a -> viewRepository.updateAgent(id, a.getName(), a.getPhone()));
+    }
+
+    private void refreshProduct(Long id) {
+        productRepository.findById(id).ifPresent(p -> {
+            Merchant merchant = p.getMerchantId() != null ? merchantRepository.findById(p.getMerchantId()).orElse(null) : null;
+            viewRepository.updateProduct(id, p.getName(), p.getPrice(), p.getMerchantId(),
+                    merchant != null ? merchant.getName() : null, merchant != null ? merchant.getPhone() : null);
+        });
+    }
+
+    private void refreshMerchant(Long id) {
+        merchantRepository.findById(id).ifPresent(m -> viewRepository.updateMerchant(id, m.getName(), m.getPhone()));
+    }
+
+    // 🔄 rebuild the whole view when its row count is off (first start, or rows written while it was missing);
+    // rows that exist but hold stale content are left to the first reconcile() pass
+    @EventListener(ApplicationReadyEvent.class)
+    public void syncOnStartup() {
+        long orders = orderRepository.count();
+        long rows = viewRepository.count();
+        if (orders != rows) {
+            int rebuilt = rebuild();
+            log.info("🔄 Order details view rebuilt: {} rows (was {}, orders {})", rebuilt, rows, orders);
+        }
+    }
+
+    public int rebuild() {
+        Integer rows = transactionTemplate.execute(status -> {
+            viewRepository.deleteAllInBatch();
+            return viewRepository.rebuildAll();
+        });
+        return rows != null ? rows : 0;
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+        private final List<Change> changes = new ArrayList<>();
+
+        @Override
+        public void afterCommit() {
+            applyLater(changes);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(OrderDetailsReadModel.this);
+        }
+    }
+
+    public static class Change {
+        private final Kind kind;
+        private final Long id;
+
+        public Change(Kind kind, Long id) {
+            this.kind = kind;
+            this.id = id;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public Long getId() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.qwqer.demo.service;
+
+import com.qwqer.demo.entity.Customer;
+import com.qwqer.demo.entity.CustomerOrder;
+import com.qwqer.demo.entity.DeliveryAgent;
+import com.qwqer.demo.entity.Merchant;
+import com.qwqer.demo.entity.Product;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * JPA entity listener on every table the order details view is built from.
+ * It only publishes a change event; OrderDetailsReadModel applies it once the transaction commits,
+ * so it does not matter which service or controller made the change.
+ *
+ * Customers, agents, products and merchants only matter to the view through a few copied fields
+ * (names, phones, price). Their values as loaded are remembered per entity instance, and an update
+ * that leaves them alone (e.g. an agent status change) publishes nothing. A new one publishes nothing
+ * either: no view row can point at it yet, and the orders created with it bring their own change
+ * (a bulk intake of N orders for N new customers is N changes, not 2N).
+ */
+@Component
+public class OrderDetailsViewListener {
+
+    private final ApplicationEventPublisher publisher;
+    // entity instance -> view fields as last loaded or written; entities keep identity equals, so this is per instance
+    private final Map<Object, List<Object>> loaded = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public OrderDetailsViewListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostLoad
+    public void onLoad(Object entity) {
+        List<Object> fields = viewFields(entity);
+        if (fields != null) {
+            loaded.put(entity, fields);
+        }
+    }
+
+    @PostPersist
+    public void onPersist(Object entity) {
+        List<Object> fields = viewFields(entity);
+        if (fields != null) {
+            loaded.put(entity, fields);
+            return;
+        }
+        publish(entity, false);
+    }
+
+    @PostUpdate
+    public void onSave(Object entity) {
+        List<Object> fields = viewFields(entity);
+        if (fields != null) {
+            List<Object> before = loaded.put(entity, fields);
+            if (fields.equals(before)) {
+                return;
+            }
+        }
+        publish(entity, false);
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        publish(entity, true);
+    }
+
+    private void publish(Object entity, boolean removed) {
+        OrderDetailsReadModel.Change change = null;
+        if (entity instanceof CustomerOrder order) {
+            change = new OrderDetailsReadModel.Change(
+                    removed ? OrderDetailsReadModel.Kind.ORDER_REMOVED : OrderDetailsReadModel.Kind.ORDER, order.getId());
+        } else if (removed) {
+            return; // orders keep the last known names of a deleted customer, agent, product or merchant
+        } else if (entity instanceof Customer customer) {
+            change = new OrderDetailsReadModel.Change(OrderDetailsReadModel.Kind.CUSTOMER, customer.getId());
+        } else if (entity instanceof DeliveryAgent agent) {
+            change = new OrderDetailsReadModel.Change(OrderDetailsReadModel.Kind.AGENT, agent.getId());
+        } else if (entity instanceof Product product) {
+            change = new OrderDetailsReadModel.Change(OrderDetailsReadModel.Kind.PRODUCT, product.getId());
+        } else if (entity instanceof Merchant merchant) {
+            change = new OrderDetailsReadModel.Change(OrderDetailsReadModel.Kind.MERCHANT, merchant.getId());
+        }
+        if (change != null) {
+            publisher.publishEvent(change);
+        }
+    }
+
+    // the fields OrderDetailsReadModel copies into order_details_view; null for orders and unrelated entities
+    private static List<Object> viewFields(Object entity) {
+        if (entity instanceof Customer c) {
+            return List.of(Objects.toString(c.getName(), ""), Objects.toString(c.getPhone(), ""),
+                    Objects.toString(c.getAddress(), ""));
+        } else if (entity instanceof DeliveryAgent a) {
+            return List.of(Objects.toString(a.getName(), ""), Objects.toString(a.getPhone(), ""));
+        } else if (entity instanceof Product p) {
+            return List.of(Objects.toString(p.getName(), ""),
+                    p.getPrice() != null ? p.getPrice().stripTrailingZeros().toPlainString() : "",
+                    Objects.toString(p.getMerchantId(), ""));
+        } else if (entity instanceof Merchant m) {
+            return List.of(Objects.toString(m.getName(), ""), Objects.toString(m.getPhone(), ""));
+        }
+        return null;
+    }
+}
@@ -0,0 +1,490 @@
+package com.qwqer.demo.service;
+
+import com.qwqer.demo.dto.OrderEvent;
+import com.qwqer.demo.entity.DeliveryAgent.AgentStatus;
+import com.qwqer.demo.enums.OrderStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of committed order and agent state changes.
+ *
+ * Events go to memory-mapped segment files ({@code <first sequence>.journal}, {@code journal.segment-bytes}
+ * each) in {@code journal.dir}. Every record is framed as [int length][int CRC32C][payload]; the length is
+ * written last, so a record torn by a crash reads as the end of the log and is cut off on the next start.
+ * Each event carries a gap-free global sequence and a per-order / per-agent sequence.
+ *
+ * Events come from OrderTransitions: the exact order and agent transitions of each committed transaction,
+ * as the conditional UPDATEs (or entity saves) made them, written together with the commit time. Nothing
+ * is derived here. Readers never take the writer's lock: a {@link Cursor} walks the mapped segments up to
+ * the last published record, which is what the tail API and {@link #replay} use.
+ *
+ * The directory belongs to one process: {@code journal.dir/.lock} is held while the journal is open, and
+ * a second instance pointed at the same directory fails to start instead of interleaving its writes.
+ */
+@Service
+public class OrderEventJournal {
+
+    private static final String SUFFIX = ".journal";
+    private static final int FRAME_HEADER = 8; // length + crc
+    private static final int INDEX_EVERY = 4096; // sparse sequence -> position index, one entry per this many records
+    private static final Set<OrderStatus> FINAL = Set.of(OrderStatus.DELIVERED, OrderStatus.CANCELLED);
+
+    // status names, decoded without allocating by matching the stored bytes against this table
+    private static final String[] STATUS_NAMES;
+    private static final byte[][] STATUS_BYTES;
+    static {
+        Set<String> names = new LinkedHashSet<>();
+        Arrays.stream(OrderStatus.values()).forEach(s -> names.add(s.name()));
+        Arrays.stream(AgentStatus.values()).forEach(s -> names.add(s.name()));
+        STATUS_NAMES = names.toArray(new String[0]);
+        STATUS_BYTES = new byte[STATUS_NAMES.length][];
+        for (int i = 0; i < STATUS_NAMES.length; i++) {
+            STATUS_BYTES[i] = STATUS_NAMES[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OrderEventJournal.class);
+
+    @Value("${journal.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${journal.dir:./data/journal}")
+    private String directory = "./data/journal";
+
+    @Value("${journal.segment-bytes:67108864}")
+    private int segmentBytes = 64 * 1024 * 1024;
+
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    // guarded by this
+    private final Map<Long, EntityState> orders = new HashMap<>();
+    private final Map<Long, EntityState> agents = new HashMap<>();
+    private final CRC32C crc = new CRC32C();
+    private Segment active;
+    private FileChannel lockChannel;
+    private boolean dirty;
+    private boolean closed;
+
+    private volatile long lastSequence;
+
+    @PostConstruct
+    public synchronized void open() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Path dir = Paths.get(directory);
+            Files.createDirectories(dir);
+            lock(dir);
+            List<Path> files;
+            try (Stream<Path> list = Files.list(dir)) {
+                files = list.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+            }
+            long start = System.nanoTime();
+            for (Path file : files) {
+                if (Files.size(file) == 0) {
+                    Files.delete(file); // crashed while the segment was being created
+                    continue;
+                }
+                String name = file.getFileName().toString();
+                Segment segment = Segment.map(file, Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), 0);
+                recover(segment);
+                segments.add(segment);
+            }
+            if (segments.isEmpty()) {
+                segments.add(newSegment(1));
+            }
+            active = segments.get(segments.size() - 1);
+            log.info("📜 Order event journal at {}: {} segments, last sequence {}, {} live orders (scanned in {} ms)",
+                    dir.toAbsolutePath(), segments.size(), lastSequence, orders.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the order event journal in " + directory, e);
+        }
+    }
+
+    // 📝 the transitions of one committed transaction, in the order they were made
+    public synchronized void record(List<? extends OrderTransitions.Moved> transitions, long timestamp) {
+        if (!enabled || closed || transitions.isEmpty()) {
+            return;
+        }
+        for (OrderTransitions.Moved moved : transitions) {
+            if (moved instanceof OrderTransitions.OrderMoved m && m.getOrderId() != null && m.getTo() != null) {
+                EntityState order = orders.computeIfAbsent(m.getOrderId(), id -> new EntityState());
+                append(OrderEvent.Entity.ORDER, m.getOrderId(), ++order.sequence, m.getAgentId(),
+                        m.getFrom() != null ? m.getFrom().name() : null, m.getTo().name(), timestamp);
+                if (FINAL.contains(m.getTo())) {
+                    orders.remove(m.getOrderId()); // no event can follow a final status
+                }
+            } else if (moved instanceof OrderTransitions.AgentMoved m && m.getAgentId() != null && m.getTo() != null) {
+                EntityState agent = agents.computeIfAbsent(m.getAgentId(), id -> new EntityState());
+                append(OrderEvent.Entity.AGENT, m.getAgentId(), ++agent.sequence, m.getOrderId(),
+                        m.getFrom() != null ? m.getFrom().name() : null, m.getTo().name(), timestamp);
+            }
+        }
+        notifyAll();
+    }
+
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    // a reader positioned at the first event with sequence >= fromSequence
+    public synchronized Cursor cursor(long fromSequence) {
+        if (segments.isEmpty()) {
+            return new Cursor(0, 0, fromSequence);
+        }
+        int index = segments.size() - 1;
+        while (index > 0 && segments.get(index).firstSequence > fromSequence) {
+            index--;
+        }
+        return new Cursor(index, segments.get(index).positionBefore(fromSequence), fromSequence);
+    }
+
+    // feeds every event from fromSequence up to the current end to consumer; returns how many
+    public long replay(long fromSequence, Consumer<OrderEvent> consumer) {
+        Cursor cursor = cursor(fromSequence);
+        long total = 0;
+        int read;
+        while ((read = cursor.poll(8192, consumer)) > 0) {
+            total += read;
+        }
+        return total;
+    }
+
+    // long-poll support for tail consumers: true once an event after sequence exists
+    public synchronized boolean awaitAfter(long sequence, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (lastSequence <= sequence && !closed) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return lastSequence > sequence;
+    }
+
+    // 💾 mapped pages reach the disk at least this often (and on every segment roll and shutdown)
+    @Scheduled(fixedDelayString = "${journal.force-interval-ms:1000}")
+    public synchronized void force() {
+        if (dirty && active != null && !closed) {
+            active.buffer.force();
+            dirty = false;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        force();
+        closed = true;
+        notifyAll();
+        if (lockChannel != null) {
+            try {
+                lockChannel.close(); // releases the directory lock
+            } catch (IOException e) {
+                log.warn("Could not release the journal lock in {}", directory, e);
+            }
+            lockChannel = null;
+        }
+    }
+
+    // one writer per directory: a second instance on the same journal.dir would corrupt the sequences
+    private void lock(Path dir) throws IOException {
+        FileChannel channel = FileChannel.open(dir.resolve(".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null; // held by another journal in this JVM
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IllegalStateException("Journal directory " + dir.toAbsolutePath()
+                    + " is in use by another instance; give each instance its own journal.dir");
+        }
+        lockChannel = channel;
+    }
+
+    private void append(OrderEvent.Entity entity, long entityId, long entitySequence, Long relatedId, String from,
+            String to, long timestamp) {
+        byte[] fromBytes = from != null ? from.getBytes(StandardCharsets.US_ASCII) : new byte[0];
+        byte[] toBytes = to.getBytes(StandardCharsets.US_ASCII);
+        int length = 8 + 8 + 1 + 8 + 8 + 8 + 1 + fromBytes.length + 1 + toBytes.length;
+        if (active.limit + FRAME_HEADER + length > active.buffer.capacity()) {
+            roll();
+        }
+        long sequence = lastSequence + 1;
+        MappedByteBuffer buffer = active.buffer;
+        int start = active.limit;
+        int payload = start + FRAME_HEADER;
+
+        buffer.position(payload);
+        buffer.putLong(sequence)
+                .putLong(timestamp)
+                .put((byte) entity.ordinal())
+                .putLong(entityId)
+                .putLong(entitySequence)
+                .putLong(relatedId != null ? relatedId : 0L)
+                .put((byte) fromBytes.length).put(fromBytes)
+                .put((byte) toBytes.length).put(toBytes);
+
+        crc.reset();
+        crc.update(buffer.duplicate().position(payload).limit(payload + length));
+        buffer.putInt(start + 4, (int) crc.getValue());
+        buffer.putInt(start, length); // last: until now the frame reads as the end of the log
+
+        if ((sequence - active.firstSequence) % INDEX_EVERY == 0) {
+            active.index(sequence, start);
+        }
+        active.lastSequence = sequence;
+        active.limit = payload + length;
+        lastSequence = sequence;
+        dirty = true;
+    }
+
+    private void roll() {
+        active.buffer.force();
+        Segment next = newSegment(lastSequence + 1);
+        segments.add(next);
+        active = next;
+        log.info("📜 Order event journal rolled to segment {}", next.path.getFileName());
+    }
+
+    private Segment newSegment(long firstSequence) {
+        Path path = Paths.get(directory).resolve(String.format("%020d%s", firstSequence, SUFFIX));
+        try {
+            return Segment.map(path, firstSequence, segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create journal segment " + path, e);
+        }
+    }
+
+    // scans a segment on startup: finds its end, cuts off a torn tail and rebuilds the per-entity sequences
+    private void recover(Segment segment) {
+        Cursor cursor = new Cursor(segment, segment.firstSequence);
+        ByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + FRAME_HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + FRAME_HEADER + length > buffer.capacity()) {
+                break;
+            }
+            if (!cursor.crcMatches(position, length)) {
+                log.warn("⚠️ Journal segment {} has a torn or corrupt record at {}, dropping the rest of it",
+                        segment.path.getFileName(), position);
+                for (int i = position; i < buffer.capacity(); i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                break;
+            }
+            OrderEvent event = cursor.decode(position);
+            if (event.getSequence() != lastSequence + 1 && lastSequence != 0) {
+                log.warn("⚠️ Journal sequence jumps from {} to {} in {}", lastSequence, event.getSequence(),
+                        segment.path.getFileName());
+            }
+            if ((event.getSequence() - segment.firstSequence) % INDEX_EVERY == 0) {
+                segment.index(event.getSequence(), position);
+            }
+            segment.lastSequence = event.getSequence();
+            lastSequence = event.getSequence();
+            track(event);
+            position += FRAME_HEADER + length;
+        }
+        segment.limit = position;
+    }
+
+    private void track(OrderEvent event) {
+        Map<Long, EntityState> states = event.getEntity() == OrderEvent.Entity.ORDER ? orders : agents;
+        if (event.getEntity() == OrderEvent.Entity.ORDER && FINAL.stream().anyMatch(s -> s.name().equals(event.getTo()))) {
+            states.remove(event.getEntityId());
+            return;
+        }
+        EntityState state = states.computeIfAbsent(event.getEntityId(), id -> new EntityState());
+        state.sequence = event.getEntitySequence();
+    }
+
+    private static final class EntityState {
+        long sequence;
+    }
+
+    private static final class Segment {
+        final Path path;
+        final long firstSequence;
+        final MappedByteBuffer buffer;
+        volatile int limit; // end of the last published record
+        long lastSequence; // guarded by the journal
+        private long[] indexSequences = new long[16];
+        private int[] indexPositions = new int[16];
+        private int indexSize;
+
+        private Segment(Path path, long firstSequence, MappedByteBuffer buffer) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.buffer = buffer;
+        }
+
+        // size 0 maps an existing file as it is
+        static Segment map(Path path, long firstSequence, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                long length = size > 0 ? size : channel.size();
+                return new Segment(path, firstSequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, length));
+            }
+        }
+
+        // guarded by the journal
+        void index(long sequence, int position) {
+            if (indexSize == indexSequences.length) {
+                indexSequences = Arrays.copyOf(indexSequences, indexSize * 2);
+                indexPositions = Arrays.copyOf(indexPositions, indexSize * 2);
+            }
+            indexSequences[indexSize] = sequence;
+            indexPositions[indexSize] = position;
+            indexSize++;
+        }
+
+        // guarded by the journal: position of an indexed record at or before sequence
+        int positionBefore(long sequence) {
+            int found = 0;
+            for (int i = 0; i < indexSize && indexSequences[i] <= sequence; i++) {
+                found = indexPositions[i];
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Sequential reader over the journal, for one thread. poll() hands events to the consumer in
+     * sequence order and returns 0 at the current end; calling it again later continues from there.
+     */
+    public class Cursor {
+        private int segmentIndex;
+        private int position;
+        private long nextSequence;
+        private ByteBuffer buffer;
+        private final CRC32C checksum = new CRC32C();
+
+        private Cursor(int segmentIndex, int position, long fromSequence) {
+            this.segmentIndex = segmentIndex;
+            this.position = position;
+            this.nextSequence = fromSequence;
+            this.buffer = segments.isEmpty() ? null : segments.get(segmentIndex).buffer.duplicate();
+        }
+
+        // recovery: reads one segment that is not yet in the list
+        private Cursor(Segment segment, long fromSequence) {
+            this.nextSequence = fromSequence;
+            this.buffer = segment.buffer.duplicate();
+        }
+
+        public long nextSequence() {
+            return nextSequence;
+        }
+
+        public int poll(int max, Consumer<OrderEvent> consumer) {
+            if (buffer == null) {
+                if (segments.isEmpty()) {
+                    return 0;
+                }
+                buffer = segments.get(segmentIndex).buffer.duplicate();
+            }
+            int delivered = 0;
+            while (delivered < max) {
+                Segment segment = segments.get(segmentIndex);
+                if (position >= segment.limit) {
+                    if (segmentIndex + 1 >= segments.size() || position < segment.limit) {
+                        break; // at the end, or the segment grew while we looked for the next one
+                    }
+                    segmentIndex++;
+                    position = 0;
+                    buffer = segments.get(segmentIndex).buffer.duplicate();
+                    continue;
+                }
+                int length = buffer.getInt(position);
+                if (!crcMatches(position, length)) {
+                    throw new IllegalStateException("Corrupt journal record in " + segment.path.getFileName()
+                            + " at " + position);
+                }
+                long sequence = buffer.getLong(position + FRAME_HEADER);
+                if (sequence >= nextSequence) {
+                    consumer.accept(decode(position));
+                    nextSequence = sequence + 1;
+                    delivered++;
+                }
+                position += FRAME_HEADER + length;
+            }
+            return delivered;
+        }
+
+        private boolean crcMatches(int position, int length) {
+            checksum.reset();
+            checksum.update(buffer.duplicate().position(position + FRAME_HEADER).limit(position + FRAME_HEADER + length));
+            return (int) checksum.getValue() == buffer.getInt(position + 4);
+        }
+
+        private OrderEvent decode(int position) {
+            int p = position + FRAME_HEADER;
+            long sequence = buffer.getLong(p);
+            long timestamp = buffer.getLong(p + 8);
+            OrderEvent.Entity entity = OrderEvent.Entity.values()[buffer.get(p + 16)];
+            long entityId = buffer.getLong(p + 17);
+            long entitySequence = buffer.getLong(p + 25);
+            long related = buffer.getLong(p + 33);
+            int fromLength = buffer.get(p + 41);
+            String from = status(p + 42, fromLength);
+            int toAt = p + 42 + fromLength;
+            String to = status(toAt + 1, buffer.get(toAt));
+            return new OrderEvent(sequence, timestamp, entity, entityId, entitySequence,
+                    related != 0 ? related : null, from, to);
+        }
+
+        private String status(int at, int length) {
+            if (length == 0) {
+                return null;
+            }
+            candidates:
+            for (int i = 0; i < STATUS_BYTES.length; i++) {
+                byte[] name = STATUS_BYTES[i];
+                if (name.length != length) {
+                    continue;
+                }
+                for (int k = 0; k < length; k++) {
+                    if (buffer.get(at + k) != name[k]) {
+                        continue candidates;
+                    }
+                }
+                return STATUS_NAMES[i];
+            }
+            byte[] unknown = new byte[length]; // a status renamed since the event was written
+            buffer.get(at, unknown);
+            return new String(unknown, StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.qwqer.demo.service;
+
+import com.qwqer.demo.dto.OrderEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Status of every order and agent as of a point in time, rebuilt by replaying the OrderEventJournal.
+ * Events stamped after {@code until} are ignored, so the same journal answers "what did the fleet
+ * look like at 18:00 yesterday". One instance per replay; not thread-safe.
+ */
+public class OrderEventProjection implements Consumer<OrderEvent> {
+
+    private final long until;
+    private final Map<Long, String> orders = new HashMap<>();
+    private final Map<Long, String> agents = new HashMap<>();
+    private long applied;
+
+    public OrderEventProjection(long until) {
+        this.until = until;
+    }
+
+    @Override
+    public void accept(OrderEvent event) {
+        if (event.getTimestamp() > until) {
+            return;
+        }
+        (event.getEntity() == OrderEvent.Entity.ORDER ? orders : agents).put(event.getEntityId(), event.getTo());
+        applied++;
+    }
+
+    public long getApplied() {
+        return applied;
+    }
+
+    public String orderStatus(long orderId) {
+        return orders.get(orderId);
+    }
+
+    public String agentStatus(long agentId) {
+        return agents.get(agentId);
+    }
+
+    public Map<String, Long> orderCounts() {
+        return counts(orders);
+    }
+
+    public Map<String, Long> agentCounts() {
+        return counts(agents);
+    }
+
+    private static Map<String, Long> counts(Map<Long, String> statuses) {
+        Map<String, Long> counts = new TreeMap<>();
+        statuses.values().forEach(status -> counts.merge(status, 1L, Long::sum));
+        return counts;
+    }
+}
@@ -4,20 +4,25 @@ import com.qwqer.demo.dto.CreateOrderRequest;
 import com.qwqer.demo.dto.CustomerOrderRequest;
 import com.qwqer.demo.dto.MerchantOrderRequest;
 import com.qwqer.demo.dto.OrderHistoryResponse;
+import com.qwqer.demo.entity.ArchivedOrder;
 import com.qwqer.demo.entity.Customer;
 import com.qwqer.demo.entity.CustomerOrder;
 import com.qwqer.demo.entity.Product;
 import com.qwqer.demo.enums.OrderStatus;
+import com.qwqer.demo.repository.ArchivedOrderRepository;
 import com.qwqer.demo.repository.CustomerOrderRepository;
 import com.qwqer.demo.repository.CustomerRepository;
 import com.qwqer.demo.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class OrderService {
@@ -31,6 +36,15 @@ public class OrderService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private CustomerOrderStats customerOrderStats;
+
+    @Autowired
+    private OrderTransitionService transitionService;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
     @Transactional
     public CustomerOrder createOrder(CreateOrderRequest request) {
         // Validate customer exists
@@ -135,7 +149,16 @@ public class OrderService {
                 request.getTotalAmount(),
                 request.getQuantity());
 
-        // Combine customer notes and merchant notes
+        String notes = combineNotes(request);
+        if (notes != null) {
+            order.setNotes(notes);
+        }
+
+        return orderRepository.save(order);
+    }
+
+    // Combine customer notes and merchant notes; null when there are none
+    static String combineNotes(MerchantOrderRequest request) {
         StringBuilder notes = new StringBuilder();
         if (request.getNotes() != null && !request.getNotes().trim().isEmpty()) {
             notes.append("Customer: ").append(request.getNotes());
@@ -146,35 +169,76 @@ public class OrderService {
             }
             notes.append("Merchant: ").append(request.getMerchantNotes());
         }
-
-        if (notes.length() > 0) {
-            order.setNotes(notes.toString());
-        }
-
-        return orderRepository.save(order);
+        return notes.length() > 0 ? notes.toString() : null;
     }
 
-    public OrderHistoryResponse getCustomerOrderHistory(Long customerId) {
-        // Validate customer exists
-        Customer customer = customerRepository.findById(customerId)
-                .orElseThrow(() -> new RuntimeException("Customer not found with ID: " + customerId));
+    // afterCreatedAt/afterId: the last order of the previous page, or null for the newest page
+    public OrderHistoryResponse getCustomerOrderHistory(Long customerId, LocalDateTime afterCreatedAt, Long afterId,
+            int size) {
+        // Cached per-customer counters (one grouped query on a miss); also tells us the customer exists
+        CustomerOrderStats.Counters counters = customerOrderStats.get(customerId);
+        if (counters == null) {
+            throw new RuntimeException("Customer not found with ID: " + customerId);
+        }
 
-        // Get order statistics
-        long totalOrders = orderRepository.countByCustomerId(customerId);
-        long deliveredOrders = orderRepository.countByCustomerIdAndStatus(customerId, OrderStatus.DELIVERED);
-        long pendingOrders = totalOrders - deliveredOrders -
-                orderRepository.countByCustomerIdAndStatus(customerId, OrderStatus.CANCELLED);
+        long totalOrders = counters.total();
+        long deliveredOrders = counters.count(OrderStatus.DELIVERED);
+        long pendingOrders = totalOrders - deliveredOrders - counters.count(OrderStatus.CANCELLED);
 
-        // Get all orders for the customer
-        List<CustomerOrder> orders = orderRepository.findByCustomerIdOrderByCreatedAtDesc(customerId);
+        // One page of orders, newest first, across live and archived orders
+        HistoryPage orders = historyPage(customerId, afterCreatedAt, afterId, size);
 
         return new OrderHistoryResponse(
                 customerId,
-                customer.getName(),
+                counters.getCustomerName(),
                 totalOrders,
                 deliveredOrders,
                 pendingOrders,
-                orders);
+                counters.snapshot(),
+                orders.content,
+                size,
+                orders.hasNext);
+    }
+
+    // Each table seeks past the (createdAt, id) cursor on its customer index and reads at most size + 1 rows
+    // (the extra one detects a next page); the two newest-first runs are merged. Cost is O(size) at any depth.
+    private HistoryPage historyPage(Long customerId, LocalDateTime afterCreatedAt, Long afterId, int size) {
+        PageRequest upToNext = PageRequest.of(0, size + 1);
+        List<CustomerOrder> live = afterCreatedAt == null
+                ? orderRepository.findByCustomerIdOrderByCreatedAtDescIdDesc(customerId, upToNext)
+                : orderRepository.findHistoryPageAfter(customerId, afterCreatedAt, afterId, upToNext);
+        List<ArchivedOrder> archived = afterCreatedAt == null
+                ? archivedOrderRepository.findByCustomerIdOrderByCreatedAtDescIdDesc(customerId, upToNext)
+                : archivedOrderRepository.findHistoryPageAfter(customerId, afterCreatedAt, afterId, upToNext);
+
+        List<CustomerOrder> merged = new ArrayList<>(size + 1);
+        int i = 0;
+        int j = 0;
+        while (merged.size() <= size && (i < live.size() || j < archived.size())) {
+            if (j >= archived.size() || (i < live.size() && liveFirst(live.get(i), archived.get(j)))) {
+                merged.add(live.get(i++));
+            } else {
+                merged.add(archived.get(j++).toOrder());
+            }
+        }
+        boolean hasNext = merged.size() > size;
+        return new HistoryPage(hasNext ? new ArrayList<>(merged.subList(0, size)) : merged, hasNext);
+    }
+
+    // same order as the keyset queries: createdAt DESC, id DESC
+    private static boolean liveFirst(CustomerOrder live, ArchivedOrder archived) {
+        int byTime = live.getCreatedAt().compareTo(archived.getCreatedAt());
+        return byTime != 0 ? byTime > 0 : live.getId() > archived.getId();
+    }
+
+    private static class HistoryPage {
+        private final List<CustomerOrder> content;
+        private final boolean hasNext;
+
+        HistoryPage(List<CustomerOrder> content, boolean hasNext) {
+            this.content = content;
+            this.hasNext = hasNext;
+        }
     }
 
     public List<CustomerOrder> getCustomerOrdersByStatus(Long customerId, OrderStatus status) {
@@ -194,19 +258,46 @@ public class OrderService {
         return orderRepository.findByCustomerIdAndDateRange(customerId, startDate, endDate);
     }
 
-    @Transactional
     public CustomerOrder cancelOrder(Long orderId) {
-        CustomerOrder order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found with ID: " + orderId));
+        // only PLACED / PENDING_ASSIGNMENT / ASSIGNED orders can be cancelled (see OrderStatus)
+        return transitionService.cancel(orderId);
+    }
 
-        // Only allow cancellation if order is not yet picked up
-        if (order.getStatus() == OrderStatus.PICKED_UP ||
-                order.getStatus() == OrderStatus.OUT_FOR_DELIVERY ||
-                order.getStatus() == OrderStatus.DELIVERED) {
-            throw new RuntimeException("Cannot cancel order in status: " + order.getStatus());
+    /**
+     * PUT /api/orders/{id}: edits the order's details; fields left out (null) stay as they are. Status
+     * and agent belong to the workflow endpoints, so a request that changes either is rejected, and the
+     * workflow columns are never written from the request body (CustomerOrder is @DynamicUpdate, so
+     * only edited columns are in the UPDATE and a concurrent transition is not overwritten).
+     */
+    @Transactional
+    public CustomerOrder updateOrderDetails(Long orderId, CustomerOrder changes) {
+        CustomerOrder order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new OrderTransitionService.OrderNotFoundException(orderId));
+        if (changes.getStatus() != null && changes.getStatus() != order.getStatus()) {
+            throw new OrderTransitionService.IllegalTransitionException("Order " + orderId + " is " + order.getStatus()
+                    + "; status changes go through the workflow endpoints");
         }
+        if (changes.getDeliveryAgentId() != null && !changes.getDeliveryAgentId().equals(order.getDeliveryAgentId())) {
+            throw new OrderTransitionService.IllegalTransitionException(
+                    "Agents are assigned through POST /api/orders/" + orderId + "/assign-agent/{agentId}");
+        }
+        // a field left out of the request keeps its stored value
+        copyIfPresent(changes.getCustomerId(), order::setCustomerId);
+        copyIfPresent(changes.getCustomerName(), order::setCustomerName);
+        copyIfPresent(changes.getAddress(), order::setAddress);
+        copyIfPresent(changes.getProductId(), order::setProductId);
+        copyIfPresent(changes.getTotalAmount(), order::setTotalAmount);
+        copyIfPresent(changes.getQuantity(), order::setQuantity);
+        copyIfPresent(changes.getNotes(), order::setNotes);
+        copyIfPresent(changes.getWarehouseId(), order::setWarehouseId);
+        copyIfPresent(changes.getLatitude(), order::setLatitude);
+        copyIfPresent(changes.getLongitude(), order::setLongitude);
+        return order;
+    }
 
-        order.setStatus(OrderStatus.CANCELLED);
-        return orderRepository.save(order);
+    private static <T> void copyIfPresent(T value, Consumer<T> setter) {
+        if (value != null) {
+            setter.accept(value);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,260 @@
+package com.qwqer.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qwqer.demo.enums.OrderStatus;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent event feed of committed order status transitions (GET /api/orders/stream).
+ *
+ * Transitions come from OrderTransitions after their transaction commits, with the exact from / to
+ * and the commit time as "at". Each event is serialised once and the same JSON string is queued for
+ * every matching subscriber. Recent events are kept in a ring buffer so a reconnecting client can
+ * resume from its Last-Event-ID; if that id is too old (or from before a restart) it gets a "reset"
+ * event and should refetch. All publishing, replay and subscription changes run on one fan-out
+ * thread, so a client never misses or duplicates an event between replay and live delivery.
+ *
+ * The fan-out thread never writes to a connection: each subscriber has its own queue, drained by a
+ * sender thread while it has anything in it, so a slow client only delays itself. A client whose
+ * queue passes orders.stream.subscriber-queue is closed and reconnects with its Last-Event-ID.
+ *
+ * Subscribers, sequence and replay buffer are per instance: a client only hears about transitions
+ * committed through the instance it is connected to. With several instances on one database that
+ * would silently miss events, so the cluster profile sets orders.stream.enabled=false and the
+ * endpoint answers 503 instead.
+ */
+@Service
+public class OrderStatusStream {
+
+    private static final String EVENT_NAME = "order-status";
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OrderStatusStream.class);
+
+    private final ObjectMapper objectMapper;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ExecutorService fanOut = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "order-status-sse");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService senders = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "order-status-sse-send");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // only touched on the fan-out thread
+    private final Deque<Event> recent = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private long sequence;
+
+    @Value("${orders.stream.replay-buffer:1000}")
+    private int replayBuffer = 1000;
+
+    @Value("${orders.stream.timeout-ms:1800000}")
+    private long timeoutMs = 1800000;
+
+    @Value("${orders.stream.subscriber-queue:256}")
+    private int subscriberQueue = 256;
+
+    @Value("${orders.stream.enabled:true}")
+    private boolean enabled = true;
+
+    public OrderStatusStream(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public SseEmitter subscribe(Long customerId, Long merchantId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, customerId, merchantId);
+        emitter.onCompletion(() -> fanOut.execute(() -> subscribers.remove(subscriber)));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> emitter.complete());
+        fanOut.execute(() -> {
+            if (replay(subscriber, lastEventId)) {
+                subscribers.add(subscriber);
+            }
+        });
+        return emitter;
+    }
+
+    // committedAt: epoch millis of the commit that made the transition
+    public void publish(Long orderId, Long customerId, Long merchantId, OrderStatus from, OrderStatus to,
+            long committedAt) {
+        fanOut.execute(() -> {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("orderId", orderId);
+            payload.put("customerId", customerId);
+            payload.put("merchantId", merchantId);
+            payload.put("from", from);
+            payload.put("to", to);
+            payload.put("at", LocalDateTime.ofInstant(Instant.ofEpochMilli(committedAt), ZoneId.systemDefault()).toString());
+            String json;
+            try {
+                json = objectMapper.writeValueAsString(payload);
+            } catch (JsonProcessingException e) {
+                log.error("Could not serialise status event for order {}", orderId, e);
+                return;
+            }
+            Event event = new Event(++sequence, customerId, merchantId, json);
+            recent.addLast(event);
+            while (recent.size() > replayBuffer) {
+                recent.removeFirst();
+            }
+            subscribers.removeIf(s -> s.matches(event) && !send(s, event));
+        });
+    }
+
+    // 💓 comment line every 25 s keeps proxies from closing idle streams and finds dead clients
+    @Scheduled(fixedDelayString = "${orders.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        fanOut.execute(() -> subscribers.removeIf(s -> !offer(s, SseEmitter.event().comment("keep-alive"))));
+    }
+
+    // false when the client is already gone
+    private boolean replay(Subscriber subscriber, String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return true;
+        }
+        long after = parseSequence(lastEventId);
+        Event oldest = recent.peekFirst();
+        if (after < 0 || after > sequence || (oldest != null && after < oldest.sequence - 1)) {
+            // unknown, from an earlier run, or already evicted: the client must reload its state
+            return offer(subscriber, SseEmitter.event().name("reset").id(epoch + "-" + sequence).data("{}"));
+        }
+        for (Event event : recent) {
+            if (event.sequence > after && subscriber.matches(event) && !send(subscriber, event)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long parseSequence(String lastEventId) {
+        int dash = lastEventId.lastIndexOf('-');
+        if (dash < 0 || !lastEventId.substring(0, dash).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private boolean send(Subscriber subscriber, Event event) {
+        return offer(subscriber, SseEmitter.event()
+                .id(epoch + "-" + event.sequence)
+                .name(EVENT_NAME)
+                .data(event.json, MediaType.APPLICATION_JSON));
+    }
+
+    // queues a message for the subscriber's sender; false when the client is gone or too far behind
+    private boolean offer(Subscriber subscriber, SseEmitter.SseEventBuilder message) {
+        if (subscriber.closed) {
+            return false;
+        }
+        if (subscriber.pending.get() >= subscriberQueue) {
+            // it would only fall further behind; closing makes it reconnect and replay from its Last-Event-ID
+            log.warn("Closing order status subscriber with {} unsent events", subscriber.pending.get());
+            subscriber.close(null);
+            return false;
+        }
+        subscriber.queue.add(message);
+        if (subscriber.pending.getAndIncrement() == 0) {
+            senders.execute(() -> drain(subscriber));
+        }
+        return true;
+    }
+
+    // runs on a sender thread; only one drain per subscriber at a time, so its messages stay in order
+    private void drain(Subscriber subscriber) {
+        do {
+            SseEmitter.SseEventBuilder message = subscriber.queue.poll();
+            if (message != null && !subscriber.closed) {
+                try {
+                    subscriber.emitter.send(message);
+                } catch (IOException | IllegalStateException e) {
+                    subscriber.close(e);
+                }
+            }
+        } while (subscriber.pending.decrementAndGet() > 0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOut.execute(() -> subscribers.forEach(s -> s.close(null)));
+        fanOut.shutdown();
+        senders.shutdown();
+    }
+
+    private static class Event {
+        private final long sequence;
+        private final Long customerId;
+        private final Long merchantId;
+        private final String json; // shared by every subscriber
+
+        Event(long sequence, Long customerId, Long merchantId, String json) {
+            this.sequence = sequence;
+            this.customerId = customerId;
+            this.merchantId = merchantId;
+            this.json = json;
+        }
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final Long customerId;
+        private final Long merchantId;
+        private final Queue<SseEmitter.SseEventBuilder> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger(); // queued or being sent
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, Long customerId, Long merchantId) {
+            this.emitter = emitter;
+            this.customerId = customerId;
+            this.merchantId = merchantId;
+        }
+
+        void close(Throwable error) {
+            closed = true;
+            if (error != null) {
+                emitter.completeWithError(error);
+            } else {
+                emitter.complete();
+            }
+        }
+
+        boolean matches(Event event) {
+            return (customerId == null || Objects.equals(customerId, event.customerId))
+                    && (merchantId == null || Objects.equals(merchantId, event.merchantId));
+        }
+    }
+}
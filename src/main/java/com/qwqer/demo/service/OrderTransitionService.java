@@ -0,0 +1,282 @@
+package com.qwqer.demo.service;
+
+import com.qwqer.demo.entity.CustomerOrder;
+import com.qwqer.demo.entity.DeliveryAgent.AgentStatus;
+import com.qwqer.demo.enums.OrderStatus;
+import com.qwqer.demo.repository.CustomerOrderRepository;
+import com.qwqer.demo.repository.DeliveryAgentRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * The one place order status changes happen (assign, pickup, out for delivery, deliver, cancel).
+ *
+ * Each transition reads the order's status, checks it against the table in OrderStatus and runs a
+ * conditional {@code UPDATE ... WHERE id = ? AND order_status = <that status>}, followed by the
+ * matching agent UPDATE in the same transaction, conditioned on the agent's status the same way.
+ * No row is read and re-saved, so two concurrent requests can never both win: the loser's UPDATE
+ * matches 0 rows, it reads the new status and gets an IllegalTransitionException. Because every
+ * UPDATE matched one known status, each order and agent transition is published with its exact
+ * from and to (OrderTransitions hands them to the journal and SSE after the commit).
+ *
+ * Bulk UPDATEs bypass JPA entity listeners, so the read model change and the collection
+ * versions are published here explicitly.
+ *
+ * An agent may carry several orders (grouped dispatch); delivering or cancelling one of them
+ * frees the agent only when none of its other orders is still on the way.
+ */
+@Service
+public class OrderTransitionService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OrderTransitionService.class);
+
+    // statuses in which an order keeps its agent busy
+    private static final Set<OrderStatus> WITH_AGENT = EnumSet.of(OrderStatus.ASSIGNED, OrderStatus.PICKED_UP,
+            OrderStatus.OUT_FOR_DELIVERY, OrderStatus.ON_DELIVERY);
+
+    // POST /deliver needs the order out for delivery (ON_DELIVERY is its legacy alias) ...
+    private static final Set<OrderStatus> DELIVER_FROM = EnumSet.of(OrderStatus.OUT_FOR_DELIVERY, OrderStatus.ON_DELIVERY);
+    // ... while the driver app hands a picked-up order straight over (PUT /delivered)
+    private static final Set<OrderStatus> HAND_OVER_FROM = EnumSet.of(OrderStatus.PICKED_UP);
+
+    private final CustomerOrderRepository orderRepository;
+    private final DeliveryAgentRepository agentRepository;
+    private final ApplicationEventPublisher publisher;
+    private final CollectionVersions collectionVersions;
+    private final SecureRandom random = new SecureRandom();
+
+    public OrderTransitionService(CustomerOrderRepository orderRepository, DeliveryAgentRepository agentRepository,
+            ApplicationEventPublisher publisher, CollectionVersions collectionVersions) {
+        this.orderRepository = orderRepository;
+        this.agentRepository = agentRepository;
+        this.publisher = publisher;
+        this.collectionVersions = collectionVersions;
+    }
+
+    @Transactional
+    public CustomerOrder assign(Long orderId, Long agentId) {
+        LocalDateTime now = now();
+        OrderStatus from = move(orderId, OrderStatus.sourcesOf(OrderStatus.ASSIGNED),
+                current -> orderRepository.assignIfIn(orderId, current, agentId, now));
+        if (from == null) {
+            throw rejected(orderId, OrderStatus.ASSIGNED);
+        }
+        // the agent must still be free; otherwise the order update above is rolled back with this exception
+        if (agentRepository.claimIfAvailable(agentId, orderId, AgentStatus.AVAILABLE, AgentStatus.ASSIGNED) == 0) {
+            throw new IllegalTransitionException("Agent " + agentId + " is not available");
+        }
+        publisher.publishEvent(new OrderTransitions.AgentMoved(agentId, AgentStatus.AVAILABLE, AgentStatus.ASSIGNED, orderId));
+        return changed(orderId, from, true);
+    }
+
+    /**
+     * Assigns a group of orders to one agent inside the caller's dispatch transaction. With
+     * claimAgent the agent must still be AVAILABLE and is booked for the first order it gets, and
+     * released again when none of the orders moves; otherwise the agent is already ASSIGNED and only
+     * picks up more orders. A lost race returns 0 (or skips the order) instead of throwing, so the
+     * caller's other assignments in the same transaction stand.
+     */
+    @Transactional
+    public int assignGroup(List<Long> orderIds, Long agentId, boolean claimAgent) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        if (claimAgent && agentRepository.claimIfAvailable(agentId, orderIds.get(0), AgentStatus.AVAILABLE,
+                AgentStatus.ASSIGNED) == 0) {
+            return 0;
+        }
+        Set<OrderStatus> sources = OrderStatus.sourcesOf(OrderStatus.ASSIGNED);
+        LocalDateTime now = now();
+        List<Long> assigned = new ArrayList<>();
+        List<OrderTransitions.OrderMoved> moves = new ArrayList<>();
+        for (Long orderId : orderIds) {
+            OrderStatus from = move(orderId, sources, current -> orderRepository.assignIfIn(orderId, current, agentId, now));
+            if (from != null) {
+                assigned.add(orderId);
+                moves.add(new OrderTransitions.OrderMoved(orderId, from, OrderStatus.ASSIGNED, agentId));
+            }
+        }
+        if (assigned.isEmpty()) {
+            // every order was taken or cancelled meanwhile: hand the agent back untouched
+            if (claimAgent) {
+                agentRepository.releaseIfIdle(agentId, WITH_AGENT, AgentStatus.ASSIGNED, AgentStatus.AVAILABLE);
+            }
+            return 0;
+        }
+        if (claimAgent) {
+            if (!assigned.get(0).equals(orderIds.get(0))) {
+                agentRepository.moveAssignedOrder(agentId, orderIds.get(0), WITH_AGENT);
+            }
+            publisher.publishEvent(new OrderTransitions.AgentMoved(agentId, AgentStatus.AVAILABLE, AgentStatus.ASSIGNED,
+                    assigned.get(0)));
+        }
+        for (OrderTransitions.OrderMoved moved : moves) {
+            publisher.publishEvent(new OrderDetailsReadModel.Change(OrderDetailsReadModel.Kind.ORDER, moved.getOrderId()));
+            publisher.publishEvent(moved);
+        }
+        collectionVersions.bumpAfterCommit(CollectionVersions.Collection.ORDERS);
+        if (claimAgent) {
+            collectionVersions.bumpAfterCommit(CollectionVersions.Collection.AGENTS);
+        }
+        return assigned.size();
+    }
+
+    @Transactional
+    public CustomerOrder pickUp(Long orderId) {
+        String otp = String.format("%06d", random.nextInt(1000000)); // OTP the customer gives at delivery
+        LocalDateTime now = now();
+        OrderStatus from = move(orderId, OrderStatus.sourcesOf(OrderStatus.PICKED_UP),
+                current -> orderRepository.pickUpIfIn(orderId, current, otp, now));
+        if (from == null) {
+            throw rejected(orderId, OrderStatus.PICKED_UP);
+        }
+        Long agentId = orderRepository.findAgentIdById(orderId).orElse(null);
+        // an agent carrying a group is already ON_DELIVERY from its first pickup
+        boolean agentChanged = agentId != null && moveAgent(agentId, AgentStatus.ON_DELIVERY, orderId);
+        return changed(orderId, from, agentChanged);
+    }
+
+    @Transactional
+    public CustomerOrder markOutForDelivery(Long orderId) {
+        LocalDateTime now = now();
+        OrderStatus from = move(orderId, OrderStatus.sourcesOf(OrderStatus.OUT_FOR_DELIVERY),
+                current -> orderRepository.updateStatus(orderId, current, OrderStatus.OUT_FOR_DELIVERY, now));
+        if (from == null) {
+            throw rejected(orderId, OrderStatus.OUT_FOR_DELIVERY);
+        }
+        return changed(orderId, from, false);
+    }
+
+    @Transactional
+    public CustomerOrder deliver(Long orderId) {
+        return deliverFrom(orderId, DELIVER_FROM);
+    }
+
+    @Transactional
+    public CustomerOrder handOver(Long orderId) {
+        return deliverFrom(orderId, HAND_OVER_FROM);
+    }
+
+    private CustomerOrder deliverFrom(Long orderId, Set<OrderStatus> sources) {
+        LocalDateTime now = now();
+        OrderStatus from = move(orderId, sources, current -> orderRepository.deliverIfIn(orderId, current, now));
+        if (from == null) {
+            throw rejected(orderId, OrderStatus.DELIVERED);
+        }
+        return changed(orderId, from, releaseAgent(orderId));
+    }
+
+    @Transactional
+    public CustomerOrder cancel(Long orderId) {
+        LocalDateTime now = now();
+        OrderStatus from = move(orderId, OrderStatus.sourcesOf(OrderStatus.CANCELLED),
+                current -> orderRepository.updateStatus(orderId, current, OrderStatus.CANCELLED, now));
+        if (from == null) {
+            throw rejected(orderId, OrderStatus.CANCELLED);
+        }
+        // an order cancelled after assignment gives its agent back
+        return changed(orderId, from, releaseAgent(orderId));
+    }
+
+    // reads the order's status and, if it is one of the sources, runs the update conditioned on exactly
+    // that status; a concurrent move makes it match 0 rows, so the new status is read and checked again.
+    // Returns the status the update moved the order from, or null when it is gone or not in the sources.
+    private OrderStatus move(Long orderId, Set<OrderStatus> sources, ToIntFunction<Set<OrderStatus>> update) {
+        while (true) {
+            OrderStatus current = orderRepository.findStatusById(orderId).orElse(null);
+            if (current == null || !sources.contains(current)) {
+                return null;
+            }
+            if (update.applyAsInt(EnumSet.of(current)) > 0) {
+                return current;
+            }
+        }
+    }
+
+    // runs after the order left WITH_AGENT: free the agent if it has nothing else on board, otherwise
+    // point assignedOrderId at one of its remaining orders; true when the agent row changed
+    private boolean releaseAgent(Long orderId) {
+        Long agentId = orderRepository.findAgentIdById(orderId).orElse(null);
+        if (agentId == null) {
+            return false;
+        }
+        while (true) {
+            AgentStatus current = agentRepository.findStatusById(agentId).orElse(null);
+            if (current == null) {
+                return false;
+            }
+            if (agentRepository.releaseIfIdle(agentId, WITH_AGENT, current, AgentStatus.AVAILABLE) > 0) {
+                if (current != AgentStatus.AVAILABLE) {
+                    publisher.publishEvent(new OrderTransitions.AgentMoved(agentId, current, AgentStatus.AVAILABLE, orderId));
+                }
+                return true;
+            }
+            // 0 rows: either other orders keep it busy, or its status moved under us and we try again
+            if (agentRepository.findStatusById(agentId).orElse(null) == current) {
+                return agentRepository.moveAssignedOrder(agentId, orderId, WITH_AGENT) > 0;
+            }
+        }
+    }
+
+    // sets the agent's status, conditioned on the exact status it had; false when it already was target
+    private boolean moveAgent(Long agentId, AgentStatus target, Long orderId) {
+        while (true) {
+            AgentStatus current = agentRepository.findStatusById(agentId).orElse(null);
+            if (current == null || current == target) {
+                return false;
+            }
+            if (agentRepository.updateStatusIf(agentId, current, target) > 0) {
+                publisher.publishEvent(new OrderTransitions.AgentMoved(agentId, current, target, orderId));
+                return true;
+            }
+        }
+    }
+
+    private CustomerOrder changed(Long orderId, OrderStatus from, boolean agentChanged) {
+        publisher.publishEvent(new OrderDetailsReadModel.Change(OrderDetailsReadModel.Kind.ORDER, orderId));
+        collectionVersions.bumpAfterCommit(CollectionVersions.Collection.ORDERS);
+        if (agentChanged) {
+            collectionVersions.bumpAfterCommit(CollectionVersions.Collection.AGENTS);
+        }
+        CustomerOrder order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new OrderNotFoundException(orderId));
+        publisher.publishEvent(new OrderTransitions.OrderMoved(orderId, from, order.getStatus(),
+                order.getDeliveryAgentId()));
+        log.info("✅ Order {} {} → {}", orderId, from, order.getStatus());
+        return order;
+    }
+
+    // 0 rows updated: tell "no such order" apart from "wrong status"
+    private RuntimeException rejected(Long orderId, OrderStatus target) {
+        OrderStatus current = orderRepository.findStatusById(orderId).orElse(null);
+        if (current == null) {
+            return new OrderNotFoundException(orderId);
+        }
+        return new IllegalTransitionException("Cannot move order " + orderId + " from " + current + " to " + target);
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now();
+    }
+
+    public static class OrderNotFoundException extends RuntimeException {
+        public OrderNotFoundException(Long orderId) {
+            super("Order not found with ID: " + orderId);
+        }
+    }
+
+    public static class IllegalTransitionException extends RuntimeException {
+        public IllegalTransitionException(String message) {
+            super(message);
+        }
+    }
+}
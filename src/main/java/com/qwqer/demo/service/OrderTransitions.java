@@ -0,0 +1,193 @@
+package com.qwqer.demo.service;
+
+import com.qwqer.demo.entity.DeliveryAgent.AgentStatus;
+import com.qwqer.demo.enums.OrderStatus;
+import com.qwqer.demo.repository.CustomerOrderRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Exact order and agent status transitions, collected per transaction and handed on once it commits.
+ *
+ * OrderTransitionService publishes one OrderMoved / AgentMoved per conditional UPDATE, with the status
+ * it read and matched on; StatusChangeListener does the same for entity saves (new orders, CRUD
+ * endpoints). Nothing is derived from the view or from the order's status, so two moves in one
+ * transaction stay two events and a rollback publishes none. All events of a transaction carry its
+ * commit time; they are written to the OrderEventJournal in the order they happened, and the order
+ * ones go to OrderStatusStream, with customer and merchant (the subscriber filters) looked up in one query
+ * on the afterCommitWriter thread, so the committing thread never takes a second connection for it.
+ */
+@Service
+public class OrderTransitions {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OrderTransitions.class);
+
+    private final CustomerOrderRepository orderRepository;
+    private final OrderStatusStream orderStatusStream;
+    private final OrderEventJournal orderEventJournal;
+    private final TransactionTemplate readTemplate;
+    private final TaskExecutor afterCommitWriter;
+
+    public OrderTransitions(CustomerOrderRepository orderRepository, OrderStatusStream orderStatusStream,
+            OrderEventJournal orderEventJournal, PlatformTransactionManager transactionManager,
+            @Qualifier("afterCommitWriter") TaskExecutor afterCommitWriter) {
+        this.orderRepository = orderRepository;
+        this.orderStatusStream = orderStatusStream;
+        this.orderEventJournal = orderEventJournal;
+        this.afterCommitWriter = afterCommitWriter;
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTemplate.setReadOnly(true);
+    }
+
+    @EventListener
+    public void onMoved(Moved moved) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(List.of(moved), System.currentTimeMillis());
+            return;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.moves.add(moved);
+    }
+
+    private void publish(List<Moved> moves, long committedAt) {
+        try {
+            orderEventJournal.record(moves, committedAt);
+        } catch (RuntimeException e) {
+            log.error("Could not journal {} committed transitions", moves.size(), e);
+        }
+        List<OrderMoved> orders = new ArrayList<>();
+        for (Moved moved : moves) {
+            if (moved instanceof OrderMoved order) {
+                orders.add(order);
+            }
+        }
+        if (orders.isEmpty() || !orderStatusStream.isEnabled()) {
+            return;
+        }
+        try {
+            afterCommitWriter.execute(() -> stream(orders, committedAt));
+        } catch (TaskRejectedException e) {
+            log.error("Could not queue {} committed order transitions for the status stream", orders.size(), e);
+        }
+    }
+
+    private void stream(List<OrderMoved> orders, long committedAt) {
+        try {
+            Set<Long> ids = new LinkedHashSet<>();
+            orders.forEach(m -> ids.add(m.getOrderId()));
+            Map<Long, Object[]> owners = new HashMap<>();
+            List<Object[]> rows = readTemplate.execute(status -> orderRepository.findOwners(ids));
+            if (rows != null) {
+                rows.forEach(row -> owners.put((Long) row[0], row));
+            }
+            for (OrderMoved m : orders) {
+                Object[] owner = owners.get(m.getOrderId());
+                orderStatusStream.publish(m.getOrderId(), owner != null ? (Long) owner[1] : null,
+                        owner != null ? (Long) owner[2] : null, m.getFrom(), m.getTo(), committedAt);
+            }
+        } catch (RuntimeException e) {
+            // the transaction is already committed; losing the notification must not fail the request
+            log.error("Could not publish {} committed order transitions", orders.size(), e);
+        }
+    }
+
+    private class Pending implements TransactionSynchronization {
+        private final List<Moved> moves = new ArrayList<>();
+
+        @Override
+        public void afterCommit() {
+            publish(moves, System.currentTimeMillis());
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(OrderTransitions.this);
+        }
+    }
+
+    public interface Moved {
+    }
+
+    // one order status change; from is null for a new order
+    public static class OrderMoved implements Moved {
+        private final Long orderId;
+        private final OrderStatus from;
+        private final OrderStatus to;
+        private final Long agentId;
+
+        public OrderMoved(Long orderId, OrderStatus from, OrderStatus to, Long agentId) {
+            this.orderId = orderId;
+            this.from = from;
+            this.to = to;
+            this.agentId = agentId;
+        }
+
+        public Long getOrderId() {
+            return orderId;
+        }
+
+        public OrderStatus getFrom() {
+            return from;
+        }
+
+        public OrderStatus getTo() {
+            return to;
+        }
+
+        public Long getAgentId() {
+            return agentId;
+        }
+    }
+
+    // one agent status change; orderId is the order that moved it, null for a save through the agent API
+    public static class AgentMoved implements Moved {
+        private final Long agentId;
+        private final AgentStatus from;
+        private final AgentStatus to;
+        private final Long orderId;
+
+        public AgentMoved(Long agentId, AgentStatus from, AgentStatus to, Long orderId) {
+            this.agentId = agentId;
+            this.from = from;
+            this.to = to;
+            this.orderId = orderId;
+        }
+
+        public Long getAgentId() {
+            return agentId;
+        }
+
+        public AgentStatus getFrom() {
+            return from;
+        }
+
+        public AgentStatus getTo() {
+            return to;
+        }
+
+        public Long getOrderId() {
+            return orderId;
+        }
+    }
+}
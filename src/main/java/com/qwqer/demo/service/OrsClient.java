@@ -0,0 +1,229 @@
+package com.qwqer.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared, non-blocking OpenRouteService client.
+ *
+ * One JDK HttpClient (keep-alive connection pool) is reused for every call. Requests are
+ * gated by a client-side token bucket sized to our ORS quota and by a circuit breaker, so
+ * when the upstream is degraded or the quota is used up callers fail fast with
+ * {@link OrsUnavailableException} and can switch to fallback routing without waiting.
+ */
+@Service
+public class OrsClient {
+
+    private static final String DIRECTIONS_URL = "https://api.openrouteservice.org/v2/directions/driving-car";
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OrsClient.class);
+
+    private final String apiKey;
+    private final Duration readTimeout;
+    private final Executor executor;
+    private final HttpClient httpClient;
+    private final TokenBucket rateLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final long backgroundReserve;
+
+    // ors.requests by outcome; outcome=rate_limited counts upstream 429s
+    private final Timer okTimer;
+    private final Timer rateLimitedTimer;
+    private final Timer serverErrorTimer;
+    private final Timer clientErrorTimer;
+    private final Timer failedTimer;
+    private final Counter circuitOpenRejections;
+    private final Counter localRateLimitRejections;
+
+    public OrsClient(@Value("${ors.api.key}") String apiKey,
+            @Value("${ors.http.connect-timeout-ms:3000}") long connectTimeoutMs,
+            @Value("${ors.http.read-timeout-ms:10000}") long readTimeoutMs,
+            @Value("${ors.http.threads:8}") int threads,
+            @Value("${ors.rate-limit.requests-per-minute:40}") long requestsPerMinute,
+            @Value("${ors.rate-limit.burst:10}") long burst,
+            @Value("${ors.rate-limit.background-reserve:5}") long backgroundReserve,
+            @Value("${ors.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${ors.circuit-breaker.open-ms:30000}") long openMs,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            MeterRegistry meterRegistry) {
+        this.apiKey = apiKey;
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+
+        if (virtualThreads) {
+            // 🧵 one virtual thread per response callback (Java 21+, see application-virtual-threads.properties)
+            this.executor = new VirtualThreadTaskExecutor("ors-client-");
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "ors-client-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(executor)
+                .build();
+        this.rateLimiter = new TokenBucket(burst, requestsPerMinute, 60_000);
+        this.circuitBreaker = new CircuitBreaker("ors", failureThreshold, openMs);
+        this.backgroundReserve = backgroundReserve;
+
+        this.okTimer = requestTimer(meterRegistry, "ok");
+        this.rateLimitedTimer = requestTimer(meterRegistry, "rate_limited");
+        this.serverErrorTimer = requestTimer(meterRegistry, "server_error");
+        this.clientErrorTimer = requestTimer(meterRegistry, "client_error");
+        this.failedTimer = requestTimer(meterRegistry, "failed");
+        this.circuitOpenRejections = Counter.builder("ors.rejected").tag("reason", "circuit_open")
+                .description("ORS calls refused before reaching the network").register(meterRegistry);
+        this.localRateLimitRejections = Counter.builder("ors.rejected").tag("reason", "rate_limit")
+                .description("ORS calls refused before reaching the network").register(meterRegistry);
+    }
+
+    private static Timer requestTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("ors.requests")
+                .description("ORS HTTP round trips")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public boolean isConfigured() {
+        return apiKey != null && !apiKey.isBlank();
+    }
+
+    // GET directions for a single leg, returns the ORS GeoJSON FeatureCollection
+    public CompletableFuture<String> getDirections(double startLat, double startLng, double endLat, double endLng) {
+        return send(directionsRequest(startLat, startLng, endLat, endLng), false);
+    }
+
+    // same as getDirections, but only spends quota that live requests are not going to need
+    public CompletableFuture<String> getDirectionsInBackground(double startLat, double startLng,
+            double endLat, double endLng) {
+        return send(directionsRequest(startLat, startLng, endLat, endLng), true);
+    }
+
+    private HttpRequest directionsRequest(double startLat, double startLng, double endLat, double endLng) {
+        String url = String.format(Locale.ROOT, "%s?api_key=%s&start=%f,%f&end=%f,%f",
+                DIRECTIONS_URL, apiKey, startLng, startLat, endLng, endLat);
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(readTimeout)
+                .header("Accept", "application/json, application/geo+json")
+                .GET()
+                .build();
+    }
+
+    // POST multi-stop directions, body is the ORS JSON request ({ "coordinates": [[lng,lat],...] })
+    public CompletableFuture<String> postGeoJsonDirections(String body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(DIRECTIONS_URL + "/geojson"))
+                .timeout(readTimeout)
+                .header("Authorization", apiKey)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json, application/geo+json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return send(request, false);
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    private CompletableFuture<String> send(HttpRequest request, boolean background) {
+        if (!circuitBreaker.allowRequest()) {
+            circuitOpenRejections.increment();
+            return CompletableFuture.failedFuture(new OrsUnavailableException("ORS circuit is open"));
+        }
+        boolean acquired = background ? rateLimiter.tryAcquireAbove(backgroundReserve) : rateLimiter.tryAcquire();
+        if (!acquired) {
+            circuitBreaker.releasePermit();
+            localRateLimitRejections.increment();
+            return CompletableFuture.failedFuture(new OrsUnavailableException("ORS client-side rate limit reached"));
+        }
+
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, ex) -> {
+                    long elapsed = System.nanoTime() - start;
+                    if (ex != null) {
+                        failedTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                        circuitBreaker.recordFailure();
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        if (cause instanceof HttpTimeoutException) {
+                            throw new OrsUnavailableException("ORS request timed out");
+                        }
+                        throw new OrsUnavailableException("ORS request failed: " + cause.getMessage());
+                    }
+
+                    int status = response.statusCode();
+                    if (status >= 200 && status < 300) {
+                        okTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                        circuitBreaker.recordSuccess();
+                        return response.body();
+                    }
+                    if (status == 429 || status >= 500) {
+                        (status == 429 ? rateLimitedTimer : serverErrorTimer).record(elapsed, TimeUnit.NANOSECONDS);
+                        circuitBreaker.recordFailure();
+                        log.warn("⚠️ ORS responded {}", status);
+                        throw new OrsUnavailableException("ORS responded " + status);
+                    }
+                    // other 4xx mean a bad request from our side, the upstream itself is healthy
+                    clientErrorTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                    circuitBreaker.recordSuccess();
+                    throw new OrsHttpException(status, response.body());
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService pool) {
+            pool.shutdownNow();
+        }
+    }
+
+    // upstream is rate-limited, timing out, failing or short-circuited: callers should use fallback routing
+    public static class OrsUnavailableException extends RuntimeException {
+        public OrsUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    // upstream rejected the request itself (bad coordinates, no route found, ...)
+    public static class OrsHttpException extends RuntimeException {
+        private final int statusCode;
+        private final String responseBody;
+
+        public OrsHttpException(int statusCode, String responseBody) {
+            super("ORS responded " + statusCode);
+            this.statusCode = statusCode;
+            this.responseBody = responseBody;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getResponseBody() {
+            return responseBody;
+        }
+    }
+}
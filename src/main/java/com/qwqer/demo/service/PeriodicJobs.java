@@ -0,0 +1,112 @@
+package com.qwqer.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Skip-if-still-running wrapper and meters for fixed-rate @Scheduled jobs.
+ *
+ * A tick is skipped (and counted in {@code scheduler.overruns}) when the previous run of the same
+ * job has not finished, or when the tick is a whole period late, which is how a fixed-rate
+ * scheduler catches up after a slow run. {@code scheduler.tick.lag} records how far each tick
+ * started behind its schedule and {@code scheduler.job.duration} how long the runs take.
+ */
+@Component
+public class PeriodicJobs {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(PeriodicJobs.class);
+
+    private final MeterRegistry registry;
+
+    public PeriodicJobs(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    // runs on the scheduler thread that fired the tick
+    public Job inline(String name, long periodMs) {
+        return new Job(name, periodMs, null);
+    }
+
+    // the scheduler thread only fires the tick; the run itself goes to workers
+    public Job onWorkers(String name, long periodMs, Executor workers) {
+        return new Job(name, periodMs, workers);
+    }
+
+    public class Job {
+        private final String name;
+        private final long periodNanos;
+        private final Executor workers;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private final Timer lag;
+        private final Timer duration;
+        private final Counter overruns;
+        private long nextDueNanos; // only touched by the firing scheduler thread
+
+        private Job(String name, long periodMs, Executor workers) {
+            this.name = name;
+            this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMs);
+            this.workers = workers;
+            this.lag = Timer.builder("scheduler.tick.lag")
+                    .description("How late a periodic job tick fired compared to its schedule")
+                    .tag("job", name)
+                    .register(registry);
+            this.duration = Timer.builder("scheduler.job.duration")
+                    .description("Duration of one periodic job run")
+                    .tag("job", name)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.overruns = Counter.builder("scheduler.overruns")
+                    .description("Ticks skipped because the previous run was still going or the tick was a period late")
+                    .tag("job", name)
+                    .register(registry);
+        }
+
+        public void tick(Runnable task) {
+            long now = System.nanoTime();
+            if (nextDueNanos == 0) {
+                nextDueNanos = now;
+            }
+            // fixed-rate ticks are due at first + k * period; catch-up ticks after a slow run are a period or more late
+            long late = Math.max(0, now - nextDueNanos);
+            nextDueNanos += periodNanos;
+            lag.record(late, TimeUnit.NANOSECONDS);
+
+            if (late >= periodNanos || !running.compareAndSet(false, true)) {
+                overruns.increment();
+                log.debug("⏭ {} tick skipped ({} ms late, running={})", name,
+                        TimeUnit.NANOSECONDS.toMillis(late), running.get());
+                return;
+            }
+            if (workers == null) {
+                run(task);
+                return;
+            }
+            try {
+                workers.execute(() -> run(task));
+            } catch (TaskRejectedException e) {
+                running.set(false);
+                overruns.increment();
+                log.warn("⚠️ {} tick rejected by the worker pool: {}", name, e.getMessage());
+            }
+        }
+
+        private void run(Runnable task) {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("❌ {} run failed", name, e);
+            } finally {
+                duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                running.set(false);
+            }
+        }
+    }
+}
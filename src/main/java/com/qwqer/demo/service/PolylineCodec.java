@@ -0,0 +1,155 @@
+package com.qwqer.demo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Google encoded-polyline codec plus Douglas-Peucker simplification.
+ * Points are {lat, lng} pairs, as in the polyline format itself.
+ */
+public final class PolylineCodec {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    private PolylineCodec() {
+    }
+
+    public static String encode(List<double[]> points, int precision) {
+        double factor = Math.pow(10, precision);
+        StringBuilder sb = new StringBuilder(points.size() * 8);
+        long prevLat = 0;
+        long prevLng = 0;
+        for (double[] p : points) {
+            long lat = Math.round(p[0] * factor);
+            long lng = Math.round(p[1] * factor);
+            encodeValue(lat - prevLat, sb);
+            encodeValue(lng - prevLng, sb);
+            prevLat = lat;
+            prevLng = lng;
+        }
+        return sb.toString();
+    }
+
+    public static List<double[]> decode(String encoded, int precision) {
+        double factor = Math.pow(10, precision);
+        List<double[]> points = new ArrayList<>();
+        int index = 0;
+        long lat = 0;
+        long lng = 0;
+        while (index < encoded.length()) {
+            long[] result = decodeValue(encoded, index);
+            lat += result[0];
+            index = (int) result[1];
+            result = decodeValue(encoded, index);
+            lng += result[0];
+            index = (int) result[1];
+            points.add(new double[] { lat / factor, lng / factor });
+        }
+        return points;
+    }
+
+    /**
+     * Douglas-Peucker simplification with the tolerance in meters (local equirectangular projection).
+     * Returns the indices of the points to keep, always including the first and the last one.
+     */
+    public static int[] simplify(List<double[]> points, double toleranceMeters) {
+        int n = points.size();
+        if (n <= 2 || toleranceMeters <= 0) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        double meanLat = 0;
+        for (double[] p : points) {
+            meanLat += p[0];
+        }
+        double lngScale = Math.cos(Math.toRadians(meanLat / n)) * METERS_PER_DEGREE;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = points.get(i)[1] * lngScale;
+            y[i] = points.get(i)[0] * METERS_PER_DEGREE;
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        double toleranceSq = toleranceMeters * toleranceMeters;
+        int[] stack = new int[2 * n];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double maxDistSq = 0;
+            int index = -1;
+            for (int i = first + 1; i < last; i++) {
+                double d = segmentDistanceSq(x[i], y[i], x[first], y[first], x[last], y[last]);
+                if (d > maxDistSq) {
+                    maxDistSq = d;
+                    index = i;
+                }
+            }
+            if (index >= 0 && maxDistSq > toleranceSq) {
+                keep[index] = true;
+                stack[top++] = first;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = last;
+            }
+        }
+
+        int count = 0;
+        for (boolean k : keep) {
+            if (k) {
+                count++;
+            }
+        }
+        int[] kept = new int[count];
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                kept[j++] = i;
+            }
+        }
+        return kept;
+    }
+
+    private static double segmentDistanceSq(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lenSq = dx * dx + dy * dy;
+        double t = lenSq == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lenSq;
+        t = Math.max(0, Math.min(1, t));
+        double cx = ax + t * dx - px;
+        double cy = ay + t * dy - py;
+        return cx * cx + cy * cy;
+    }
+
+    private static void encodeValue(long value, StringBuilder sb) {
+        long v = value < 0 ? ~(value << 1) : value << 1;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+
+    // returns {decoded value, next index}
+    private static long[] decodeValue(String encoded, int index) {
+        long result = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = encoded.charAt(index++) - 63;
+            result |= (long) (b & 0x1f) << shift;
+            shift += 5;
+        } while (b >= 0x20);
+        long value = (result & 1) != 0 ? ~(result >> 1) : (result >> 1);
+        return new long[] { value, index };
+    }
+}
@@ -0,0 +1,217 @@
+package com.qwqer.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory route cache that keeps routes in a compact form:
+ * the LineString geometry is stored as an encoded polyline (precision 6) and the rest
+ * of the GeoJSON (summary, segments, way points) as minified JSON without coordinates.
+ * Full GeoJSON is only rebuilt when a client asks for it.
+ */
+@Component
+public class RouteCache {
+
+    public static final int STORAGE_PRECISION = 6;
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(RouteCache.class);
+
+    private final Map<String, CachedRoute> routes = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+    private final Counter hits;
+    private final Counter misses;
+
+    public RouteCache(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.hits = Counter.builder("routes.cache.lookups").tag("result", "hit")
+                .description("Client route lookups answered from the cache").register(meterRegistry);
+        this.misses = Counter.builder("routes.cache.lookups").tag("result", "miss")
+                .description("Client route lookups answered from the cache").register(meterRegistry);
+        Gauge.builder("routes.cache.size", routes, Map::size).register(meterRegistry);
+    }
+
+    public static String key(double startLat, double startLng, double endLat, double endLng) {
+        return startLat + "," + startLng + "->" + endLat + "," + endLng;
+    }
+
+    public CachedRoute get(String key) {
+        return routes.get(key);
+    }
+
+    // same as get, counted in the hit ratio; fallback entries are misses since they go back to ORS
+    public CachedRoute lookup(String key) {
+        CachedRoute route = routes.get(key);
+        if (route != null && !route.isFallback()) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return route;
+    }
+
+    public CachedRoute put(String key, String geoJson) {
+        CachedRoute route = compact(geoJson, false);
+        routes.put(key, route);
+        return route;
+    }
+
+    // fallback entries are kept only until a real route for the same key arrives
+    public CachedRoute putFallback(String key, String geoJson) {
+        CachedRoute route = compact(geoJson, true);
+        routes.put(key, route);
+        return route;
+    }
+
+    public Collection<CachedRoute> routes() {
+        return Collections.unmodifiableCollection(routes.values());
+    }
+
+    public int size() {
+        return routes.size();
+    }
+
+    // 🗜️ strip the coordinate array out of a single-LineString FeatureCollection
+    private CachedRoute compact(String geoJson, boolean fallback) {
+        try {
+            JsonNode root = objectMapper.readTree(geoJson);
+            JsonNode features = root.path("features");
+            JsonNode feature = features.path(0);
+            JsonNode summary = feature.path("properties").path("summary");
+            double distance = summary.path("distance").asDouble(0);
+            double duration = summary.path("duration").asDouble(0);
+
+            JsonNode geometry = feature.path("geometry");
+            if (features.size() != 1 || !"LineString".equals(geometry.path("type").asText())) {
+                return new CachedRoute(null, objectMapper.writeValueAsString(root), distance, duration, 0, fallback);
+            }
+
+            List<double[]> points = new ArrayList<>();
+            for (JsonNode c : geometry.path("coordinates")) {
+                points.add(new double[] { c.get(1).asDouble(), c.get(0).asDouble() });
+            }
+            ((ObjectNode) geometry).putArray("coordinates");
+            double straightLineMeters = points.size() < 2 ? 0 : GeoDistance.haversineKm(
+                    points.get(0)[0], points.get(0)[1],
+                    points.get(points.size() - 1)[0], points.get(points.size() - 1)[1]) * 1000.0;
+            return new CachedRoute(PolylineCodec.encode(points, STORAGE_PRECISION),
+                    objectMapper.writeValueAsString(root), distance, duration, straightLineMeters, fallback);
+        } catch (JsonProcessingException e) {
+            log.warn("⚠️ Route is not valid JSON, caching it as-is");
+            return new CachedRoute(null, geoJson, 0, 0, 0, fallback);
+        }
+    }
+
+    // rebuild GeoJSON from the compact form; keptIndices (from simplification) may be null for all points
+    public String toGeoJson(CachedRoute route, List<double[]> points, int[] keptIndices) {
+        if (!route.hasGeometry()) {
+            return route.getTemplate();
+        }
+        try {
+            JsonNode root = objectMapper.readTree(route.getTemplate());
+            JsonNode feature = root.path("features").path(0);
+            ArrayNode coordinates = ((ObjectNode) feature.path("geometry")).putArray("coordinates");
+            if (keptIndices == null) {
+                for (double[] p : points) {
+                    coordinates.addArray().add(p[1]).add(p[0]);
+                }
+            } else {
+                for (int idx : keptIndices) {
+                    double[] p = points.get(idx);
+                    coordinates.addArray().add(p[1]).add(p[0]);
+                }
+                remapWayPoints(feature.path("properties"), keptIndices);
+            }
+            return objectMapper.writeValueAsString(root);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cached route template is not valid JSON", e);
+        }
+    }
+
+    // way_points index into the coordinate array, so point them at the nearest kept vertex at or before them
+    private void remapWayPoints(JsonNode node, int[] keptIndices) {
+        if (node.isObject()) {
+            node.fields().forEachRemaining(entry -> {
+                JsonNode value = entry.getValue();
+                if ("way_points".equals(entry.getKey()) && value.isArray()) {
+                    ArrayNode array = (ArrayNode) value;
+                    for (int i = 0; i < array.size(); i++) {
+                        int pos = Arrays.binarySearch(keptIndices, array.get(i).asInt());
+                        array.set(i, array.numberNode(pos >= 0 ? pos : Math.max(0, -pos - 2)));
+                    }
+                } else {
+                    remapWayPoints(value, keptIndices);
+                }
+            });
+        } else if (node.isArray()) {
+            for (JsonNode child : node) {
+                remapWayPoints(child, keptIndices);
+            }
+        }
+    }
+
+    public static class CachedRoute {
+        private final String encodedGeometry;
+        private final String template;
+        private final double distance;
+        private final double duration;
+        private final double straightLineMeters;
+        private final boolean fallback;
+
+        public CachedRoute(String encodedGeometry, String template, double distance, double duration,
+                double straightLineMeters, boolean fallback) {
+            this.encodedGeometry = encodedGeometry;
+            this.template = template;
+            this.distance = distance;
+            this.duration = duration;
+            this.straightLineMeters = straightLineMeters;
+            this.fallback = fallback;
+        }
+
+        public boolean hasGeometry() {
+            return encodedGeometry != null;
+        }
+
+        public List<double[]> decodePoints() {
+            return hasGeometry() ? PolylineCodec.decode(encodedGeometry, STORAGE_PRECISION) : List.of();
+        }
+
+        public String getEncodedGeometry() {
+            return encodedGeometry;
+        }
+
+        public String getTemplate() {
+            return template;
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+
+        public double getDuration() {
+            return duration;
+        }
+
+        public double getStraightLineMeters() {
+            return straightLineMeters;
+        }
+
+        public boolean isFallback() {
+            return fallback;
+        }
+    }
+}
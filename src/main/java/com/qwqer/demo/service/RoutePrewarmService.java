@@ -0,0 +1,185 @@
+package com.qwqer.demo.service;
+
+import com.qwqer.demo.entity.Warehouse;
+import com.qwqer.demo.repository.CustomerOrderRepository;
+import com.qwqer.demo.repository.WarehouseRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pre-warms the route cache so peak-hour lookups are cache hits:
+ *  - groups recent order delivery locations per warehouse into grid cells,
+ *  - picks the busiest cells (demand hotspots) for each warehouse,
+ *  - fetches warehouse → hotspot routes from ORS using only spare rate budget.
+ *
+ * Each hotspot is represented by its most frequent exact delivery location, so the cache key
+ * matches what the frontend asks for. Fallback (estimated) entries are replaced as well.
+ * Work runs on its own low-priority thread, never on the scheduler thread.
+ */
+@Service
+public class RoutePrewarmService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(RoutePrewarmService.class);
+
+    private final CustomerOrderRepository orderRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final OrsClient orsClient;
+    private final RouteCache routeCache;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "route-prewarm");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Value("${routes.prewarm.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${routes.prewarm.lookback-days:14}")
+    private int lookbackDays = 14;
+
+    @Value("${routes.prewarm.top-clusters:10}")
+    private int topClusters = 10;
+
+    @Value("${routes.prewarm.cluster-cell-deg:0.005}")
+    private double clusterCellDeg = 0.005;
+
+    public RoutePrewarmService(CustomerOrderRepository orderRepository, WarehouseRepository warehouseRepository,
+            OrsClient orsClient, RouteCache routeCache) {
+        this.orderRepository = orderRepository;
+        this.warehouseRepository = warehouseRepository;
+        this.orsClient = orsClient;
+        this.routeCache = routeCache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarmOnStartup() {
+        trigger();
+    }
+
+    @Scheduled(fixedDelayString = "${routes.prewarm.interval-ms:900000}",
+            initialDelayString = "${routes.prewarm.interval-ms:900000}")
+    public void prewarmPeriodically() {
+        trigger();
+    }
+
+    // hand the pass to the worker thread; skip if the previous pass is still going
+    public void trigger() {
+        if (!enabled || !orsClient.isConfigured()) {
+            return;
+        }
+        if (running.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                try {
+                    prewarm();
+                } catch (Exception e) {
+                    log.error("Route pre-warm pass failed", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+    }
+
+    private void prewarm() {
+        Map<Long, List<double[]>> hotspots = findHotspots();
+        if (hotspots.isEmpty()) {
+            return;
+        }
+
+        int fetched = 0;
+        int skipped = 0;
+        for (Warehouse warehouse : warehouseRepository.findAllById(hotspots.keySet())) {
+            if (warehouse.getLatitude() == null || warehouse.getLongitude() == null) {
+                continue;
+            }
+            for (double[] target : hotspots.get(warehouse.getId())) {
+                String key = RouteCache.key(warehouse.getLatitude(), warehouse.getLongitude(), target[0], target[1]);
+                RouteCache.CachedRoute cached = routeCache.get(key);
+                if (cached != null && !cached.isFallback()) {
+                    skipped++;
+                    continue;
+                }
+                try {
+                    String body = orsClient.getDirectionsInBackground(
+                            warehouse.getLatitude(), warehouse.getLongitude(), target[0], target[1]).join();
+                    routeCache.put(key, body);
+                    fetched++;
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof OrsClient.OrsUnavailableException) {
+                        // out of spare budget or upstream degraded: leave the rest for the next pass
+                        log.info("⏸ Route pre-warm paused after {} routes: {}", fetched, e.getCause().getMessage());
+                        return;
+                    }
+                    log.warn("⚠️ Pre-warm route {} failed: {}", key, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                }
+            }
+        }
+        log.info("🔥 Route pre-warm pass done: {} fetched, {} already cached", fetched, skipped);
+    }
+
+    // warehouseId -> representative {lat, lng} of its busiest delivery cells, busiest first
+    private Map<Long, List<double[]>> findHotspots() {
+        LocalDateTime since = LocalDateTime.now().minusDays(lookbackDays);
+        Map<Long, Map<Long, Map<String, Integer>>> cells = new HashMap<>();
+        Map<String, double[]> locations = new HashMap<>();
+
+        for (Object[] row : orderRepository.findRecentDeliveryLocations(since)) {
+            Long warehouseId = (Long) row[0];
+            double lat = (Double) row[1];
+            double lng = (Double) row[2];
+            long cell = cellId(lat, lng);
+            String location = lat + "," + lng;
+            locations.putIfAbsent(location, new double[] { lat, lng });
+            cells.computeIfAbsent(warehouseId, k -> new HashMap<>())
+                    .computeIfAbsent(cell, k -> new HashMap<>())
+                    .merge(location, 1, Integer::sum);
+        }
+
+        Map<Long, List<double[]>> hotspots = new HashMap<>();
+        for (Map.Entry<Long, Map<Long, Map<String, Integer>>> w : cells.entrySet()) {
+            List<Map<String, Integer>> ranked = new ArrayList<>(w.getValue().values());
+            ranked.sort(Comparator.comparingInt(RoutePrewarmService::total).reversed());
+
+            List<double[]> targets = new ArrayList<>();
+            for (Map<String, Integer> cell : ranked.subList(0, Math.min(topClusters, ranked.size()))) {
+                String mostFrequent = Collections.max(cell.entrySet(), Map.Entry.comparingByValue()).getKey();
+                targets.add(locations.get(mostFrequent));
+            }
+            hotspots.put(w.getKey(), targets);
+        }
+        return hotspots;
+    }
+
+    private long cellId(double lat, double lng) {
+        long row = (long) Math.floor(lat / clusterCellDeg);
+        long col = (long) Math.floor(lng / clusterCellDeg);
+        return (row << 32) ^ (col & 0xffffffffL);
+    }
+
+    private static int total(Map<String, Integer> cell) {
+        int sum = 0;
+        for (int c : cell.values()) {
+            sum += c;
+        }
+        return sum;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+}
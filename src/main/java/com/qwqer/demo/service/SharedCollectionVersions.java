@@ -0,0 +1,89 @@
+package com.qwqer.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * CollectionVersions for the cluster profile: the counters live in the collection_versions table, so
+ * every instance on the same database hands out the same ETag for the same data, and a write committed
+ * on one instance changes the ETag on all of them. The price is one primary-key read per conditional GET.
+ *
+ * A counter starts at the creation time of its row, so ETags from an earlier (in-memory) database never
+ * match a new one. Bumps run after the commit, each on its own autocommit statement, so the hot row is
+ * locked for one UPDATE and never for the length of the writing transaction; they run on the
+ * afterCommitWriter thread, so the committing thread never takes a second connection for them.
+ */
+@Component
+@Profile("cluster")
+public class SharedCollectionVersions extends CollectionVersions {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(SharedCollectionVersions.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TaskExecutor afterCommitWriter;
+
+    // no transaction is ever bound to this wrapper, so each statement runs on its own autocommit connection
+    public SharedCollectionVersions(DataSource dataSource, @Qualifier("afterCommitWriter") TaskExecutor afterCommitWriter) {
+        this.jdbcTemplate = new JdbcTemplate(new DelegatingDataSource(dataSource));
+        this.afterCommitWriter = afterCommitWriter;
+    }
+
+    @PostConstruct
+    public void createCounters() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS collection_versions ("
+                + "name VARCHAR(32) PRIMARY KEY, version BIGINT NOT NULL)");
+        long start = System.currentTimeMillis();
+        for (Collection collection : Collection.values()) {
+            try {
+                jdbcTemplate.update("INSERT INTO collection_versions (name, version) SELECT ?, ? "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM collection_versions WHERE name = ?)",
+                        collection.name(), start, collection.name());
+            } catch (DataIntegrityViolationException e) {
+                // another instance created it at the same moment
+            }
+        }
+    }
+
+    @Override
+    public long current(Collection collection) {
+        Long version = jdbcTemplate.queryForObject("SELECT version FROM collection_versions WHERE name = ?",
+                Long.class, collection.name());
+        return version != null ? version : 0;
+    }
+
+    // no boot epoch: the row's starting value already tells databases apart, and all instances must agree
+    @Override
+    public String etag(Collection collection) {
+        return "\"" + collection.name().toLowerCase() + "-" + current(collection) + "\"";
+    }
+
+    @Override
+    protected void bumpCommitted(Set<Collection> collections) {
+        Set<Collection> committed = EnumSet.copyOf(collections);
+        try {
+            afterCommitWriter.execute(() -> super.bumpCommitted(committed));
+        } catch (TaskRejectedException e) {
+            // the write is committed either way; until the next bump a poll may still get 304 for the old data
+            log.error("Could not queue the version bump of {}", committed, e);
+        }
+    }
+
+    @Override
+    protected void bump(Set<Collection> collections) {
+        List<String> names = collections.stream().map(Collection::name).toList();
+        jdbcTemplate.update("UPDATE collection_versions SET version = version + 1 WHERE name IN ("
+                + String.join(",", names.stream().map(n -> "?").toList()) + ")", names.toArray());
+    }
+}
@@ -0,0 +1,55 @@
+package com.qwqer.demo.service;
+
+import com.qwqer.demo.entity.CustomerOrder;
+import com.qwqer.demo.entity.DeliveryAgent;
+import com.qwqer.demo.enums.OrderStatus;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// JPA entity listener: status changes made by saving an order or agent entity (new rows, CRUD endpoints).
+// OrderTransitionService's conditional UPDATEs bypass it and publish their transitions themselves.
+@Component
+public class StatusChangeListener {
+
+    private final ApplicationEventPublisher publisher;
+    // entity instance -> status as last loaded or written
+    private final Map<Object, Object> loaded = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public StatusChangeListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostLoad
+    public void onLoad(Object entity) {
+        if (entity instanceof CustomerOrder order) {
+            loaded.put(order, order.getStatus());
+        } else if (entity instanceof DeliveryAgent agent) {
+            loaded.put(agent, agent.getStatus());
+        }
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Object entity) {
+        if (entity instanceof CustomerOrder order) {
+            OrderStatus before = (OrderStatus) loaded.put(order, order.getStatus());
+            if (order.getStatus() != before) {
+                publisher.publishEvent(new OrderTransitions.OrderMoved(order.getId(), before, order.getStatus(),
+                        order.getDeliveryAgentId()));
+            }
+        } else if (entity instanceof DeliveryAgent agent) {
+            DeliveryAgent.AgentStatus before = (DeliveryAgent.AgentStatus) loaded.put(agent, agent.getStatus());
+            if (agent.getStatus() != before) {
+                publisher.publishEvent(new OrderTransitions.AgentMoved(agent.getId(), before, agent.getStatus(),
+                        agent.getAssignedOrderId()));
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.qwqer.demo.service;
+
+/**
+ * Client-side token bucket used to stay inside an upstream quota instead of
+ * finding out about it from a 429. Tokens refill continuously up to the capacity.
+ */
+public class TokenBucket {
+
+    private final long capacity;
+    private final double refillPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(long capacity, long refillTokens, long refillPeriodMillis) {
+        if (capacity <= 0 || refillTokens <= 0 || refillPeriodMillis <= 0) {
+            throw new IllegalArgumentException("Token bucket capacity and refill rate must be positive");
+        }
+        this.capacity = capacity;
+        this.refillPerNano = (double) refillTokens / (refillPeriodMillis * 1_000_000.0);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return true;
+        }
+        return false;
+    }
+
+    // only take a token if at least `reserve` stay in the bucket, so background work yields to live traffic
+    public synchronized boolean tryAcquireAbove(long reserve) {
+        refill();
+        if (tokens >= 1.0 + reserve) {
+            tokens -= 1.0;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized double availableTokens() {
+        refill();
+        return tokens;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,256 @@
+package com.qwqer.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local multi-stop tour optimizer:
+ *  - builds a haversine cost matrix for the stops (no network calls),
+ *  - constructs a tour with nearest-neighbour starting from the first stop,
+ *  - improves it with 2-opt and Or-opt moves until no move helps or the time budget runs out.
+ *
+ * The first stop is always kept as the start (e.g. the warehouse). Tours are open paths
+ * unless roundTrip is requested, in which case the closing leg back to the start is costed too.
+ */
+@Service
+public class TourOptimizationService {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double IMPROVEMENT_EPSILON = 1e-9;
+    private static final int OR_OPT_MAX_SEGMENT = 3;
+
+    @Value("${routes.optimizer.time-budget-ms:50}")
+    private long timeBudgetMs = 50;
+
+    @Value("${routes.optimizer.average-speed-kmh:15}")
+    private double averageSpeedKmh = 15.0;
+
+    public Tour optimize(double[] lats, double[] lngs, boolean roundTrip) {
+        if (lats.length != lngs.length) {
+            throw new IllegalArgumentException("Latitude and longitude arrays must have the same length");
+        }
+        int n = lats.length;
+        if (n == 0) {
+            return new Tour(new int[0], 0, 0);
+        }
+
+        double[] cost = buildCostMatrix(lats, lngs);
+        long deadline = System.nanoTime() + timeBudgetMs * 1_000_000L;
+
+        int[] tour = nearestNeighbour(cost, n);
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = twoOpt(cost, tour, roundTrip, deadline);
+            improved |= orOpt(cost, tour, roundTrip, deadline);
+        }
+
+        double distanceKm = tourLength(cost, tour, roundTrip);
+        double durationSec = distanceKm / averageSpeedKmh * 3600.0;
+        return new Tour(tour, distanceKm * 1000.0, durationSec);
+    }
+
+    // 📐 flat n*n matrix of great-circle distances in km
+    static double[] buildCostMatrix(double[] lats, double[] lngs) {
+        int n = lats.length;
+        double[] latRad = new double[n];
+        double[] lngRad = new double[n];
+        double[] cosLat = new double[n];
+        for (int i = 0; i < n; i++) {
+            latRad[i] = Math.toRadians(lats[i]);
+            lngRad[i] = Math.toRadians(lngs[i]);
+            cosLat[i] = Math.cos(latRad[i]);
+        }
+
+        double[] cost = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double sinDLat = Math.sin((latRad[j] - latRad[i]) / 2);
+                double sinDLng = Math.sin((lngRad[j] - lngRad[i]) / 2);
+                double a = sinDLat * sinDLat + cosLat[i] * cosLat[j] * sinDLng * sinDLng;
+                double d = EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+                cost[i * n + j] = d;
+                cost[j * n + i] = d;
+            }
+        }
+        return cost;
+    }
+
+    private static int[] nearestNeighbour(double[] cost, int n) {
+        int[] tour = new int[n];
+        boolean[] visited = new boolean[n];
+        tour[0] = 0;
+        visited[0] = true;
+        for (int pos = 1; pos < n; pos++) {
+            int from = tour[pos - 1];
+            int best = -1;
+            double bestCost = Double.MAX_VALUE;
+            for (int j = 0; j < n; j++) {
+                if (!visited[j] && cost[from * n + j] < bestCost) {
+                    bestCost = cost[from * n + j];
+                    best = j;
+                }
+            }
+            tour[pos] = best;
+            visited[best] = true;
+        }
+        return tour;
+    }
+
+    // 🔁 reverse tour[i..j] whenever it shortens the tour; position 0 stays fixed
+    private static boolean twoOpt(double[] cost, int[] tour, boolean roundTrip, long deadline) {
+        int n = tour.length;
+        boolean improvedAny = false;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 1; i < n - 1; i++) {
+                if (System.nanoTime() >= deadline) {
+                    return improvedAny;
+                }
+                int a = tour[i - 1];
+                int b = tour[i];
+                for (int j = i + 1; j < n; j++) {
+                    int c = tour[j];
+                    int d = successor(tour, j, roundTrip);
+                    double delta = cost[a * n + c] + edge(cost, n, b, d)
+                            - cost[a * n + b] - edge(cost, n, c, d);
+                    if (delta < -IMPROVEMENT_EPSILON) {
+                        reverse(tour, i, j);
+                        b = tour[i];
+                        improved = true;
+                        improvedAny = true;
+                    }
+                }
+            }
+        }
+        return improvedAny;
+    }
+
+    // ✂️ move short segments (1..3 stops) to a cheaper place, optionally reversed
+    private static boolean orOpt(double[] cost, int[] tour, boolean roundTrip, long deadline) {
+        int n = tour.length;
+        boolean improvedAny = false;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            search:
+            for (int len = 1; len <= OR_OPT_MAX_SEGMENT; len++) {
+                for (int i = 1; i + len <= n; i++) {
+                    if (System.nanoTime() >= deadline) {
+                        return improvedAny;
+                    }
+                    int end = i + len - 1;
+                    int prev = tour[i - 1];
+                    int first = tour[i];
+                    int last = tour[end];
+                    int next = successor(tour, end, roundTrip);
+                    double removeGain = cost[prev * n + first] + edge(cost, n, last, next)
+                            - edge(cost, n, prev, next);
+                    if (removeGain <= IMPROVEMENT_EPSILON) {
+                        continue;
+                    }
+
+                    for (int k = 0; k < n; k++) {
+                        if (k >= i - 1 && k <= end) {
+                            continue;
+                        }
+                        int p = tour[k];
+                        int q = successor(tour, k, roundTrip);
+                        double base = edge(cost, n, p, q);
+                        double forward = cost[p * n + first] + edge(cost, n, last, q) - base;
+                        double reversed = cost[p * n + last] + edge(cost, n, first, q) - base;
+                        boolean useReversed = reversed < forward;
+                        double insertCost = useReversed ? reversed : forward;
+                        if (insertCost < removeGain - IMPROVEMENT_EPSILON) {
+                            moveSegment(tour, i, end, k, useReversed);
+                            improved = true;
+                            improvedAny = true;
+                            break search;
+                        }
+                    }
+                }
+            }
+        }
+        return improvedAny;
+    }
+
+    private static int successor(int[] tour, int pos, boolean roundTrip) {
+        if (pos + 1 < tour.length) {
+            return tour[pos + 1];
+        }
+        return roundTrip ? tour[0] : -1;
+    }
+
+    // an open tour has no closing edge, so anything leading to "-1" is free
+    private static double edge(double[] cost, int n, int from, int to) {
+        return to < 0 ? 0.0 : cost[from * n + to];
+    }
+
+    private static void reverse(int[] tour, int i, int j) {
+        while (i < j) {
+            int tmp = tour[i];
+            tour[i++] = tour[j];
+            tour[j--] = tmp;
+        }
+    }
+
+    // move tour[i..end] so that it follows the stop currently at position k
+    private static void moveSegment(int[] tour, int i, int end, int k, boolean reversed) {
+        int len = end - i + 1;
+        int[] segment = new int[len];
+        for (int s = 0; s < len; s++) {
+            segment[s] = reversed ? tour[end - s] : tour[i + s];
+        }
+        if (k < i) {
+            System.arraycopy(tour, k + 1, tour, k + 1 + len, i - k - 1);
+            System.arraycopy(segment, 0, tour, k + 1, len);
+        } else {
+            System.arraycopy(tour, end + 1, tour, i, k - end);
+            System.arraycopy(segment, 0, tour, k - len + 1, len);
+        }
+    }
+
+    private static double tourLength(double[] cost, int[] tour, boolean roundTrip) {
+        int n = tour.length;
+        double total = 0;
+        for (int p = 0; p < n; p++) {
+            total += edge(cost, n, tour[p], successor(tour, p, roundTrip));
+        }
+        return total;
+    }
+
+    public static class Tour {
+        private final int[] order;
+        private final double distanceMeters;
+        private final double durationSeconds;
+
+        public Tour(int[] order, double distanceMeters, double durationSeconds) {
+            this.order = order;
+            this.distanceMeters = distanceMeters;
+            this.durationSeconds = durationSeconds;
+        }
+
+        public List<Integer> getOrder() {
+            List<Integer> list = new ArrayList<>(order.length);
+            for (int idx : order) {
+                list.add(idx);
+            }
+            return list;
+        }
+
+        public int[] getOrderArray() {
+            return order.clone();
+        }
+
+        public double getDistanceMeters() {
+            return distanceMeters;
+        }
+
+        public double getDurationSeconds() {
+            return durationSeconds;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.qwqer.demo.enums;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static com.qwqer.demo.enums.OrderStatus.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderStatusTest {
+
+    @Test
+    void forwardTransitionsAreAllowed() {
+        assertThat(PLACED.canTransitionTo(PENDING_ASSIGNMENT)).isTrue();
+        assertThat(PLACED.canTransitionTo(ASSIGNED)).isTrue();
+        assertThat(PENDING_ASSIGNMENT.canTransitionTo(ASSIGNED)).isTrue();
+        assertThat(ASSIGNED.canTransitionTo(PICKED_UP)).isTrue();
+        assertThat(PICKED_UP.canTransitionTo(OUT_FOR_DELIVERY)).isTrue();
+        assertThat(PICKED_UP.canTransitionTo(DELIVERED)).isTrue(); // driver-app hand-over
+        assertThat(OUT_FOR_DELIVERY.canTransitionTo(DELIVERED)).isTrue();
+        assertThat(ON_DELIVERY.canTransitionTo(DELIVERED)).isTrue();
+    }
+
+    @Test
+    void cancelOnlyBeforePickup() {
+        assertThat(sourcesOf(CANCELLED)).containsExactlyInAnyOrder(PLACED, PENDING_ASSIGNMENT, ASSIGNED);
+    }
+
+    @Test
+    void noStepsBackOrSkippedPickup() {
+        assertThat(PICKED_UP.canTransitionTo(ASSIGNED)).isFalse();
+        assertThat(OUT_FOR_DELIVERY.canTransitionTo(PICKED_UP)).isFalse();
+        assertThat(ASSIGNED.canTransitionTo(DELIVERED)).isFalse();
+        assertThat(ASSIGNED.canTransitionTo(OUT_FOR_DELIVERY)).isFalse();
+        assertThat(PENDING_ASSIGNMENT.canTransitionTo(PICKED_UP)).isFalse();
+        assertThat(sourcesOf(ASSIGNED)).containsExactlyInAnyOrder(PLACED, PENDING_ASSIGNMENT);
+        assertThat(sourcesOf(DELIVERED)).containsExactlyInAnyOrder(PICKED_UP, OUT_FOR_DELIVERY, ON_DELIVERY);
+    }
+
+    @Test
+    void finalStatusesAreFinal() {
+        for (OrderStatus next : OrderStatus.values()) {
+            assertThat(DELIVERED.canTransitionTo(next)).isFalse();
+            assertThat(CANCELLED.canTransitionTo(next)).isFalse();
+        }
+        for (OrderStatus status : EnumSet.allOf(OrderStatus.class)) {
+            assertThat(status.canTransitionTo(status)).as("%s -> itself", status).isFalse();
+        }
+    }
+}
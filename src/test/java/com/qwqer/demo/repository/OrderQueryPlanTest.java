@@ -0,0 +1,220 @@
+package com.qwqer.demo.repository;
+
+import com.qwqer.demo.entity.Customer;
+import com.qwqer.demo.entity.CustomerOrder;
+import com.qwqer.demo.enums.OrderStatus;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The hot order / agent repository queries must be served by the indexes declared on CustomerOrder,
+ * ArchivedOrder and DeliveryAgent. Each query is run through its repository method; the SQL Hibernate
+ * sent and the values it bound are captured at the JDBC level and EXPLAINed, and H2 must not plan a
+ * full scan (marked PUBLIC.TABLE.tableScan in the plan).
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-plans;DB_CLOSE_DELAY=-1",
+        "journal.enabled=false",
+        "orders.archive.enabled=false",
+        "routes.prewarm.enabled=false"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrderQueryPlanTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 15, 12, 0);
+
+    @Autowired
+    private CustomerOrderRepository orderRepository;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Autowired
+    private DeliveryAgentRepository agentRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long customerId;
+    private long productId;
+
+    // enough rows over several customers and statuses that the planner has real selectivity to work with
+    @BeforeAll
+    void seed() {
+        List<Long> customers = new ArrayList<>();
+        for (int c = 0; c < 20; c++) {
+            Customer customer = new Customer();
+            customer.setName("Plan Customer " + c);
+            customer.setPhone("+9180000000" + c);
+            customer.setAddress(c + ", MG Road");
+            customers.add(customerRepository.save(customer).getId());
+        }
+        customerId = customers.get(0);
+        productId = productRepository.findAll().get(0).getId();
+
+        OrderStatus[] statuses = OrderStatus.values();
+        List<CustomerOrder> orders = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            CustomerOrder order = new CustomerOrder(customers.get(i % customers.size()), "Plan Customer",
+                    i + ", MG Road", productId, new BigDecimal("12.99"), 1);
+            order.setStatus(statuses[i % statuses.length]);
+            order.setCreatedAt(NOW.minusMinutes(i));
+            orders.add(order);
+        }
+        orderRepository.saveAll(orders);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void statusQueriesUseTheStatusIndexes() {
+        assertIndexed(() -> orderRepository.findByStatus(OrderStatus.PENDING_ASSIGNMENT));
+        assertIndexed(() -> orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc(OrderStatus.DELIVERED, 0L,
+                PageRequest.of(0, 51)));
+        assertIndexed(() -> orderRepository.countAndOldestByStatus(OrderStatus.PENDING_ASSIGNMENT));
+    }
+
+    @Test
+    void customerHistoryQueriesUseTheCustomerIndexes() {
+        assertIndexed(() -> orderRepository.findByCustomerIdOrderByCreatedAtDesc(customerId));
+        assertIndexed(() -> orderRepository.findByCustomerIdOrderByCreatedAtDescIdDesc(customerId, PageRequest.of(0, 21)));
+        assertIndexed(() -> orderRepository.findHistoryPageAfter(customerId, NOW.minusDays(1), 500L, PageRequest.of(0, 21)));
+        assertIndexed(() -> orderRepository.findByCustomerIdAndDateRange(customerId, NOW.minusDays(7), NOW));
+        assertIndexed(() -> orderRepository.countByCustomerIdAndStatus(customerId, OrderStatus.DELIVERED));
+        assertIndexed(() -> archivedOrderRepository.findByCustomerIdOrderByCreatedAtDescIdDesc(customerId,
+                PageRequest.of(0, 21)));
+        assertIndexed(() -> archivedOrderRepository.findHistoryPageAfter(customerId, NOW.minusDays(1), 500L,
+                PageRequest.of(0, 21)));
+    }
+
+    @Test
+    void productAndAgentLookupsUseTheirIndexes() {
+        assertIndexed(() -> orderRepository.findByProductId(productId));
+        assertIndexed(() -> agentRepository.findByAssignedOrderId(1L));
+    }
+
+    private void assertIndexed(Runnable repositoryCall) {
+        StatementCapture.start();
+        List<StatementCapture.Captured> statements;
+        try {
+            repositoryCall.run();
+        } finally {
+            statements = StatementCapture.stop();
+        }
+        List<StatementCapture.Captured> selects = statements.stream()
+                .filter(s -> s.sql().trim().toLowerCase().startsWith("select"))
+                .toList();
+        assertThat(selects).as("SELECT statements sent by the repository call").isNotEmpty();
+        for (StatementCapture.Captured select : selects) {
+            String plan = String.join("\n", jdbcTemplate.query("EXPLAIN " + select.sql(), ps -> {
+                for (Map.Entry<Integer, Object> param : select.params().entrySet()) {
+                    ps.setObject(param.getKey(), param.getValue());
+                }
+            }, (rs, row) -> rs.getString(1)));
+            assertThat(plan).as("plan of %s", select.sql()).doesNotContain(".tableScan");
+        }
+    }
+
+    /** Records the SQL and bound values of statements prepared on the current thread while started. */
+    static final class StatementCapture {
+
+        record Captured(String sql, Map<Integer, Object> params) {}
+
+        private static final ThreadLocal<List<Captured>> CURRENT = new ThreadLocal<>();
+
+        static void start() {
+            CURRENT.set(new ArrayList<>());
+        }
+
+        static List<Captured> stop() {
+            List<Captured> captured = CURRENT.get();
+            CURRENT.remove();
+            return captured;
+        }
+
+        static DataSource wrap(DataSource target) {
+            return proxy(DataSource.class, target, (method, result, args) ->
+                    result instanceof Connection connection ? wrap(connection) : result);
+        }
+
+        private static Connection wrap(Connection target) {
+            return proxy(Connection.class, target, (method, result, args) -> {
+                List<Captured> captured = CURRENT.get();
+                if (captured != null && result instanceof PreparedStatement statement
+                        && method.equals("prepareStatement") && args != null && args[0] instanceof String sql) {
+                    Captured c = new Captured(sql, new TreeMap<>());
+                    captured.add(c);
+                    return wrap(statement, c);
+                }
+                return result;
+            });
+        }
+
+        private static PreparedStatement wrap(PreparedStatement target, Captured captured) {
+            return proxy(PreparedStatement.class, target, (method, result, args) -> {
+                if (method.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                    captured.params().put(index, method.equals("setNull") ? null : args[1]);
+                }
+                return result;
+            });
+        }
+
+        private interface AfterCall {
+            Object apply(String method, Object result, Object[] args);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, AfterCall after) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (p, method, args) -> {
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                return after.apply(method.getName(), result, args);
+            });
+        }
+    }
+
+    @TestConfiguration
+    static class CaptureConfig {
+
+        @Bean
+        static BeanPostProcessor statementCapturingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? StatementCapture.wrap(dataSource) : bean;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.qwqer.demo.service;
+
+import com.enums.VehicleCapacity;
+import com.qwqer.demo.entity.Customer;
+import com.qwqer.demo.entity.CustomerOrder;
+import com.qwqer.demo.entity.DeliveryAgent;
+import com.qwqer.demo.entity.Product;
+import com.qwqer.demo.entity.Warehouse;
+import com.qwqer.demo.enums.OrderStatus;
+import com.qwqer.demo.repository.CustomerOrderRepository;
+import com.qwqer.demo.repository.CustomerRepository;
+import com.qwqer.demo.repository.DeliveryAgentRepository;
+import com.qwqer.demo.repository.ProductRepository;
+import com.qwqer.demo.repository.WarehouseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:auto-assign;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "journal.enabled=false",
+        "orders.archive.enabled=false",
+        "routes.prewarm.enabled=false",
+        "dispatch.parallel.candidates-per-group=2",
+        // the test runs the cycle itself, and agent reads must not come from another context's cache
+        "dispatch.auto-assign.enabled=false",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"
+})
+class AutoAssignServiceTest {
+
+    private static final double LAT = 12.9716;
+    private static final double LON = 77.5946;
+
+    @Autowired
+    private AutoAssignService autoAssignService;
+
+    @Autowired
+    private CustomerOrderRepository orderRepository;
+
+    @Autowired
+    private DeliveryAgentRepository agentRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+
+    @Test
+    void groupsBeyondTheSharedShortlistStillGetAFreeDriver() {
+        Warehouse warehouse = warehouseRepository.save(new Warehouse("Shortlist Hub", "1, MG Road", "560001",
+                LAT, LON, "+918000000000", "Hub Manager"));
+        // five groups (orders 2 km apart) all share the same two-driver shortlist; five drivers wait at the hub
+        for (int i = 0; i < 5; i++) {
+            DeliveryAgent agent = new DeliveryAgent("Hub Driver " + i, "+91900000010" + i);
+            agent.setVehicleCapacity(VehicleCapacity.TWO_WHEELER);
+            agent.setLatitude(LAT);
+            agent.setLongitude(LON);
+            agentRepository.save(agent);
+        }
+        // light enough for a two-wheeler
+        Product parcel = new Product("Shortlist Parcel", "Small parcel", new BigDecimal("12.99"), 1L);
+        parcel.setWeight(200.0);
+        Long productId = productRepository.save(parcel).getId();
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            orderIds.add(newOrder(warehouse.getId(), productId, LAT + 0.02 * (i + 1)));
+        }
+
+        assertThat(autoAssignService.assignNow()).isEqualTo(orderIds.size());
+
+        assertThat(orderIds).allSatisfy(id ->
+                assertThat(orderRepository.findStatusById(id)).contains(OrderStatus.ASSIGNED));
+    }
+
+    private Long newOrder(Long warehouseId, Long productId, double latitude) {
+        Customer customer = new Customer();
+        customer.setName("Shortlist Customer");
+        customer.setPhone("+919100000002");
+        customer.setAddress("2, MG Road");
+        Long customerId = customerRepository.save(customer).getId();
+        CustomerOrder order = new CustomerOrder(customerId, "Shortlist Customer", "2, MG Road", productId,
+                new BigDecimal("12.99"), 1);
+        order.setWarehouseId(warehouseId);
+        order.setLatitude(latitude);
+        order.setLongitude(LON);
+        order.setCreatedAt(LocalDateTime.now().minusMinutes(5)); // past the 30 s dispatch delay
+        return orderRepository.save(order).getId();
+    }
+}
@@ -0,0 +1,147 @@
+package com.qwqer.demo.service;
+
+import com.enums.VehicleCapacity;
+import com.qwqer.demo.QwqerDemoBackendApplication;
+import com.qwqer.demo.entity.Customer;
+import com.qwqer.demo.entity.CustomerOrder;
+import com.qwqer.demo.entity.DeliveryAgent;
+import com.qwqer.demo.entity.DeliveryAgent.AgentStatus;
+import com.qwqer.demo.repository.CustomerOrderRepository;
+import com.qwqer.demo.repository.CustomerRepository;
+import com.qwqer.demo.repository.DeliveryAgentRepository;
+import com.qwqer.demo.repository.ProductRepository;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Two application instances under the cluster profile against one H2 TCP server: whatever one
+ * instance writes must be visible through the other's ETags, entity reads and history counters.
+ * Test orders have no warehouse, so neither instance's dispatch cycle picks them up.
+ */
+class ClusterStateTest {
+
+    @TempDir
+    static Path dataDir;
+
+    private static Server server;
+    private static ConfigurableApplicationContext first;
+    private static ConfigurableApplicationContext second;
+
+    @BeforeAll
+    static void startInstances() throws SQLException {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        String url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:cluster-state;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+        first = instance(url, "first");
+        second = instance(url, "second");
+    }
+
+    @AfterAll
+    static void stopInstances() {
+        if (second != null) {
+            second.close();
+        }
+        if (first != null) {
+            first.close();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    // command-line arguments, not builder properties: those are only defaults and lose to application*.properties
+    private static ConfigurableApplicationContext instance(String url, String name) {
+        return new SpringApplicationBuilder(QwqerDemoBackendApplication.class)
+                .profiles("cluster")
+                .run(
+                        "--spring.datasource.url=" + url,
+                        "--server.port=0",
+                        "--journal.enabled=false",
+                        "--journal.dir=" + dataDir.resolve("journal-" + name),
+                        "--orders.archive.enabled=false",
+                        "--routes.prewarm.enabled=false");
+    }
+
+    @Test
+    void etagsAreSharedAndMoveOnEveryInstance() {
+        CollectionVersions onFirst = first.getBean(CollectionVersions.class);
+        CollectionVersions onSecond = second.getBean(CollectionVersions.class);
+        assertThat(onFirst).isInstanceOf(SharedCollectionVersions.class);
+        String before = onSecond.etag(CollectionVersions.Collection.AGENTS);
+        assertThat(onFirst.etag(CollectionVersions.Collection.AGENTS)).isEqualTo(before);
+
+        newAgent(first);
+
+        // the bump runs on the first instance's after-commit writer, just after the save returns
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            String after = onSecond.etag(CollectionVersions.Collection.AGENTS);
+            assertThat(after).isNotEqualTo(before).isEqualTo(onFirst.etag(CollectionVersions.Collection.AGENTS));
+        });
+    }
+
+    @Test
+    void agentAssignedThroughOneInstanceIsAssignedOnTheOther() {
+        DeliveryAgentRepository agentsOnSecond = second.getBean(DeliveryAgentRepository.class);
+        DeliveryAgent agent = newAgent(first);
+        // read through the second instance first, so any cache there holds the AVAILABLE copy
+        assertThat(agentsOnSecond.findById(agent.getId()).orElseThrow().getStatus()).isEqualTo(AgentStatus.AVAILABLE);
+        assertThat(agentsOnSecond.findAll()).anyMatch(a -> a.getId().equals(agent.getId()));
+
+        Long orderId = newOrder(first, newCustomer(first));
+        first.getBean(OrderTransitionService.class).assign(orderId, agent.getId());
+
+        assertThat(agentsOnSecond.findById(agent.getId()).orElseThrow().getStatus()).isEqualTo(AgentStatus.ASSIGNED);
+        assertThat(agentsOnSecond.findAll()).filteredOn(a -> a.getId().equals(agent.getId()))
+                .extracting(DeliveryAgent::getStatus).containsExactly(AgentStatus.ASSIGNED);
+    }
+
+    @Test
+    void historyCountersIncludeOrdersPlacedThroughTheOtherInstance() {
+        CustomerOrderStats statsOnSecond = second.getBean(CustomerOrderStats.class);
+        Long customerId = newCustomer(first);
+        assertThat(statsOnSecond.get(customerId).total()).isZero();
+
+        newOrder(first, customerId);
+        newOrder(first, customerId);
+
+        assertThat(statsOnSecond.get(customerId).total()).isEqualTo(2);
+    }
+
+    @Test
+    void statusStreamIsOffOnEveryInstance() {
+        assertThat(first.getBean(OrderStatusStream.class).isEnabled()).isFalse();
+        assertThat(second.getBean(OrderStatusStream.class).isEnabled()).isFalse();
+    }
+
+    private static DeliveryAgent newAgent(ConfigurableApplicationContext instance) {
+        DeliveryAgent agent = new DeliveryAgent("Cluster Driver", "+919000000001");
+        agent.setVehicleCapacity(VehicleCapacity.TWO_WHEELER);
+        return instance.getBean(DeliveryAgentRepository.class).save(agent);
+    }
+
+    private static Long newCustomer(ConfigurableApplicationContext instance) {
+        Customer customer = new Customer();
+        customer.setName("Cluster Customer");
+        customer.setPhone("+919100000001");
+        customer.setAddress("1, MG Road");
+        return instance.getBean(CustomerRepository.class).save(customer).getId();
+    }
+
+    private static Long newOrder(ConfigurableApplicationContext instance, Long customerId) {
+        Long productId = instance.getBean(ProductRepository.class).findAll().get(0).getId();
+        return instance.getBean(CustomerOrderRepository.class).save(new CustomerOrder(customerId, "Cluster Customer",
+                "1, MG Road", productId, new BigDecimal("12.99"), 1)).getId();
+    }
+}
@@ -0,0 +1,186 @@
+package com.qwqer.demo.service;
+
+import com.qwqer.demo.dto.OrderEvent;
+import com.qwqer.demo.entity.DeliveryAgent.AgentStatus;
+import com.qwqer.demo.enums.OrderStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class OrderEventJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<OrderEventJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeAll() {
+        opened.forEach(OrderEventJournal::close);
+    }
+
+    @Test
+    void eventsAreWrittenAsGivenWithPerEntitySequences() {
+        OrderEventJournal journal = open();
+        journal.record(List.of(
+                new OrderTransitions.OrderMoved(1L, OrderStatus.PENDING_ASSIGNMENT, OrderStatus.ASSIGNED, 7L),
+                new OrderTransitions.AgentMoved(7L, AgentStatus.AVAILABLE, AgentStatus.ASSIGNED, 1L)), 1000L);
+        journal.record(List.of(new OrderTransitions.OrderMoved(2L, null, OrderStatus.PENDING_ASSIGNMENT, null)), 2000L);
+        journal.record(List.of(
+                new OrderTransitions.OrderMoved(1L, OrderStatus.ASSIGNED, OrderStatus.PICKED_UP, 7L),
+                new OrderTransitions.AgentMoved(7L, AgentStatus.ASSIGNED, AgentStatus.ON_DELIVERY, 1L)), 3000L);
+
+        List<OrderEvent> events = readAll(journal);
+        assertThat(events).extracting(OrderEvent::getSequence, OrderEvent::getEntity, OrderEvent::getEntityId,
+                        OrderEvent::getEntitySequence, OrderEvent::getFrom, OrderEvent::getTo, OrderEvent::getTimestamp)
+                .containsExactly(
+                        tuple(1L, OrderEvent.Entity.ORDER, 1L, 1L, "PENDING_ASSIGNMENT", "ASSIGNED", 1000L),
+                        tuple(2L, OrderEvent.Entity.AGENT, 7L, 1L, "AVAILABLE", "ASSIGNED", 1000L),
+                        tuple(3L, OrderEvent.Entity.ORDER, 2L, 1L, null, "PENDING_ASSIGNMENT", 2000L),
+                        tuple(4L, OrderEvent.Entity.ORDER, 1L, 2L, "ASSIGNED", "PICKED_UP", 3000L),
+                        tuple(5L, OrderEvent.Entity.AGENT, 7L, 2L, "ASSIGNED", "ON_DELIVERY", 3000L));
+    }
+
+    @Test
+    void perEntitySequencesContinueAfterARestart() {
+        OrderEventJournal journal = open();
+        journal.record(List.of(new OrderTransitions.OrderMoved(1L, null, OrderStatus.PENDING_ASSIGNMENT, null)), 1L);
+        journal.record(List.of(new OrderTransitions.AgentMoved(7L, AgentStatus.AVAILABLE, AgentStatus.ASSIGNED, 1L)), 2L);
+        close(journal);
+
+        OrderEventJournal reopened = open();
+        reopened.record(List.of(
+                new OrderTransitions.OrderMoved(1L, OrderStatus.PENDING_ASSIGNMENT, OrderStatus.ASSIGNED, 7L),
+                new OrderTransitions.AgentMoved(7L, AgentStatus.ASSIGNED, AgentStatus.ON_DELIVERY, 1L)), 3L);
+
+        List<OrderEvent> events = readAll(reopened);
+        assertThat(events).extracting(OrderEvent::getSequence, OrderEvent::getEntityId, OrderEvent::getEntitySequence)
+                .containsExactly(tuple(1L, 1L, 1L), tuple(2L, 7L, 1L), tuple(3L, 1L, 2L), tuple(4L, 7L, 2L));
+    }
+
+    @Test
+    void tornTailIsCutOffOnRestart() throws IOException {
+        OrderEventJournal journal = open();
+        for (long order = 1; order <= 3; order++) {
+            journal.record(List.of(new OrderTransitions.OrderMoved(order, null, OrderStatus.PENDING_ASSIGNMENT, null)), order);
+        }
+        close(journal);
+
+        // a crash after the length was written but before the payload reached the disk
+        int end = endOfLog(segment());
+        writeInt(segment(), end, 60);
+
+        OrderEventJournal reopened = open();
+        assertThat(reopened.lastSequence()).isEqualTo(3);
+        reopened.record(List.of(new OrderTransitions.OrderMoved(4L, null, OrderStatus.PENDING_ASSIGNMENT, null)), 4L);
+        assertThat(readAll(reopened)).extracting(OrderEvent::getSequence).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void recordWithABadChecksumEndsTheLog() throws IOException {
+        OrderEventJournal journal = open();
+        for (long order = 1; order <= 3; order++) {
+            journal.record(List.of(new OrderTransitions.OrderMoved(order, null, OrderStatus.PENDING_ASSIGNMENT, null)), order);
+        }
+        close(journal);
+
+        // flip one payload byte of the last record: its CRC32C no longer matches
+        int last = startOfLastRecord(segment());
+        ByteBuffer one = ByteBuffer.allocate(1);
+        try (FileChannel channel = FileChannel.open(segment(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.read(one, last + 20);
+            one.put(0, (byte) (one.get(0) ^ 0x5a)).rewind();
+            channel.write(one, last + 20);
+        }
+
+        OrderEventJournal reopened = open();
+        assertThat(reopened.lastSequence()).isEqualTo(2);
+        assertThat(readAll(reopened)).extracting(OrderEvent::getEntityId).containsExactly(1L, 2L);
+        // the dropped record's place is reused by the next one
+        reopened.record(List.of(new OrderTransitions.OrderMoved(9L, null, OrderStatus.PENDING_ASSIGNMENT, null)), 9L);
+        assertThat(readAll(reopened)).extracting(OrderEvent::getSequence, OrderEvent::getEntityId)
+                .containsExactly(tuple(1L, 1L), tuple(2L, 2L), tuple(3L, 9L));
+    }
+
+    @Test
+    void secondJournalOnTheSameDirectoryRefusesToOpen() {
+        open();
+        assertThatThrownBy(this::open).isInstanceOf(IllegalStateException.class).hasMessageContaining("in use");
+    }
+
+    private OrderEventJournal open() {
+        OrderEventJournal journal = new OrderEventJournal();
+        ReflectionTestUtils.setField(journal, "directory", dir.toString());
+        ReflectionTestUtils.setField(journal, "segmentBytes", 64 * 1024);
+        journal.open();
+        opened.add(journal);
+        return journal;
+    }
+
+    private void close(OrderEventJournal journal) {
+        journal.close();
+        opened.remove(journal);
+    }
+
+    private static List<OrderEvent> readAll(OrderEventJournal journal) {
+        List<OrderEvent> events = new ArrayList<>();
+        journal.replay(1, events::add);
+        return events;
+    }
+
+    private Path segment() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".journal")).findFirst().orElseThrow();
+        }
+    }
+
+    // frames are [int length][int crc][payload]; a zero length is the end of the log
+    private static int endOfLog(Path segment) throws IOException {
+        int position = 0;
+        int length;
+        while ((length = readInt(segment, position)) > 0) {
+            position += 8 + length;
+        }
+        return position;
+    }
+
+    private static int startOfLastRecord(Path segment) throws IOException {
+        int position = 0;
+        int last = 0;
+        int length;
+        while ((length = readInt(segment, position)) > 0) {
+            last = position;
+            position += 8 + length;
+        }
+        return last;
+    }
+
+    private static int readInt(Path segment, int position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            channel.read(buffer, position);
+        }
+        return buffer.getInt(0);
+    }
+
+    private static void writeInt(Path segment, int position, int value) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, value), position);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.qwqer.demo.service;
+
+import com.enums.VehicleCapacity;
+import com.qwqer.demo.entity.Customer;
+import com.qwqer.demo.entity.CustomerOrder;
+import com.qwqer.demo.entity.DeliveryAgent;
+import com.qwqer.demo.entity.DeliveryAgent.AgentStatus;
+import com.qwqer.demo.enums.OrderStatus;
+import com.qwqer.demo.repository.CustomerOrderRepository;
+import com.qwqer.demo.repository.CustomerRepository;
+import com.qwqer.demo.repository.DeliveryAgentRepository;
+import com.qwqer.demo.repository.ProductRepository;
+import com.qwqer.demo.service.OrderTransitionService.IllegalTransitionException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Test orders have no warehouse, so the background dispatch cycle never picks them up
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:order-transitions;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "journal.enabled=false",
+        "orders.archive.enabled=false",
+        "routes.prewarm.enabled=false"
+})
+@RecordApplicationEvents
+class OrderTransitionServiceTest {
+
+    @Autowired
+    private OrderTransitionService transitionService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CustomerOrderRepository orderRepository;
+
+    @Autowired
+    private DeliveryAgentRepository agentRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Test
+    void eachTransitionIsPublishedWithItsExactFromAndTo() {
+        DeliveryAgent agent = newAgent();
+        Long orderId = newOrder();
+        transitionService.assign(orderId, agent.getId());
+        transitionService.pickUp(orderId);
+        assertThatThrownBy(() -> transitionService.cancel(orderId)).isInstanceOf(IllegalTransitionException.class);
+        transitionService.handOver(orderId);
+
+        assertThat(events.stream(OrderTransitions.OrderMoved.class).filter(m -> m.getOrderId().equals(orderId)))
+                .extracting(OrderTransitions.OrderMoved::getFrom, OrderTransitions.OrderMoved::getTo)
+                .containsExactly(
+                        tuple(null, OrderStatus.PENDING_ASSIGNMENT),
+                        tuple(OrderStatus.PENDING_ASSIGNMENT, OrderStatus.ASSIGNED),
+                        tuple(OrderStatus.ASSIGNED, OrderStatus.PICKED_UP),
+                        tuple(OrderStatus.PICKED_UP, OrderStatus.DELIVERED));
+
+        assertThat(events.stream(OrderTransitions.AgentMoved.class).filter(m -> m.getAgentId().equals(agent.getId())))
+                .extracting(OrderTransitions.AgentMoved::getFrom, OrderTransitions.AgentMoved::getTo)
+                .containsExactly(
+                        tuple(null, AgentStatus.AVAILABLE),
+                        tuple(AgentStatus.AVAILABLE, AgentStatus.ASSIGNED),
+                        tuple(AgentStatus.ASSIGNED, AgentStatus.ON_DELIVERY),
+                        tuple(AgentStatus.ON_DELIVERY, AgentStatus.AVAILABLE));
+    }
+
+    @Test
+    void otpDeliveryNeedsOutForDeliveryWhileHandOverTakesPickedUp() {
+        DeliveryAgent agent = newAgent();
+        Long orderId = newOrder();
+        transitionService.assign(orderId, agent.getId());
+        transitionService.pickUp(orderId);
+
+        assertThatThrownBy(() -> transitionService.deliver(orderId)).isInstanceOf(IllegalTransitionException.class);
+        assertThat(transitionService.handOver(orderId).getStatus()).isEqualTo(OrderStatus.DELIVERED);
+
+        Long other = newOrder();
+        transitionService.assign(other, agent.getId());
+        transitionService.pickUp(other);
+        transitionService.markOutForDelivery(other);
+        assertThatThrownBy(() -> transitionService.handOver(other)).isInstanceOf(IllegalTransitionException.class);
+        assertThat(transitionService.deliver(other).getStatus()).isEqualTo(OrderStatus.DELIVERED);
+    }
+
+    @Test
+    void agentStaysBusyUntilItsLastGroupedOrderIsDelivered() {
+        DeliveryAgent agent = newAgent();
+        Long first = newOrder();
+        Long second = newOrder();
+        assertThat(transitionService.assignGroup(List.of(first, second), agent.getId(), true)).isEqualTo(2);
+        transitionService.pickUp(first);
+        transitionService.pickUp(second);
+
+        transitionService.handOver(first);
+        DeliveryAgent busy = agentRepository.findById(agent.getId()).orElseThrow();
+        assertThat(busy.getStatus()).isNotEqualTo(AgentStatus.AVAILABLE);
+        assertThat(busy.getAssignedOrderId()).isEqualTo(second);
+
+        transitionService.handOver(second);
+        DeliveryAgent free = agentRepository.findById(agent.getId()).orElseThrow();
+        assertThat(free.getStatus()).isEqualTo(AgentStatus.AVAILABLE);
+        assertThat(free.getAssignedOrderId()).isNull();
+    }
+
+    @Test
+    void groupWhoseOrdersAreAllGoneLeavesTheAgentAvailable() {
+        DeliveryAgent agent = newAgent();
+        Long first = newOrder();
+        Long second = newOrder();
+        transitionService.cancel(first);
+        transitionService.cancel(second);
+
+        assertThat(transitionService.assignGroup(List.of(first, second), agent.getId(), true)).isZero();
+
+        DeliveryAgent free = agentRepository.findById(agent.getId()).orElseThrow();
+        assertThat(free.getStatus()).isEqualTo(AgentStatus.AVAILABLE);
+        assertThat(free.getAssignedOrderId()).isNull();
+        assertThat(events.stream(OrderTransitions.AgentMoved.class)
+                .filter(m -> m.getAgentId().equals(agent.getId()) && m.getTo() == AgentStatus.ASSIGNED)).isEmpty();
+    }
+
+    @Test
+    void groupBooksTheAgentForItsFirstOrderThatMoved() {
+        DeliveryAgent agent = newAgent();
+        Long first = newOrder();
+        Long second = newOrder();
+        transitionService.cancel(first);
+
+        assertThat(transitionService.assignGroup(List.of(first, second), agent.getId(), true)).isEqualTo(1);
+
+        DeliveryAgent busy = agentRepository.findById(agent.getId()).orElseThrow();
+        assertThat(busy.getStatus()).isEqualTo(AgentStatus.ASSIGNED);
+        assertThat(busy.getAssignedOrderId()).isEqualTo(second);
+    }
+
+    @Test
+    void concurrentTransitionsOnOneOrderHaveExactlyOneWinner() throws Exception {
+        DeliveryAgent agent = newAgent();
+        Long orderId = newOrder();
+        transitionService.assign(orderId, agent.getId());
+
+        // half the threads pick the order up, half cancel it; only one of them may succeed
+        List<Callable<CustomerOrder>> calls = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            calls.add(i % 2 == 0 ? () -> transitionService.pickUp(orderId) : () -> transitionService.cancel(orderId));
+        }
+        List<Boolean> outcomes = race(calls);
+
+        assertThat(outcomes.stream().filter(ok -> ok).count()).isEqualTo(1);
+        OrderStatus status = orderRepository.findStatusById(orderId).orElseThrow();
+        assertThat(status).isIn(OrderStatus.PICKED_UP, OrderStatus.CANCELLED);
+        AgentStatus agentStatus = agentRepository.findById(agent.getId()).orElseThrow().getStatus();
+        assertThat(agentStatus).isEqualTo(status == OrderStatus.CANCELLED ? AgentStatus.AVAILABLE : AgentStatus.ON_DELIVERY);
+    }
+
+    @Test
+    void detailsUpdateCannotChangeStatusOrUndoATransition() {
+        DeliveryAgent agent = newAgent();
+        Long orderId = newOrder();
+        transitionService.assign(orderId, agent.getId());
+        CustomerOrder stale = orderRepository.findById(orderId).orElseThrow(); // client read: ASSIGNED
+
+        transitionService.pickUp(orderId);
+
+        // the stale copy still says ASSIGNED: that would move the order back, so it is rejected
+        assertThatThrownBy(() -> orderService.updateOrderDetails(orderId, stale))
+                .isInstanceOf(IllegalTransitionException.class);
+
+        CustomerOrder edit = orderRepository.findById(orderId).orElseThrow();
+        edit.setAddress("42, Brigade Road");
+        edit.setStatus(OrderStatus.DELIVERED);
+        assertThatThrownBy(() -> orderService.updateOrderDetails(orderId, edit))
+                .isInstanceOf(IllegalTransitionException.class);
+
+        edit.setStatus(OrderStatus.PICKED_UP);
+        orderService.updateOrderDetails(orderId, edit);
+        CustomerOrder saved = orderRepository.findById(orderId).orElseThrow();
+        assertThat(saved.getAddress()).isEqualTo("42, Brigade Road");
+        assertThat(saved.getStatus()).isEqualTo(OrderStatus.PICKED_UP);
+        assertThat(saved.getDeliveryAgentId()).isEqualTo(agent.getId());
+
+        // only the fields sent are changed; the rest keep their stored values
+        CustomerOrder partial = new CustomerOrder();
+        partial.setStatus(OrderStatus.PICKED_UP);
+        partial.setNotes("Ring twice");
+        orderService.updateOrderDetails(orderId, partial);
+        CustomerOrder merged = orderRepository.findById(orderId).orElseThrow();
+        assertThat(merged.getNotes()).isEqualTo("Ring twice");
+        assertThat(merged.getAddress()).isEqualTo("42, Brigade Road");
+        assertThat(merged.getCustomerName()).isEqualTo("Transition Customer");
+        assertThat(merged.getTotalAmount()).isEqualByComparingTo("12.99");
+    }
+
+    // starts all calls together; true for each call that returned, false for each IllegalTransitionException
+    private static List<Boolean> race(List<Callable<CustomerOrder>> calls) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(calls.size());
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (Callable<CustomerOrder> call : calls) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        call.call();
+                        return true;
+                    } catch (IllegalTransitionException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            List<Boolean> outcomes = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                outcomes.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return outcomes;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private DeliveryAgent newAgent() {
+        DeliveryAgent agent = new DeliveryAgent("Test Driver", "+919000000000");
+        agent.setVehicleCapacity(VehicleCapacity.TWO_WHEELER);
+        return agentRepository.save(agent);
+    }
+
+    private Long newOrder() {
+        Customer customer = new Customer();
+        customer.setName("Transition Customer");
+        customer.setPhone("+919100000000");
+        customer.setAddress("1, MG Road");
+        Long customerId = customerRepository.save(customer).getId();
+        Long productId = productRepository.findAll().get(0).getId();
+        return orderRepository.save(new CustomerOrder(customerId, "Transition Customer", "1, MG Road", productId,
+                new BigDecimal("12.99"), 1)).getId();
+    }
+}
@@ -0,0 +1,73 @@
+package com.qwqer.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TourOptimizationServiceTest {
+
+    private static final int STOPS = 200;
+
+    private final TourOptimizationService optimizer = new TourOptimizationService();
+
+    @Test
+    void twoHundredStopsAreOptimizedWithin100Ms() {
+        double[][] stops = randomStops(new Random(42), STOPS);
+        // JIT warm-up, so the timed run measures the algorithm and not the interpreter
+        for (int i = 0; i < 5; i++) {
+            optimizer.optimize(stops[0], stops[1], false);
+        }
+
+        long start = System.nanoTime();
+        TourOptimizationService.Tour tour = optimizer.optimize(stops[0], stops[1], false);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(elapsedMs).isLessThan(100);
+        assertThat(tour.getOrderArray()[0]).isZero();
+        int[] sorted = tour.getOrderArray();
+        Arrays.sort(sorted);
+        for (int i = 0; i < STOPS; i++) {
+            assertThat(sorted[i]).isEqualTo(i);
+        }
+        assertThat(tour.getDistanceMeters()).isLessThan(inputOrderMeters(stops));
+    }
+
+    @Test
+    void roundTripOfTwoHundredStopsIsOptimizedWithin100Ms() {
+        double[][] stops = randomStops(new Random(7), STOPS);
+        for (int i = 0; i < 5; i++) {
+            optimizer.optimize(stops[0], stops[1], true);
+        }
+
+        long start = System.nanoTime();
+        TourOptimizationService.Tour tour = optimizer.optimize(stops[0], stops[1], true);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(elapsedMs).isLessThan(100);
+        assertThat(tour.getOrder()).hasSize(STOPS).startsWith(0);
+    }
+
+    // stops scattered over a ~20 km city square
+    private static double[][] randomStops(Random random, int n) {
+        double[] lats = new double[n];
+        double[] lngs = new double[n];
+        for (int i = 0; i < n; i++) {
+            lats[i] = 56.90 + random.nextDouble() * 0.18;
+            lngs[i] = 24.00 + random.nextDouble() * 0.30;
+        }
+        return new double[][] { lats, lngs };
+    }
+
+    private static double inputOrderMeters(double[][] stops) {
+        double[] cost = TourOptimizationService.buildCostMatrix(stops[0], stops[1]);
+        int n = stops[0].length;
+        double km = 0;
+        for (int i = 0; i + 1 < n; i++) {
+            km += cost[i * n + i + 1];
+        }
+        return km * 1000.0;
+    }
+}